@@ -0,0 +1,11 @@
+package com.sz.brokenlinechart;
+
+import android.graphics.Path;
+
+import com.sz.brokenlinechart.core.PathSink;
+
+/**
+ * A {@link Path} the chart core can build outlines into.
+ */
+class AndroidPath extends Path implements PathSink {
+}
@@ -0,0 +1,234 @@
+package com.sz.brokenlinechart;
+
+import android.graphics.Canvas;
+import android.graphics.DashPathEffect;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+
+import com.sz.brokenlinechart.core.Polylines;
+import com.sz.brokenlinechart.core.Renderer;
+import com.sz.brokenlinechart.core.Vertices;
+
+/**
+ * Draws the chart onto a {@link Canvas}. Paints, paths, dash effects and the gradient
+ * are reused, so drawing a frame doesn't allocate once the style is known.
+ */
+class CanvasRenderer implements Renderer {
+
+    private Canvas mCanvas;
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final AndroidPath mPath = new AndroidPath();
+    private final Rect mTextBounds = new Rect();
+    private final RectF mRect = new RectF();
+    private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+    // one dash effect per dash length, a chart uses two
+    private float mDash1;
+    private DashPathEffect mDashEffect1;
+    private float mDash2;
+    private DashPathEffect mDashEffect2;
+    // the gradient of the last fillArea call and what it was created for
+    private LinearGradient mGradient;
+    private float mGradientTop;
+    private float mGradientBottom;
+    private int mGradientTopColor;
+    private int mGradientBottomColor;
+    // vertex mode: straight lines go to drawLines and their areas to drawVertices in batches
+    private boolean mVertexMode;
+    private boolean mVertexAreas;
+    private float[] mSegments;
+    private float[] mStrip;
+    private int[] mStripColors;
+
+    void setCanvas(Canvas canvas) {
+        this.mCanvas = canvas;
+    }
+
+    /**
+     * Submits straight polylines as batches of segments through Canvas.drawLines and their
+     * gradient areas as triangle strips through Canvas.drawVertices, instead of a path that
+     * is tessellated (or rasterized into a texture) on every draw. Segment ends are rounded
+     * so the joins of wide lines stay closed. Curves are still drawn as paths.
+     *
+     * @param areas false keeps the areas on paths, e.g. where the hardware pipeline doesn't
+     *              support drawVertices
+     */
+    void setVertexMode(boolean vertexMode, boolean areas) {
+        mVertexMode = vertexMode;
+        mVertexAreas = vertexMode && areas;
+        if (vertexMode && mSegments == null) {
+            mSegments = new float[Vertices.segmentsCapacity()];
+            mStrip = new float[2 * Vertices.stripCapacity()];
+            // older releases check the colors against the float count, not the vertex count
+            mStripColors = new int[2 * Vertices.stripCapacity()];
+        }
+    }
+
+    @Override
+    public void clipRect(float left, float top, float right, float bottom) {
+        mCanvas.save();
+        mCanvas.clipRect(left, top, right, bottom);
+    }
+
+    @Override
+    public void restore() {
+        mCanvas.restore();
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        mCanvas.save();
+        mCanvas.translate(dx, dy);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int color, float width, float dash) {
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setColor(color);
+        mPaint.setStrokeWidth(width);
+        if (dash == 0) {
+            mPaint.setPathEffect(null);
+            mCanvas.drawLine(startX, startY, stopX, stopY, mPaint);
+            return;
+        }
+        // dashes go through a path, they are not applied to drawLine on every pipeline
+        mPaint.setPathEffect(dashEffect(dash));
+        mPath.reset();
+        mPath.moveTo(startX, startY);
+        mPath.lineTo(stopX, stopY);
+        mCanvas.drawPath(mPath, mPaint);
+    }
+
+    private DashPathEffect dashEffect(float dash) {
+        if (mDashEffect1 != null && mDash1 == dash) {
+            return mDashEffect1;
+        }
+        if (mDashEffect2 != null && mDash2 == dash) {
+            return mDashEffect2;
+        }
+        DashPathEffect effect = new DashPathEffect(new float[]{dash, dash, dash, dash}, 0);
+        if (mDashEffect1 == null) {
+            mDash1 = dash;
+            mDashEffect1 = effect;
+        } else {
+            mDash2 = dash;
+            mDashEffect2 = effect;
+        }
+        return effect;
+    }
+
+    @Override
+    public void drawPolyline(float[] xs, float[] ys, int from, int count, int color, float width) {
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setColor(color);
+        mPaint.setStrokeWidth(width);
+        mPaint.setPathEffect(null);
+        if (mVertexMode) {
+            mPaint.setStrokeCap(Paint.Cap.ROUND);
+            for (int i = 0; i < count - 1; i += Vertices.BATCH) {
+                int floats = Vertices.segments(xs, ys, from + i, Math.min(Vertices.BATCH + 1, count - i), mSegments);
+                mCanvas.drawLines(mSegments, 0, floats, mPaint);
+            }
+            mPaint.setStrokeCap(Paint.Cap.BUTT);
+            return;
+        }
+        Polylines.line(mPath, xs, ys, from, count);
+        mCanvas.drawPath(mPath, mPaint);
+    }
+
+    @Override
+    public void drawCurve(float[] xs, float[] ys, float[] controls, int count, int color, float width) {
+        mPaint.setStyle(Paint.Style.STROKE);
+        mPaint.setColor(color);
+        mPaint.setStrokeWidth(width);
+        mPaint.setPathEffect(null);
+        Polylines.curve(mPath, xs, ys, controls, count);
+        mCanvas.drawPath(mPath, mPaint);
+    }
+
+    @Override
+    public void fillArea(float[] xs, float[] ys, int from, int count, float startX, float baseline,
+                         float gradientTop, int topColor, int bottomColor) {
+        if (mVertexAreas) {
+            // the strip starts at the first point, which is at or before startX
+            mBackgroundPaint.setStyle(Paint.Style.FILL);
+            mBackgroundPaint.setShader(null);
+            for (int i = 0; i < count - 1; i += Vertices.BATCH) {
+                int vertices = Vertices.strip(xs, ys, from + i, Math.min(Vertices.BATCH + 1, count - i), baseline,
+                        gradientTop, topColor, bottomColor, mStrip, mStripColors);
+                mCanvas.drawVertices(Canvas.VertexMode.TRIANGLE_STRIP, 2 * vertices, mStrip, 0,
+                        null, 0, mStripColors, 0, null, 0, 0, mBackgroundPaint);
+            }
+            return;
+        }
+        setGradient(startX, baseline, gradientTop, topColor, bottomColor);
+        Polylines.area(mPath, xs, ys, from, count, startX, baseline);
+        mCanvas.drawPath(mPath, mBackgroundPaint);
+    }
+
+    @Override
+    public void fillCurveArea(float[] xs, float[] ys, float[] controls, int count, float startX, float baseline,
+                              float gradientTop, int topColor, int bottomColor) {
+        setGradient(startX, baseline, gradientTop, topColor, bottomColor);
+        Polylines.curveArea(mPath, xs, ys, controls, count, startX, baseline);
+        mCanvas.drawPath(mPath, mBackgroundPaint);
+    }
+
+    private void setGradient(float startX, float baseline, float gradientTop, int topColor, int bottomColor) {
+        if (mGradient == null || mGradientTop != gradientTop || mGradientBottom != baseline
+                || mGradientTopColor != topColor || mGradientBottomColor != bottomColor) {
+            mGradient = new LinearGradient(startX, gradientTop, startX, baseline, topColor, bottomColor, Shader.TileMode.CLAMP);
+            mGradientTop = gradientTop;
+            mGradientBottom = baseline;
+            mGradientTopColor = topColor;
+            mGradientBottomColor = bottomColor;
+        }
+        mBackgroundPaint.setStyle(Paint.Style.FILL);
+        mBackgroundPaint.setShader(mGradient);
+    }
+
+    @Override
+    public void fillCircle(float centerX, float centerY, float radius, int color) {
+        mPaint.setStyle(Paint.Style.FILL);
+        mPaint.setColor(color);
+        mPaint.setPathEffect(null);
+        mCanvas.drawCircle(centerX, centerY, radius, mPaint);
+    }
+
+    @Override
+    public void fillRoundRect(float left, float top, float right, float bottom, float radius, int color) {
+        mPaint.setStyle(Paint.Style.FILL);
+        mPaint.setColor(color);
+        mPaint.setPathEffect(null);
+        mRect.set(left, top, right, bottom);
+        mCanvas.drawRoundRect(mRect, radius, radius, mPaint);
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float size, int color, int align) {
+        mTextPaint.setTextSize(size);
+        mTextPaint.setColor(color);
+        mTextPaint.setTextAlign(align == ALIGN_LEFT ? Paint.Align.LEFT
+                : align == ALIGN_RIGHT ? Paint.Align.RIGHT : Paint.Align.CENTER);
+        mCanvas.drawText(text, x, y, mTextPaint);
+    }
+
+    @Override
+    public void measureText(String text, float size, float[] out) {
+        mTextPaint.setTextSize(size);
+        mTextPaint.getTextBounds(text, 0, text.length(), mTextBounds);
+        out[0] = mTextBounds.width();
+        out[1] = mTextBounds.height();
+    }
+
+    @Override
+    public float centerToBaseline(float size) {
+        mTextPaint.setTextSize(size);
+        mTextPaint.getFontMetrics(mFontMetrics);
+        return (mFontMetrics.bottom - mFontMetrics.top) / 2 - mFontMetrics.bottom;
+    }
+}
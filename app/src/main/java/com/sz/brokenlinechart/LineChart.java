@@ -2,31 +2,52 @@ package com.sz.brokenlinechart;
 
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.DashPathEffect;
-import android.graphics.LinearGradient;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PointF;
-import android.graphics.Rect;
-import android.graphics.RectF;
-import android.graphics.Shader;
+import android.graphics.Picture;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
+import com.sz.brokenlinechart.core.ChartEngine;
+import com.sz.brokenlinechart.core.ChartMetrics;
+import com.sz.brokenlinechart.core.ChartPainter;
+import com.sz.brokenlinechart.core.ChartStyle;
+import com.sz.brokenlinechart.core.DecimalLabelFormatter;
+import com.sz.brokenlinechart.core.Downsampler;
+import com.sz.brokenlinechart.core.LabelFormatter;
+import com.sz.brokenlinechart.core.LttbDownsampler;
+import com.sz.brokenlinechart.core.M4Downsampler;
+import com.sz.brokenlinechart.core.MappedSeries;
+import com.sz.brokenlinechart.core.Series;
+import com.sz.brokenlinechart.core.SeriesLoader;
+import com.sz.brokenlinechart.core.SeriesStore;
+import com.sz.brokenlinechart.core.Smoothing;
+import com.sz.brokenlinechart.core.ThresholdBand;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * We need to modify these variables and functions manually:
  *
- *      levelFormat
- *      getMaxData()
- *      getMinData()
+ *      setLevelFormat()
+ *      ChartStyle.levels
+ *      ChartStyle.levelSpacing
  *      ...
  *
+ * The Android side of the chart: forwards data, size and gestures to a {@link ChartEngine}
+ * and draws it through a {@link CanvasRenderer}. All geometry is computed by the engine
+ * when the data or the size changes, onDraw only replays it.
+ *
+ * The chart is drawn in two layers: the static layer (axis, level lines and text,
+ * background and line) is recorded into a {@link Picture} and only re-recorded when
+ * the geometry changes, the crosshair is drawn on top of it in every frame.
  */
 public class LineChart extends View {
 
@@ -38,11 +59,10 @@ public class LineChart extends View {
             leftLabel = "";
         }
 
-        // for data
+        // for data, the left label is formatted by the chart when the point is picked
         public Data(T v, String bottomLabel) {
             value = v;
             this.bottomLabel = bottomLabel;
-            leftLabel = String.format(levelFormat, value);
         }
 
         // for data expansion
@@ -57,74 +77,59 @@ public class LineChart extends View {
         public String leftLabel;
     }
 
-    private static final int FONT_COLOR = 0xFFC8C8C8;
-    private static final int LEVEL_LINE_COLOR = 0xFFD7D7D7;
-    private static final int BOTTOM_LINE_COLOR = 0xFFC9C9C9;
-    private static final int BOTTOM_VERTICAL_LINE_COLOR = 0xFFC9C9C9;
-    private static final int MOVING_LINE_COLOR = 0xFF1777FF;
-    private static final int BROKEN_LINE_COLOR = 0xFF1777FF;
-    private static final int LINEAR_GRADIENT_START_COLOR = 0x2D266CDE;
-    private static final int LINEAR_GRADIENT_STOP_COLOR = 0x00FFFFFF;
-    private static final int POINT_INNER_COLOR = 0xFF1777FF;
-    private static final int POINT_OUTER_COLOR = 0xFFFFFFFF;
-    private static final int BOTTOM_TIP_FRAME_COLOR = 0xFF1777FF;
-    private static final int LEFT_TIP_FRAME_COLOR = 0xFF1777FF;
-
-    private static final int DEFAULT_LEVEL_NUMBER = 5;
-    private static final float DEFAULT_MAX_VALUE = 500f;
-    private static final float DEFAULT_MIN_VALUE = 200f;
-    private static final float DEFAULT_VALUE_GAP = 30f;
-    private static final float DEFAULT_TEXT_SIZE = 12f; // sp
-    private static final float DEFAULT_LEVEL_LINE_WIDTH = 4;
-    private static final float DEFAULT_BOTTOM_LINE_WIDTH = 4;
-    private static final float DEFAULT_BROKEN_LINE_WIDTH = 5;
-    private static final float DEFAULT_BOTTOM_VERTICAL_LINE_WIDTH = 2;
-    private static final float DEFAULT_MOVING_LINE_WIDTH = 3;
-    private static final float DEFAULT_MOVING_POINT_RADIUS_INNER = 16;
-    private static final float DEFAULT_MOVING_POINT_RADIUS_OUTER = DEFAULT_MOVING_POINT_RADIUS_INNER + 3;
-    private static final float DEFAULT_LEFT_TEXT_SPACE = 15;
-    private static final float DEFAULT_TEXT_PADDING = 18;
-    private static final float DEFAULT_DASH_DIP1 = 1;
-    private static final float DEFAULT_DASH_DIP2 = 2;
-    private static final float DEFAULT_DASH_DIP3 = 3;
-    private static final float DEFAULT_DASH_DIP4 = 4;
-
-    private float mSelfWidth;
-    private float mSelfHeight;
-
-    private Paint mPaint;
-    private Paint mBackgroundPaint;
-    private Paint mTipPaint;
-    private List<Data<String>> xAxisBasisData = new LinkedList<>();
-    private List<Data<Float>> mData = new LinkedList<>();
-    private List<PointF> mPoints = new ArrayList<>();
-
-    float leftTextSpace = DEFAULT_LEFT_TEXT_SPACE;
-    float horizontalSpaceLeft = 170f;
-    float horizontalSpaceRight = 50f;
-    float verticalSpaceTop = 75f;
-    float verticalSpaceBottom = 100f;
-    float bottomVerticalLineHeight = 20f;
-    float proportionWidth;
-    float movingPointRadiusOuter = DEFAULT_MOVING_POINT_RADIUS_OUTER;
-    float movingPointRadiusInner = DEFAULT_MOVING_POINT_RADIUS_INNER;
-    float bottomLineWidth = DEFAULT_BOTTOM_LINE_WIDTH;
-    float levelLineWidth = DEFAULT_LEVEL_LINE_WIDTH;
-    float bottomVerticalLineWidth = DEFAULT_BOTTOM_VERTICAL_LINE_WIDTH;
-    float brokenLineWidth = DEFAULT_BROKEN_LINE_WIDTH;
-    float movingLineWidth = DEFAULT_MOVING_LINE_WIDTH;
-    float textSize = DEFAULT_TEXT_SIZE;
-    float levelDashDip = DEFAULT_DASH_DIP2;
-    float movingLineDashDip = DEFAULT_DASH_DIP4;
-    float textPadding = DEFAULT_TEXT_PADDING;
-    Path linePath;
-    Path backgroundPath;
-    boolean isDrawMoveLine;
-    float moveX;
-    float moveY;
-    int moveIndex;
-    int levels = DEFAULT_LEVEL_NUMBER;
-    static String levelFormat = "%.2f";
+    /**
+     * Progress of {@link #load(File, int, LoadCallback)}, called on the UI thread.
+     */
+    public interface LoadCallback {
+        void onProgress(long bytesRead, long totalBytes);
+
+        void onLoaded(Series series);
+
+        void onError(IOException e);
+    }
+
+    // input between two partial redraws while loading
+    private static final long LOAD_PROGRESS_BYTES = 4 << 20;
+
+    private final ChartEngine mEngine;
+    private final ChartPainter mPainter;
+    private final CanvasRenderer mRenderer = new CanvasRenderer();
+    private boolean mZoomEnabled;
+    private ScaleGestureDetector mScaleDetector;
+    private float mLastFocusX;
+    private boolean mInvalidatePending;
+    private final Picture mStaticLayer = new Picture();
+    // engine version the static layer was recorded at
+    private int mStaticLayerVersion = -1;
+    // the running load, null once it finished or other data was set
+    private SeriesLoader mLoader;
+    // the store and id of the bound series, null if the data was set directly
+    private SeriesStore mStore;
+    private String mStoreId;
+    // uptime of the first touch event not drawn yet, 0 if there is none
+    private long mPendingTouchTime;
+    // advances a data transition once per vsync, the frame is drawn by the following onDraw
+    private boolean mTransitionFramePosted;
+    private final Choreographer.FrameCallback mTransitionFrame = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mTransitionFramePosted = false;
+            mEngine.stepTransition(frameTimeNanos);
+            invalidate();
+        }
+    };
+
+    private static final ChartMetrics.Tracer SYSTRACE = new ChartMetrics.Tracer() {
+        @Override
+        public void beginSection(String name) {
+            Trace.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            Trace.endSection();
+        }
+    };
 
     private Context mContext;
 
@@ -140,409 +145,553 @@ public class LineChart extends View {
         super(context, attrs, defStyleAttr);
 
         mContext = context;
-        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mBackgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-
-        mTipPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-
-        linePath = new Path();
-        backgroundPath = new Path();
+        ChartStyle style = new ChartStyle(Utils.dp2px(context, 1), Utils.sp2px(context, 1));
+        mEngine = new ChartEngine(style);
+        mEngine.setCallback(new ChartEngine.Callback() {
+            @Override
+            public void onLayoutReady() {
+                postInvalidateOnAnimation();
+            }
+        });
+        mPainter = new ChartPainter(mEngine);
     }
 
     public void setXAxisBasisData(List<Data<String>> xAxisBasisData) throws Exception {
         if (xAxisBasisData == null || xAxisBasisData.size() < 2) {
             throw new Exception("xAxisBasisData not valid");
         }
-        this.xAxisBasisData = xAxisBasisData;
+        String[] labels = new String[xAxisBasisData.size()];
+        int i = 0;
+        for (Data<String> d : xAxisBasisData) {
+            labels[i++] = d.value;
+        }
+        setXAxisBasisData(labels);
+    }
+
+    public void setXAxisBasisData(String[] labels) throws Exception {
+        mEngine.setXAxisBasisLabels(labels);
         invalidate();
     }
 
     public void setData(List<Data<Float>> data) throws Exception {
-        if (xAxisBasisData == null) {
-            throw new Exception("xAxisBasisData is null");
+        if (data == null) {
+            throw new Exception("data is null");
         }
-        this.mData = data;
-        invalidate();
+        Series series = new Series(data.size());
+        for (Data<Float> d : data) {
+            series.add(d.value, d.bottomLabel, d.leftLabel);
+        }
+        setData(series);
     }
 
-    @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
-        mSelfWidth = w;
-        mSelfHeight = h;
+    /**
+     * @param values       the values to show, the array is used directly and must not be modified afterwards
+     * @param bottomLabels labels shown on the bottom tip, may be null
+     */
+    public void setData(float[] values, String[] bottomLabels) throws Exception {
+        if (values == null) {
+            throw new Exception("data is null");
+        }
+        if (bottomLabels != null && bottomLabels.length < values.length) {
+            throw new Exception("bottomLabels not valid");
+        }
+        setData(new Series(values, bottomLabels));
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-        init();
-        initPoint();
-        drawBottomText(canvas);
-        drawBottomLine(canvas);
-        drawLevelLine(canvas);
-        drawLevelText(canvas);
-        drawBackground(canvas);
-        drawBrokenLine(canvas);
-        drawMovingLine(canvas);
-    }
-
-    private void init() {
-        proportionWidth = (mSelfWidth - horizontalSpaceLeft - horizontalSpaceRight) / (xAxisBasisData.size() - 1);
-    }
-
-    private void initPoint() {
-        float brokenLineHeight = mSelfHeight - verticalSpaceTop - verticalSpaceBottom;
-        float proportionHeight = brokenLineHeight / (getMaxData() - getMinData());
-        float circleCenterX = horizontalSpaceLeft;
-        float circleCenterY;
-        mPoints.clear();
-        for (int i = 0; i < mData.size(); i++) {
-            float currentProportionHeight = (mData.get(i).value - getMinData()) * proportionHeight;
-            circleCenterY = brokenLineHeight - currentProportionHeight + verticalSpaceTop;
-            mPoints.add(new PointF(circleCenterX, circleCenterY));
-            circleCenterX += proportionWidth;
-        }
-    }
-
-    private void drawBottomText(Canvas canvas) {
-        float currentTextX = 0;
-        float currentTextY = 0;
-        currentTextX = horizontalSpaceLeft;
-        currentTextY = mSelfHeight - Utils.sp2px(mContext, textSize);
-        mPaint.reset();
-        mPaint.setTextSize(Utils.sp2px(mContext, textSize));
-        mPaint.setColor(FONT_COLOR);
-
-        for (int i = 0; i < xAxisBasisData.size(); i++) {
-            if (i != 0 && i != xAxisBasisData.size() - 1) {
-                currentTextX += proportionWidth;
-                continue;
-            }
-
-            if (i == 0) {
-                mPaint.setTextAlign(Paint.Align.LEFT);
-                canvas.drawText(xAxisBasisData.get(i).value, currentTextX, currentTextY, mPaint);
-                currentTextX += proportionWidth;
-            } else {
-                mPaint.setTextAlign(Paint.Align.RIGHT);
-                canvas.drawText(xAxisBasisData.get(i).value, currentTextX, currentTextY, mPaint);
-                currentTextX += proportionWidth;
+    /**
+     * Data with real x positions, e.g. timestamps in milliseconds. Points are placed by their
+     * timestamp, gaps stay visible, and labels that are not given show the formatted time.
+     *
+     * @param timestamps   ascending, same length as values
+     * @param bottomLabels labels shown on the bottom tip, may be null
+     */
+    public void setData(long[] timestamps, float[] values, String[] bottomLabels) throws Exception {
+        if (timestamps == null || values == null) {
+            throw new Exception("data is null");
+        }
+        if (timestamps.length != values.length) {
+            throw new Exception("timestamps not valid");
+        }
+        for (int i = 1; i < timestamps.length; i++) {
+            if (timestamps[i] < timestamps[i - 1]) {
+                throw new Exception("timestamps not ascending");
             }
         }
+        if (bottomLabels != null && bottomLabels.length < values.length) {
+            throw new Exception("bottomLabels not valid");
+        }
+        setData(new Series(timestamps, values, bottomLabels));
     }
 
-    private void drawBottomLine(Canvas canvas) {
-        float bottomLineStartX = horizontalSpaceLeft;
-        float bottomLineStopX = mSelfWidth - horizontalSpaceRight;
-        float bottomLineStartY = mSelfHeight - verticalSpaceBottom;
-        float bottomLineStopY = bottomLineStartY;
-
-        mPaint.setColor(BOTTOM_LINE_COLOR);
-        mPaint.setStrokeWidth(bottomLineWidth);
+    /**
+     * Shows a series file written with {@link MappedSeries#write}. The file is memory-mapped,
+     * only the visible window is read, so histories far larger than the heap can be shown.
+     * The data is read only, {@link #append} and {@link #setCapacity} throw an
+     * IllegalStateException until other data is set.
+     */
+    public void setData(File file) throws Exception {
+        if (file == null) {
+            throw new Exception("data is null");
+        }
+        setData(MappedSeries.open(file));
+    }
 
-        canvas.drawLine(bottomLineStartX, bottomLineStartY, bottomLineStopX, bottomLineStopY, mPaint);
+    /**
+     * Adds a series drawn as a plain line on top of the same axis, see
+     * {@link ChartEngine#addSeries(Series, int)}.
+     */
+    public void addSeries(Series series, int color) throws Exception {
+        mEngine.addSeries(series, color);
+        invalidate();
+    }
 
-        float verticalLineStartX = horizontalSpaceLeft;
-        float verticalLineStartY = mSelfHeight - verticalSpaceBottom;
-        float verticalLineStopX = verticalLineStartX;
-        float verticalLineStopY = verticalLineStartY + bottomVerticalLineHeight;
-        for (int i = 0; i < xAxisBasisData.size(); i++) {
-            if (i != 0 && i != xAxisBasisData.size() - 1) {
-                verticalLineStartX = verticalLineStartX + proportionWidth;
-                verticalLineStopX = verticalLineStartX;
-                continue;
-            }
-            mPaint.setStrokeWidth(bottomVerticalLineWidth);
-            mPaint.setColor(BOTTOM_VERTICAL_LINE_COLOR);
-            canvas.drawLine(verticalLineStartX, verticalLineStartY, verticalLineStopX, verticalLineStopY, mPaint);
-            verticalLineStartX = verticalLineStartX + proportionWidth;
-            verticalLineStopX = verticalLineStartX;
+    public void addSeries(float[] values) throws Exception {
+        if (values == null) {
+            throw new Exception("data is null");
         }
+        addSeries(new Series(values, null), mEngine.getStyle().extraLineColor);
+    }
 
+    /**
+     * Removes all series added with {@link #addSeries(Series, int)}.
+     */
+    public void clearSeries() {
+        mEngine.clearSeries();
+        invalidate();
     }
 
-    private void drawLevelLine(Canvas canvas) {
-        if (levels <= 0)
-            return;
+    /**
+     * Pattern of the level labels and the left tip. By default the tip is "%.2f" and the
+     * levels have as many decimals as the step between them needs. "%.Nf" patterns are
+     * formatted without {@link java.util.Formatter}, see {@link DecimalLabelFormatter}.
+     */
+    public void setLevelFormat(String pattern) {
+        setLabelFormatter(DecimalLabelFormatter.forPattern(pattern));
+    }
 
-        float brokenLineHeight = mSelfHeight - verticalSpaceTop - verticalSpaceBottom;
-        float proportionHeight = brokenLineHeight / (getMaxData() - getMinData());
-        float oneLevelValueHeight = (getMaxData() - getMinData()) / levels * proportionHeight;
+    public void setLabelFormatter(LabelFormatter formatter) {
+        mEngine.setLabelFormatter(formatter);
+        invalidate();
+    }
 
-        for (int i = 0; i <= levels; ++i) {
-            if (i == 0)
-                continue;
+    /**
+     * Animates the lines for millis after {@link #setData} or after series were added or
+     * removed, 0 (the default) shows new data right away. Appends, zooming and panning
+     * don't animate and finish a running animation.
+     */
+    public void setAnimationDuration(long millis) {
+        mEngine.setTransitionDuration(millis);
+    }
 
-            float lineStartX = horizontalSpaceLeft;
-            float lineStopX = mSelfWidth - horizontalSpaceRight;
-            float lineStartY = mSelfHeight - verticalSpaceBottom - i * oneLevelValueHeight;
-            float lineStopY = lineStartY;
+    /**
+     * Draws the line and its background as a smooth curve, {@link Smoothing#MONOTONE} keeps
+     * it within the values, {@link Smoothing#NONE} goes back to straight segments.
+     */
+    public void setSmoothing(int smoothing) {
+        mEngine.setSmoothing(smoothing);
+        invalidate();
+    }
 
-            mPaint.setStyle(Paint.Style.STROKE);
-            mPaint.setColor(LEVEL_LINE_COLOR);
-            mPaint.setStrokeWidth(levelLineWidth);
-            float dash = Utils.dp2px(mContext, levelDashDip);
-            mPaint.setPathEffect(new DashPathEffect(new float[]{dash, dash, dash, dash}, 0));
+    /**
+     * Draws the moving average over window points with an envelope of deviations standard
+     * deviations, see {@link ChartEngine#setRollingStats(int, float)}. 0 removes it.
+     */
+    public void setRollingStats(int window, float deviations) {
+        mEngine.setRollingStats(window, deviations);
+        invalidate();
+    }
 
-            linePath.reset();
-            linePath.moveTo(lineStartX, lineStartY);
-            linePath.lineTo(lineStopX, lineStopY);
+    /**
+     * Fills a band of values, e.g. beyond an SLO limit, and marks the points inside it.
+     */
+    public void addThreshold(float low, float high, int color) {
+        mEngine.addThreshold(new ThresholdBand(low, high, color));
+        invalidate();
+    }
 
-            canvas.drawPath(linePath, mPaint);
-        }
+    public void clearThresholds() {
+        mEngine.clearThresholds();
+        invalidate();
     }
 
-    private void drawLevelText(Canvas canvas) {
-        if (levels < 0)
-            return;
+    /**
+     * Draws straight lines as batched Canvas.drawLines calls and their background as a
+     * triangle strip instead of a path, which is cheaper for lines of many thousand points.
+     * Before Android 10 the hardware pipeline doesn't draw vertices, there the background
+     * stays a path.
+     */
+    public void setVertexRendering(boolean vertexRendering) {
+        mRenderer.setVertexMode(vertexRendering, Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q);
+        // the mode isn't part of the engine version, record again
+        mStaticLayerVersion = -1;
+        invalidate();
+    }
 
-        float brokenLineHeight = mSelfHeight - verticalSpaceTop - verticalSpaceBottom;
-        float proportionHeight = brokenLineHeight / (getMaxData() - getMinData());
-        float oneLevelValueHeight = (getMaxData() - getMinData()) / levels * proportionHeight;
+    /**
+     * Enables timings of the layout, the drawing and the touch-to-frame latency, see
+     * {@link ChartMetrics}, null disables them. Without a tracer of its own the phases show
+     * up as android.os.Trace sections in systrace.
+     */
+    public void setMetrics(ChartMetrics metrics) {
+        if (metrics != null && metrics.getTracer() == null) {
+            metrics.setTracer(SYSTRACE);
+        }
+        mEngine.setMetrics(metrics);
+        mPendingTouchTime = 0;
+    }
 
-        Rect rect = new Rect();
-        String text = String.format(levelFormat, getMaxData());
-        mPaint.reset();
-        mPaint.getTextBounds(text, 0, text.length(), rect);
-        float fontWidth = rect.width();
-        float fontHeight = rect.height();
+    public ChartMetrics getMetrics() {
+        return mEngine.getMetrics();
+    }
 
-        mPaint.setColor(FONT_COLOR);
-        mPaint.setTextAlign(Paint.Align.RIGHT);
-        mPaint.setTextSize(Utils.dp2px(mContext, textSize));
+    /**
+     * Pattern used for the x axis and the bottom tip of timestamped data. Until it is set
+     * the x axis labels follow the step between its ticks, like "HH:mm" or "MM/dd".
+     */
+    public void setTimeFormat(String pattern) {
+        mEngine.setTimeFormat(pattern);
+        invalidate();
+    }
 
-        for (int i = 0; i <= levels; ++i) {
-            float textStartX = horizontalSpaceLeft - leftTextSpace;
-            float textStartY = mSelfHeight - verticalSpaceBottom - i * oneLevelValueHeight + fontHeight;
-            String text2 = String.format(levelFormat, getMinData() + (getMaxData() - getMinData()) / levels * i);
-            canvas.drawText(text2, textStartX, textStartY, mPaint);
-        }
+    public void setData(Series series) throws Exception {
+        cancelLoad();
+        unbind();
+        mEngine.setSeries(series);
+        invalidate();
     }
 
-    private void drawBrokenLine(Canvas canvas) {
-        linePath.reset();
-        for (int i = 0; i < mPoints.size(); i++) {
-            if (i == 0) {
-                linePath.moveTo(mPoints.get(i).x, mPoints.get(i).y);
-            } else {
-                linePath.lineTo(mPoints.get(i).x, mPoints.get(i).y);
-            }
+    /**
+     * Shows the series id of store, which stays acquired until {@link #unbind()} or other
+     * data is set. The layout is shared through the geometry cache of the store: binding a
+     * recycled chart to a series that was shown at the same size and settings before, e.g.
+     * in a RecyclerView, takes the projected points from the cache instead of computing them.
+     */
+    public void bind(SeriesStore store, String id) throws Exception {
+        Series series = store.acquire(id);
+        if (series == null) {
+            throw new Exception("series " + id + " not valid");
         }
-        mPaint.setAntiAlias(true);
-        mPaint.setStyle(Paint.Style.STROKE);
-        mPaint.setStrokeWidth(brokenLineWidth);
-        mPaint.setColor(BROKEN_LINE_COLOR);
-        canvas.drawPath(linePath, mPaint);
+        // acquired first, rebinding to the same id must not let it drop out of the store
+        cancelLoad();
+        unbind();
+        mStore = store;
+        mStoreId = id;
+        mEngine.setGeometryCache(store.getGeometryCache(), id);
+        mEngine.setSeries(series);
+        invalidate();
     }
 
-    private void drawBackground(Canvas canvas) {
-        if (mPoints.isEmpty() || mPoints.size() == 1) {
+    /**
+     * Releases the series of {@link #bind}, e.g. from RecyclerView.Adapter.onViewRecycled.
+     * The chart keeps showing it until other data is set.
+     */
+    public void unbind() {
+        if (mStore == null) {
             return;
         }
+        mEngine.setGeometryCache(null, null);
+        mStore.release(mStoreId);
+        mStore = null;
+        mStoreId = null;
+    }
 
-        float brokenLineHeight = mSelfHeight - verticalSpaceTop - verticalSpaceBottom;
-        float proportionHeight = brokenLineHeight / (getMaxData() - getMinData());
-
-        backgroundPath.reset();
-        float bottomHeight = verticalSpaceBottom;
-        backgroundPath.moveTo(horizontalSpaceLeft, mSelfHeight - bottomHeight);
-        for (int i = 0; i < mPoints.size(); i++) {
-            backgroundPath.lineTo(mPoints.get(i).x, mPoints.get(i).y);
-        }
-        float bgPathEndX = mPoints.get(mPoints.size() - 1).x;
-        backgroundPath.lineTo(bgPathEndX, mSelfHeight - bottomHeight);
-        backgroundPath.close();
-        mBackgroundPaint.setStyle(Paint.Style.FILL);
-
-        float shaderStartX = horizontalSpaceLeft + proportionWidth / 2;
-        float shaderStartY = mSelfHeight - bottomHeight - (getMaxData() - getMinData()) * proportionHeight;
-
-        float shaderStopX = shaderStartX;
-        float shaderStopY = mSelfHeight - bottomHeight;
-
-        Shader shader = new LinearGradient(shaderStartX, shaderStartY, shaderStopX, shaderStopY, LINEAR_GRADIENT_START_COLOR, LINEAR_GRADIENT_STOP_COLOR, Shader.TileMode.CLAMP);
-
-        mBackgroundPaint.setShader(shader);
-        canvas.drawPath(backgroundPath, mBackgroundPaint);
-    }
-
-    private void drawMovingLine(Canvas canvas) {
-        if (isDrawMoveLine) {
-            if (moveIndex == -1 || moveIndex >= mData.size())
-                return;
-
-            mPaint.setStyle(Paint.Style.STROKE);
-            mPaint.setStrokeWidth(movingLineWidth);
-            float dash = Utils.dp2px(mContext, movingLineDashDip);
-            mPaint.setColor(MOVING_LINE_COLOR);
-            mPaint.setPathEffect(new DashPathEffect(new float[]{dash, dash, dash, dash}, 0));
-
-            float lineStartX = horizontalSpaceLeft;
-            float lineStopX = mSelfWidth - horizontalSpaceRight;
-            linePath.reset();
-            linePath.moveTo(lineStartX, moveY);
-            linePath.lineTo(lineStopX, moveY);
-            canvas.drawPath(linePath, mPaint);
-
-            float lineStartY = verticalSpaceTop;
-            float lineStopY = mSelfHeight - verticalSpaceBottom;
-            linePath.reset();
-            linePath.moveTo(moveX, lineStartY);
-            linePath.lineTo(moveX, lineStopY);
-            canvas.drawPath(linePath, mPaint);
-
-            mPaint.reset();
-
-            mPaint.setColor(POINT_OUTER_COLOR);
-            mPaint.setStyle(Paint.Style.FILL);
-            canvas.drawCircle(moveX, moveY, movingPointRadiusOuter, mPaint);
-
-            mPaint.setColor(POINT_INNER_COLOR);
-            mPaint.setStyle(Paint.Style.FILL);
-            canvas.drawCircle(moveX, moveY, movingPointRadiusInner, mPaint);
-
-            {
-                // bottom
-                Rect rect = new Rect();
-                mTipPaint.reset();
-                mTipPaint.setTextSize(Utils.sp2px(mContext, textSize));
-                mTipPaint.setStyle(Paint.Style.FILL);
-                mTipPaint.setColor(BOTTOM_TIP_FRAME_COLOR);
-                mTipPaint.getTextBounds(xAxisBasisData.get(0).value, 0, xAxisBasisData.get(0).value.length(), rect);
-                float fontWidth = rect.width();
-                float fontHeight = rect.height();
-
-                float left = moveX - fontWidth / 2 - textPadding;
-                float right = moveX + fontWidth / 2 + textPadding;
-                float top = mSelfHeight - verticalSpaceBottom + bottomVerticalLineHeight / 2;
-                float bottom = top + textPadding * 2 + fontHeight;
-
-                RectF rectF = new RectF(left, top, right, bottom);
-                canvas.drawRoundRect(rectF, 7, 7, mTipPaint);
-
-                mTipPaint.setStrokeWidth(8);
-                mTipPaint.setTextAlign(Paint.Align.CENTER);
-                mTipPaint.setColor(Color.WHITE);
-                String text = mData.get(moveIndex).bottomLabel;
-                Paint.FontMetrics fontMetrics = mTipPaint.getFontMetrics();
-                float distance = (fontMetrics.bottom - fontMetrics.top) / 2 - fontMetrics.bottom;
-                float baseline = rectF.centerY() + distance;
-                canvas.drawText(text, rectF.centerX(), baseline, mTipPaint);
+    /**
+     * Loads a CSV or binary export on a background thread, see {@link SeriesLoader} for the
+     * formats. The points loaded so far are shown every few MB without a transition, the
+     * complete series animates like {@link #setData(Series)}. Setting other data cancels
+     * the load. The points shown while loading are read only, {@link #append} and
+     * {@link #setCapacity} throw an IllegalStateException until the complete series is shown.
+     *
+     * @param format   {@link SeriesLoader#FORMAT_CSV} or {@link SeriesLoader#FORMAT_BINARY}
+     * @param callback may be null
+     */
+    public void load(final File file, int format, final LoadCallback callback) throws Exception {
+        if (file == null) {
+            throw new Exception("data is null");
+        }
+        cancelLoad();
+        unbind();
+        final SeriesLoader loader = new SeriesLoader(format);
+        mLoader = loader;
+        loader.setListener(new SeriesLoader.Listener() {
+            @Override
+            public void onProgress(final Series loaded, final long bytesRead, final long totalBytes) {
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mLoader != loader) {
+                            return;
+                        }
+                        try {
+                            // only the complete series animates, see below
+                            mEngine.setSeries(loaded, false);
+                        } catch (Exception e) {
+                            // only thrown for null
+                        }
+                        invalidate();
+                        if (callback != null) {
+                            callback.onProgress(bytesRead, totalBytes);
+                        }
+                    }
+                });
             }
-
-            {
-                // left
-                Rect rect = new Rect();
-                mTipPaint.reset();
-                mTipPaint.setTextSize(Utils.sp2px(mContext, textSize));
-                mTipPaint.setStyle(Paint.Style.FILL);
-                mTipPaint.setColor(LEFT_TIP_FRAME_COLOR);
-                mTipPaint.getTextBounds(String.valueOf(getMaxData()), 0, String.valueOf(getMaxData()).length(), rect);
-                float fontWidth = rect.width();
-                float fontHeight = rect.height();
-
-                float left = horizontalSpaceLeft - leftTextSpace - fontWidth - textPadding * 4;
-                float right = horizontalSpaceLeft - leftTextSpace;
-                float top = moveY - fontHeight / 2 - textPadding;
-                float bottom = moveY + fontHeight / 2 + textPadding;
-
-                RectF rectF = new RectF(left, top, right, bottom);
-                canvas.drawRoundRect(rectF, 7, 7, mTipPaint);
-
-                mTipPaint.setStrokeWidth(8);
-                mTipPaint.setTextAlign(Paint.Align.CENTER);
-                mTipPaint.setColor(Color.WHITE);
-                String text = mData.get(moveIndex).leftLabel;
-                Paint.FontMetrics fontMetrics = mTipPaint.getFontMetrics();
-                float distance = (fontMetrics.bottom - fontMetrics.top) / 2 - fontMetrics.bottom;
-                float baseline = rectF.centerY() + distance;
-                canvas.drawText(text, rectF.centerX(), baseline, mTipPaint);
+        }, LOAD_PROGRESS_BYTES);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Series series = null;
+                IOException error = null;
+                try {
+                    series = loader.load(file);
+                } catch (IOException e) {
+                    error = e;
+                }
+                final Series result = series;
+                final IOException failure = error;
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mLoader != loader) {
+                            return;
+                        }
+                        mLoader = null;
+                        if (result != null) {
+                            try {
+                                mEngine.setSeries(result);
+                            } catch (Exception e) {
+                                // only thrown for null
+                            }
+                            invalidate();
+                        }
+                        if (callback == null) {
+                            return;
+                        }
+                        if (failure != null) {
+                            callback.onError(failure);
+                        } else {
+                            callback.onLoaded(result);
+                        }
+                    }
+                });
             }
+        }, "chart-loader").start();
+    }
+
+    private void cancelLoad() {
+        if (mLoader != null) {
+            mLoader.cancel();
+            mLoader = null;
         }
     }
 
-    @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        float x = event.getX();
-        float y = event.getY();
+    /**
+     * Bounds the data to the last capacity values, appending to a full chart drops the oldest value.
+     * 0 removes the bound. Throws an IllegalStateException for read only data, see
+     * {@link #setData(File)} and {@link #load}.
+     */
+    public void setCapacity(int capacity) {
+        mEngine.setCapacity(capacity);
+        invalidate();
+    }
 
-        switch (event.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                isDrawMoveLine = true;
-                break;
-            case MotionEvent.ACTION_MOVE:
-                break;
-            case MotionEvent.ACTION_UP:
-            case MotionEvent.ACTION_CANCEL:
-                isDrawMoveLine = false;
-                moveIndex = -1;
-                break;
+    /**
+     * Appends one value, must be called on the UI thread.
+     *
+     * The value range and the points are updated incrementally and any number of appends
+     * within one frame result in a single redraw, see {@link ChartEngine#append(float, String)}.
+     * Throws an IllegalStateException for read only data, see {@link #setData(File)} and
+     * {@link #load}, and for data with timestamps, see {@link #append(long, float, String)}.
+     */
+    public void append(float value, String bottomLabel) {
+        mEngine.append(value, bottomLabel);
+        scheduleInvalidate();
+    }
+
+    /**
+     * Appends one point to data with timestamps, must be called on the UI thread. The
+     * timestamp must not be before the one of the last point.
+     */
+    public void append(long timestamp, float value, String bottomLabel) {
+        mEngine.append(timestamp, value, bottomLabel);
+        scheduleInvalidate();
+    }
+
+    /**
+     * Enables pinch-zoom and two finger panning, a single finger still moves the crosshair.
+     */
+    public void setZoomEnabled(boolean zoomEnabled) {
+        this.mZoomEnabled = zoomEnabled;
+        if (zoomEnabled && mScaleDetector == null) {
+            mScaleDetector = new ScaleGestureDetector(mContext, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                @Override
+                public boolean onScaleBegin(ScaleGestureDetector detector) {
+                    mLastFocusX = detector.getFocusX();
+                    return true;
+                }
+
+                @Override
+                public boolean onScale(ScaleGestureDetector detector) {
+                    float focusX = detector.getFocusX();
+                    mEngine.zoom(detector.getScaleFactor(), focusX);
+                    mEngine.pan(focusX - mLastFocusX);
+                    mLastFocusX = focusX;
+                    mEngine.computeLayout();
+                    invalidate();
+                    return true;
+                }
+            });
         }
-        countRoundPoint(x);
+    }
+
+    /**
+     * Shows the x range [start, start + size] across the plot, see
+     * {@link ChartEngine#setViewport(double, double)}.
+     */
+    public void setViewport(double start, double size) {
+        mEngine.setViewport(start, size);
         invalidate();
-        return true;
     }
 
-    private float getMaxData() {
-        if (getMinData_() == getMaxData_()) {
-            return getMinData_() + DEFAULT_VALUE_GAP;
-        }
-        return getMaxData_();
+    public double getViewportStart() {
+        return mEngine.getViewportStart();
     }
 
-    private float getMinData() {
-        if (getMinData_() == getMaxData_()) {
-            return getMinData_() - DEFAULT_VALUE_GAP;
-        }
-        return getMinData_();
+    public double getViewportSize() {
+        return mEngine.getViewportSize();
     }
 
-    // for 1.x 2.x 3.x 4.x, set max to 4+1
-    private float getMaxData_() {
-        float max = Integer.MIN_VALUE;
-        for (int i = 0; i < mData.size(); i++) {
-            max = Math.max(max, mData.get(i).value);
+    /**
+     * Moves the layout pass to a worker thread, onDraw keeps drawing the previous
+     * geometry until it is ready, see {@link ChartEngine#setAsyncLayout(boolean)}.
+     */
+    public void setAsyncLayout(boolean asyncLayout) {
+        mEngine.setAsyncLayout(asyncLayout);
+        invalidate();
+    }
+
+    /**
+     * Sets the downsampling stage used between the projected points and the drawn line,
+     * e.g. {@link M4Downsampler} or {@link LttbDownsampler}. null draws every point.
+     */
+    public void setDownsampler(Downsampler downsampler) {
+        mEngine.setDownsampler(downsampler);
+        invalidate();
+    }
+
+    /**
+     * @return the minimum of the values [from, to], both inclusive, in O(log n)
+     */
+    public float getMin(int from, int to) {
+        return mEngine.getMin(from, to);
+    }
+
+    /**
+     * @return the maximum of the values [from, to], both inclusive, in O(log n)
+     */
+    public float getMax(int from, int to) {
+        return mEngine.getMax(from, to);
+    }
+
+    /**
+     * @return the average of the values [from, to], both inclusive, in O(log n)
+     */
+    public float getAverage(int from, int to) {
+        return mEngine.getAverage(from, to);
+    }
+
+    private void scheduleInvalidate() {
+        if (mInvalidatePending) {
+            return;
         }
-        if (max == Integer.MIN_VALUE) {
-            return DEFAULT_MAX_VALUE;
+        mInvalidatePending = true;
+        postInvalidateOnAnimation();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mEngine.setSize(w, h);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        cancelLoad();
+        if (mTransitionFramePosted) {
+            mTransitionFramePosted = false;
+            Choreographer.getInstance().removeFrameCallback(mTransitionFrame);
         }
-        return (float) Math.ceil(max);
     }
 
-    // for 1.x 2.x 3.x 4.x, set min to 1
-    private float getMinData_() {
-        float min = Integer.MAX_VALUE;
-        for (int i = 0; i < mData.size(); i++) {
-            min = Math.min(min, mData.get(i).value);
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        ChartMetrics metrics = mEngine.getMetrics();
+        long start = metrics != null ? metrics.begin(ChartMetrics.PHASE_FRAME) : 0;
+        mInvalidatePending = false;
+        mEngine.swapPending();
+        if (mEngine.isAnimating() && !mTransitionFramePosted) {
+            mTransitionFramePosted = true;
+            Choreographer.getInstance().postFrameCallback(mTransitionFrame);
         }
-        if (min == Integer.MAX_VALUE) {
-            return DEFAULT_MIN_VALUE;
+        if (mStaticLayerVersion != mEngine.getVersion()) {
+            recordStaticLayer();
+        }
+        canvas.drawPicture(mStaticLayer);
+        mRenderer.setCanvas(canvas);
+        mPainter.paintCrosshair(mRenderer);
+        mRenderer.setCanvas(null);
+        if (metrics != null) {
+            metrics.record(ChartMetrics.PHASE_FRAME, metrics.end(start));
+            if (mPendingTouchTime != 0) {
+                long latency = SystemClock.uptimeMillis() - mPendingTouchTime;
+                metrics.record(ChartMetrics.PHASE_TOUCH, TimeUnit.MILLISECONDS.toNanos(latency));
+                mPendingTouchTime = 0;
+            }
+            metrics.frame(mEngine.getDrawnPointCount(), mEngine.getDataPointCount());
         }
-        return (float) Math.floor(min);
     }
 
-    private void countRoundPoint(float x) {
-        int location = Math.round((x - horizontalSpaceLeft) / proportionWidth);
-        if (location < 0)
-            location = 0;
-        if (mData.isEmpty()) {
-            moveIndex = -1;
-            return;
-        }
-        if (mPoints.isEmpty()) {
-            moveIndex = -1;
-            return;
+    /**
+     * Records everything but the crosshair, a touch driven redraw only replays the picture.
+     */
+    private void recordStaticLayer() {
+        Canvas canvas = mStaticLayer.beginRecording(Math.max(getWidth(), 1), Math.max(getHeight(), 1));
+        mRenderer.setCanvas(canvas);
+        mPainter.paintStatic(mRenderer);
+        mRenderer.setCanvas(null);
+        mStaticLayer.endRecording();
+        mStaticLayerVersion = mEngine.getVersion();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        float x = event.getX();
+        float y = event.getY();
+        if (mPendingTouchTime == 0 && mEngine.getMetrics() != null) {
+            mPendingTouchTime = event.getEventTime();
         }
-        if (location >= mData.size())
-            location = mData.size() - 1;
 
-        if (location >= mPoints.size()) {
-            moveIndex = -1;
-            return;
+        if (mZoomEnabled) {
+            mScaleDetector.onTouchEvent(event);
+            if (event.getPointerCount() > 1 || mScaleDetector.isInProgress()) {
+                mEngine.hideCrosshair();
+                invalidate();
+                return true;
+            }
         }
-        moveIndex = location;
 
-        moveX = mPoints.get(location).x;
-        moveY = mPoints.get(location).y;
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_MOVE:
+                mEngine.touch(x, y);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mEngine.hideCrosshair();
+                break;
+        }
+        invalidate();
+        return true;
     }
 }
@@ -0,0 +1,150 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.ChartEngine;
+import com.sz.brokenlinechart.core.ChartStyle;
+import com.sz.brokenlinechart.core.M4Downsampler;
+import com.sz.brokenlinechart.core.Series;
+import com.sz.brokenlinechart.render.ChartBatch;
+import com.sz.brokenlinechart.render.HeadlessChart;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Server side chart rendering: one chart to PNG and SVG, and a batch of charts on a
+ * thread pool. Output goes to a sink that only counts bytes, so encoding is measured
+ * but not disk I/O.
+ */
+@State(Scope.Benchmark)
+public class HeadlessRenderBenchmark {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 800;
+    private static final int BATCH_SIZE = 256;
+
+    @Param({"100", "10000", "1000000"})
+    int size;
+
+    private Series series;
+    private ChartEngine engine;
+    private final HeadlessChart chart = new HeadlessChart();
+    private ChartBatch batch;
+    private final List<ChartBatch.Job> jobs = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        series = Samples.randomWalk(size);
+        engine = newEngine();
+        setup(engine);
+        batch = new ChartBatch(Runtime.getRuntime().availableProcessors(), WIDTH, HEIGHT, ChartBatch.FORMAT_PNG, 2.75f);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            jobs.add(new ChartBatch.Job() {
+                @Override
+                public void setup(ChartEngine engine) throws Exception {
+                    HeadlessRenderBenchmark.this.setup(engine);
+                }
+
+                @Override
+                public OutputStream open() {
+                    return new CountingStream();
+                }
+            });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        batch.close();
+    }
+
+    private static ChartEngine newEngine() {
+        ChartEngine engine = new ChartEngine(new ChartStyle(2.75f, 2.75f));
+        engine.setSize(WIDTH, HEIGHT);
+        return engine;
+    }
+
+    private void setup(ChartEngine engine) throws Exception {
+        engine.setXAxisBasisLabels(new String[]{"start", "stop"});
+        engine.setDownsampler(new M4Downsampler());
+        // the series is only read, all engines may share it
+        engine.setSeries(series);
+        engine.setViewport(0, Math.max(size - 1, 2));
+    }
+
+    @Benchmark
+    public Object render() {
+        return chart.render(engine, WIDTH, HEIGHT);
+    }
+
+    @Benchmark
+    public long png() throws IOException {
+        CountingStream out = new CountingStream();
+        chart.writePng(engine, WIDTH, HEIGHT, out);
+        return out.count;
+    }
+
+    @Benchmark
+    public long svg() throws IOException {
+        CountingWriter out = new CountingWriter();
+        chart.writeSvg(engine, WIDTH, HEIGHT, out);
+        return out.count;
+    }
+
+    /**
+     * Includes the layout of every chart, reported per chart.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void batchPng() throws Exception {
+        batch.renderAll(jobs);
+    }
+
+    static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    static final class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            count += csq.length();
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.HitTest;
+import com.sz.brokenlinechart.core.Series;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Picking the point under a touch, a linear nearest search against the binary search
+ * the chart uses.
+ */
+@State(Scope.Benchmark)
+public class HitTestBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    int size;
+
+    private Series series;
+    // touch positions in x units, cycled so the branch predictor can't learn one target
+    private final double[] targets = new double[64];
+    private int next;
+
+    @Setup
+    public void setup() {
+        series = Samples.randomWalk(size);
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = (size - 1) * (i * 0.618 % 1);
+        }
+    }
+
+    private double nextTarget() {
+        next = (next + 1) & (targets.length - 1);
+        return targets[next];
+    }
+
+    @Benchmark
+    public int linear() {
+        double target = nextTarget();
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < series.size(); i++) {
+            double distance = Math.abs(series.getX(i) - target);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public int binarySearch() {
+        return HitTest.pick(series, nextTarget(), 0, size - 1);
+    }
+}
@@ -0,0 +1,96 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.DecimalLabelFormatter;
+import com.sz.brokenlinechart.core.LabelCache;
+import com.sz.brokenlinechart.core.LabelFormatter;
+import com.sz.brokenlinechart.core.Series;
+import com.sz.brokenlinechart.core.TickEngine;
+import com.sz.brokenlinechart.core.Ticks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Label formatting: the level labels of every layout pass and the tip label of a
+ * picked point, both through a cache in front of the formatter.
+ *
+ * The "format" variants are what the chart did before, String.format for every label,
+ * against the decimal formatter and the level cache in front of it. The levels are picked
+ * by a {@link TickEngine} for ranges that change on every call, as while panning, so its
+ * tick sets are not reused and every level label goes through the formatter.
+ */
+@State(Scope.Benchmark)
+public class LabelFormatBenchmark {
+
+    private static final String FORMAT = "%.2f";
+    private static final int LEVELS = 4;
+    private static final int FRAMES = 1024;
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    int size;
+
+    private Series series;
+    private final TickEngine engine = new TickEngine();
+    private final float[] mins = new float[FRAMES];
+    private final float[] maxs = new float[FRAMES];
+    private int frame;
+    private int next;
+    private final LabelFormatter pattern = new LabelFormatter() {
+        @Override
+        public String format(float value) {
+            return String.format(FORMAT, value);
+        }
+    };
+    private final LabelFormatter decimal = new DecimalLabelFormatter(2);
+    private final LabelFormatter cached = new LabelCache(decimal, LabelCache.DEFAULT_SIZE);
+
+    @Setup
+    public void setup() {
+        series = Samples.randomWalk(size);
+        for (int i = 0; i < FRAMES; i++) {
+            mins[i] = 90 + i * 0.01f;
+            maxs[i] = 110 + i * 0.01f;
+        }
+    }
+
+    @Benchmark
+    public Ticks levelsFormat() {
+        return levels(pattern);
+    }
+
+    @Benchmark
+    public Ticks levelsDecimal() {
+        return levels(decimal);
+    }
+
+    @Benchmark
+    public Ticks levelsCached() {
+        return levels(cached);
+    }
+
+    private Ticks levels(LabelFormatter formatter) {
+        frame = (frame + 1) & (FRAMES - 1);
+        return engine.values(mins[frame], maxs[frame], Samples.PLOT_HEIGHT, 32, LEVELS, formatter);
+    }
+
+    @Benchmark
+    public String formatValue() {
+        next = next + 1 < size ? next + 1 : 0;
+        return String.format(FORMAT, series.getValue(next));
+    }
+
+    @Benchmark
+    public String decimalValue() {
+        next = next + 1 < size ? next + 1 : 0;
+        return decimal.format(series.getValue(next));
+    }
+
+    @Benchmark
+    public String cachedLabel() {
+        next = next + 1 < size ? next + 1 : 0;
+        return series.getLeftLabel(next, cached);
+    }
+}
@@ -0,0 +1,126 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.LttbDownsampler;
+import com.sz.brokenlinechart.core.M4Downsampler;
+import com.sz.brokenlinechart.core.PathSink;
+import com.sz.brokenlinechart.core.Polylines;
+import com.sz.brokenlinechart.core.Projection;
+import com.sz.brokenlinechart.core.Series;
+import com.sz.brokenlinechart.core.Smoothing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Building the line outline from projected points, directly and after downsampling to
+ * the plot width, and the smooth curve through the downsampled points with its control
+ * points computed (once per layout in the chart) or reused (every other frame).
+ */
+@State(Scope.Benchmark)
+public class PathBuildBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    int size;
+
+    private float[] pointsX;
+    private float[] pointsY;
+    private float[] drawX;
+    private float[] drawY;
+    private float[] controls;
+    private int drawCount;
+    private final M4Downsampler m4 = new M4Downsampler();
+    private final LttbDownsampler lttb = new LttbDownsampler();
+    private final CountingSink sink = new CountingSink();
+
+    @Setup
+    public void setup() {
+        Series series = Samples.randomWalk(size);
+        Projection projection = new Projection();
+        projection.setX(0, 0, Samples.PLOT_WIDTH / (float) size);
+        projection.setY(0, Samples.PLOT_HEIGHT, 0, Samples.PLOT_HEIGHT / 200);
+        pointsX = new float[size];
+        pointsY = new float[size];
+        projection.project(series, 0, size, pointsX, pointsY);
+        int capacity = Math.max(m4.capacity(size, Samples.PLOT_WIDTH), lttb.capacity(size, Samples.PLOT_WIDTH));
+        drawX = new float[capacity];
+        drawY = new float[capacity];
+        controls = new float[Smoothing.capacity(capacity)];
+        drawCount = m4.downsample(pointsX, pointsY, size, Samples.PLOT_WIDTH, drawX, drawY);
+        Smoothing.controls(Smoothing.MONOTONE, drawX, drawY, drawCount, 0, controls);
+    }
+
+    @Benchmark
+    public int line() {
+        Polylines.line(sink, pointsX, pointsY, 0, size);
+        return sink.segments;
+    }
+
+    @Benchmark
+    public int area() {
+        Polylines.area(sink, pointsX, pointsY, 0, size, 0, Samples.PLOT_HEIGHT);
+        return sink.segments;
+    }
+
+    @Benchmark
+    public int m4Line() {
+        int count = m4.downsample(pointsX, pointsY, size, Samples.PLOT_WIDTH, drawX, drawY);
+        Polylines.line(sink, drawX, drawY, 0, count);
+        return sink.segments;
+    }
+
+    @Benchmark
+    public int lttbLine() {
+        int count = lttb.downsample(pointsX, pointsY, size, Samples.PLOT_WIDTH, drawX, drawY);
+        Polylines.line(sink, drawX, drawY, 0, count);
+        return sink.segments;
+    }
+
+    @Benchmark
+    public float[] monotoneControls() {
+        Smoothing.controls(Smoothing.MONOTONE, drawX, drawY, drawCount, 0, controls);
+        return controls;
+    }
+
+    @Benchmark
+    public int m4Curve() {
+        Polylines.curve(sink, drawX, drawY, controls, drawCount);
+        return sink.segments;
+    }
+
+    /**
+     * Stands in for android.graphics.Path, keeps the coordinates alive without storing them.
+     */
+    static final class CountingSink implements PathSink {
+        int segments;
+        float checksum;
+
+        @Override
+        public void reset() {
+            segments = 0;
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            checksum += x + y;
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            segments++;
+            checksum += x + y;
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            segments++;
+            checksum += x1 + y2 + x3 + y3;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.Projection;
+import com.sz.brokenlinechart.core.Series;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Point projection of the whole series, what the chart does in initPoint.
+ */
+@State(Scope.Benchmark)
+public class ProjectionBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    int size;
+
+    private Series series;
+    private final Projection projection = new Projection();
+    private float[] pointsX;
+    private float[] pointsY;
+
+    @Setup
+    public void setup() {
+        series = Samples.randomWalk(size);
+        projection.setX(0, 0, Samples.PLOT_WIDTH / (float) size);
+        projection.setY(0, Samples.PLOT_HEIGHT, 0, Samples.PLOT_HEIGHT / 200);
+        pointsX = new float[size];
+        pointsY = new float[size];
+    }
+
+    @Benchmark
+    public float[] project() {
+        projection.project(series, 0, size, pointsX, pointsY);
+        return pointsY;
+    }
+}
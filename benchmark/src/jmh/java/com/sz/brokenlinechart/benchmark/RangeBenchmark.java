@@ -0,0 +1,88 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.RangeIndex;
+import com.sz.brokenlinechart.core.RollingStats;
+import com.sz.brokenlinechart.core.Series;
+import com.sz.brokenlinechart.core.ThresholdBand;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Min/max of a visible range, a linear scan against the {@link RangeIndex} query.
+ * The range covers the middle half of the series. Building the index alone, and together
+ * with the moving average and the threshold bands in one pass or in two.
+ */
+@State(Scope.Benchmark)
+public class RangeBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    int size;
+
+    private static final int WINDOW = 50;
+    private static final ThresholdBand[] BANDS = {
+            new ThresholdBand(110, Float.POSITIVE_INFINITY, 0x40FF0000),
+            new ThresholdBand(Float.NEGATIVE_INFINITY, 90, 0x400000FF)
+    };
+
+    private Series series;
+    private RangeIndex index;
+    private int from;
+    private int to;
+
+    @Setup
+    public void setup() {
+        series = Samples.randomWalk(size);
+        index = new RangeIndex(series.capacity());
+        index.build(series);
+        from = size / 4;
+        to = size - size / 4 - 1;
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        float max = Float.NEGATIVE_INFINITY;
+        float min = Float.POSITIVE_INFINITY;
+        for (int i = from; i <= to; i++) {
+            float value = series.getValue(i);
+            max = Math.max(max, value);
+            min = Math.min(min, value);
+        }
+        blackhole.consume(max);
+        blackhole.consume(min);
+    }
+
+    @Benchmark
+    public void rangeIndex(Blackhole blackhole) {
+        blackhole.consume(index.max(series, from, to));
+        blackhole.consume(index.min(series, from, to));
+    }
+
+    @Benchmark
+    public RangeIndex build() {
+        RangeIndex index = new RangeIndex(series.capacity());
+        index.build(series);
+        return index;
+    }
+
+    @Benchmark
+    public RollingStats buildWithStats() {
+        RangeIndex index = new RangeIndex(series.capacity());
+        RollingStats stats = new RollingStats(series.capacity(), WINDOW, BANDS);
+        stats.build(series, index);
+        return stats;
+    }
+
+    @Benchmark
+    public RollingStats buildThenStats() {
+        RangeIndex index = new RangeIndex(series.capacity());
+        index.build(series);
+        RollingStats stats = new RollingStats(series.capacity(), WINDOW, BANDS);
+        stats.build(series, null);
+        return stats;
+    }
+}
@@ -0,0 +1,63 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.Projection;
+import com.sz.brokenlinechart.core.RangeIndex;
+import com.sz.brokenlinechart.core.Rollup;
+import com.sz.brokenlinechart.core.Series;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A fully zoomed out window projected per pixel column: reading every point against
+ * querying the extremes of each column from the rollup or the range index.
+ */
+@State(Scope.Benchmark)
+public class RollupBenchmark {
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    int size;
+
+    private Series series;
+    private Rollup rollup;
+    private RangeIndex index;
+    private final Projection projection = new Projection();
+    private float[] pointsX;
+    private float[] pointsY;
+
+    @Setup
+    public void setup() {
+        series = Samples.randomWalk(size);
+        rollup = Rollup.build(series, 1);
+        index = new RangeIndex(series.capacity());
+        index.build(series);
+        projection.setX(0, 0, Samples.PLOT_WIDTH / (float) size);
+        projection.setY(0, Samples.PLOT_HEIGHT, 0, Samples.PLOT_HEIGHT / 200);
+        int capacity = Math.max(size, Projection.columnsCapacity(Samples.PLOT_WIDTH));
+        pointsX = new float[capacity];
+        pointsY = new float[capacity];
+    }
+
+    @Benchmark
+    public int scan() {
+        return projection.projectColumns(series, 0, size, pointsX, pointsY);
+    }
+
+    @Benchmark
+    public int rollup() {
+        return projection.projectColumns(series, rollup, 0, size, pointsX, pointsY);
+    }
+
+    @Benchmark
+    public int rangeIndex() {
+        return projection.projectColumns(series, index, 0, size, pointsX, pointsY);
+    }
+
+    @Benchmark
+    public Rollup build() {
+        return Rollup.build(series, 1);
+    }
+}
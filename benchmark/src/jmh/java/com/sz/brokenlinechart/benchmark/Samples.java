@@ -0,0 +1,32 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.Series;
+
+import java.util.Random;
+
+/**
+ * Inputs shared by the suites.
+ */
+final class Samples {
+
+    // pixels of a typical phone screen in landscape
+    static final int PLOT_WIDTH = 2000;
+    static final float PLOT_HEIGHT = 800;
+
+    private Samples() {
+    }
+
+    /**
+     * A random walk, fixed seed so every fork sees the same data.
+     */
+    static Series randomWalk(int size) {
+        Random random = new Random(42);
+        float[] values = new float[size];
+        float value = 100;
+        for (int i = 0; i < size; i++) {
+            value += random.nextFloat() - 0.5f;
+            values[i] = value;
+        }
+        return new Series(values, null);
+    }
+}
@@ -0,0 +1,75 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.Series;
+import com.sz.brokenlinechart.core.SeriesLoader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Importing an export of timestamp/value pairs held in memory, so parsing is measured but
+ * not disk I/O: CSV and binary through the loader, against reading CSV line by line into
+ * Strings and adding the parsed values one at a time.
+ */
+@State(Scope.Benchmark)
+public class SeriesLoadBenchmark {
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    private byte[] csv;
+    private byte[] binary;
+    private final SeriesLoader csvLoader = new SeriesLoader(SeriesLoader.FORMAT_CSV);
+    private final SeriesLoader binaryLoader = new SeriesLoader(SeriesLoader.FORMAT_BINARY);
+
+    @Setup
+    public void setup() {
+        Series series = Samples.randomWalk(size);
+        StringBuilder text = new StringBuilder("time,value\n");
+        ByteBuffer records = ByteBuffer.allocate(size * SeriesLoader.BINARY_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long timestamp = 1500000000000L;
+        for (int i = 0; i < size; i++) {
+            timestamp += 1000;
+            float value = series.getValue(i);
+            text.append(timestamp).append(',').append(value).append('\n');
+            records.putLong(timestamp).putFloat(value);
+        }
+        csv = text.toString().getBytes(StandardCharsets.US_ASCII);
+        binary = records.array();
+    }
+
+    @Benchmark
+    public Series csv() throws IOException {
+        return csvLoader.load(Channels.newChannel(new ByteArrayInputStream(csv)), csv.length);
+    }
+
+    @Benchmark
+    public Series binary() throws IOException {
+        return binaryLoader.load(Channels.newChannel(new ByteArrayInputStream(binary)), binary.length);
+    }
+
+    @Benchmark
+    public Series csvLines() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.US_ASCII));
+        Series series = Series.withTimestamps(16);
+        reader.readLine();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(",");
+            series.add(Long.parseLong(fields[0]), Float.valueOf(fields[1]), null, null);
+        }
+        return series;
+    }
+}
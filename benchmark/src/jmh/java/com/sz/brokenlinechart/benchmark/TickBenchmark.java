@@ -0,0 +1,67 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.LabelFormatter;
+import com.sz.brokenlinechart.core.TickEngine;
+import com.sz.brokenlinechart.core.Ticks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Ticks of one layout pass while panning: the range moves a little on every call, as it
+ * does for every frame of a pan.
+ *
+ * "ticksFormat" picks the same nice steps but formats every label with String.format, as
+ * the chart did before, against the labels the tick engine memoizes per tick, and the time
+ * ticks of a day of timestamps. The ranges cycle through more frames than the engine keeps
+ * tick sets for, so every call picks its ticks again.
+ */
+@State(Scope.Benchmark)
+public class TickBenchmark {
+
+    private static final int LEVELS = 5;
+    private static final int FRAMES = 1024;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private final LabelFormatter pattern = new LabelFormatter() {
+        @Override
+        public String format(float value) {
+            return String.format("%.2f", value);
+        }
+    };
+    private final TickEngine engine = new TickEngine();
+    private final float[] mins = new float[FRAMES];
+    private final float[] maxs = new float[FRAMES];
+    private final long[] starts = new long[FRAMES];
+    private int frame;
+
+    @Setup
+    public void setup() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < FRAMES; i++) {
+            mins[i] = 93.4f + i * 0.01f;
+            maxs[i] = 117.8f + i * 0.01f;
+            starts[i] = now + i * 60 * 1000L;
+        }
+    }
+
+    @Benchmark
+    public Ticks ticksFormat() {
+        frame = (frame + 1) & (FRAMES - 1);
+        return engine.values(mins[frame], maxs[frame], Samples.PLOT_HEIGHT, 32, LEVELS, pattern);
+    }
+
+    @Benchmark
+    public Ticks ticks() {
+        frame = (frame + 1) & (FRAMES - 1);
+        return engine.values(mins[frame], maxs[frame], Samples.PLOT_HEIGHT, 32, LEVELS, null);
+    }
+
+    @Benchmark
+    public Ticks timeTicks() {
+        frame = (frame + 1) & (FRAMES - 1);
+        return engine.times(starts[frame], starts[frame] + DAY, Samples.PLOT_WIDTH, 96, null);
+    }
+}
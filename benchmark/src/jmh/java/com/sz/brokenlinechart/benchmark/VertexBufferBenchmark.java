@@ -0,0 +1,98 @@
+package com.sz.brokenlinechart.benchmark;
+
+import com.sz.brokenlinechart.core.PathSink;
+import com.sz.brokenlinechart.core.Polylines;
+import com.sz.brokenlinechart.core.Projection;
+import com.sz.brokenlinechart.core.Series;
+import com.sz.brokenlinechart.core.Vertices;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.geom.Path2D;
+
+/**
+ * The per frame work on the CPU of the two ways to submit a line and its gradient area:
+ * building both outlines into a path that stores its coordinates like android.graphics.Path,
+ * against writing batches of segments and triangle strips into the reused vertex buffers.
+ * What the GPU does with either is only measurable on a device.
+ */
+@State(Scope.Benchmark)
+public class VertexBufferBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    private float[] pointsX;
+    private float[] pointsY;
+    private final StoringSink line = new StoringSink();
+    private final StoringSink area = new StoringSink();
+    private final float[] segments = new float[Vertices.segmentsCapacity()];
+    private final float[] strip = new float[2 * Vertices.stripCapacity()];
+    private final int[] colors = new int[Vertices.stripCapacity()];
+
+    @Setup
+    public void setup() {
+        Series series = Samples.randomWalk(size);
+        Projection projection = new Projection();
+        projection.setX(0, 0, Samples.PLOT_WIDTH / (float) size);
+        projection.setY(0, Samples.PLOT_HEIGHT, 0, Samples.PLOT_HEIGHT / 200);
+        pointsX = new float[size];
+        pointsY = new float[size];
+        projection.project(series, 0, size, pointsX, pointsY);
+    }
+
+    @Benchmark
+    public Path2D path() {
+        Polylines.line(line, pointsX, pointsY, 0, size);
+        Polylines.area(area, pointsX, pointsY, 0, size, 0, Samples.PLOT_HEIGHT);
+        return area.path;
+    }
+
+    @Benchmark
+    public int vertices() {
+        int checksum = 0;
+        for (int from = 0; from < size - 1; from += Vertices.BATCH) {
+            int count = Math.min(Vertices.BATCH + 1, size - from);
+            checksum += Vertices.segments(pointsX, pointsY, from, count, segments);
+            checksum += Vertices.strip(pointsX, pointsY, from, count, Samples.PLOT_HEIGHT,
+                    0, 0xffff0000, 0x00ff0000, strip, colors);
+        }
+        return checksum;
+    }
+
+    /**
+     * Keeps the coordinates in a path that is reset and reused, as the chart does with its path.
+     */
+    static final class StoringSink implements PathSink {
+        final Path2D.Float path = new Path2D.Float();
+
+        @Override
+        public void reset() {
+            path.reset();
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            path.moveTo(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            path.lineTo(x, y);
+        }
+
+        @Override
+        public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+            path.curveTo(x1, y1, x2, y2, x3, y3);
+        }
+
+        @Override
+        public void close() {
+            path.closePath();
+        }
+    }
+}
@@ -0,0 +1,1391 @@
+package com.sz.brokenlinechart.core;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * We need to modify these variables and functions manually:
+ *
+ *      ChartStyle.labelFormatter
+ *      ChartStyle.levels
+ *      ChartStyle.levelSpacing
+ *      ...
+ *
+ * The platform independent part of the line chart: data, viewport, value range,
+ * projection, downsampling and hit testing. All geometry is computed in
+ * {@link #computeLayout()} when the data or the size changes into a {@link ChartSnapshot},
+ * which {@link ChartPainter} turns into {@link Renderer} calls. With
+ * {@link #setAsyncLayout(boolean)} the layout runs on a worker thread.
+ *
+ * Not thread safe, all methods must be called from one thread (the UI thread on Android).
+ */
+public class ChartEngine {
+
+    /**
+     * Notified when an async layout pass finished, on the worker thread.
+     */
+    public interface Callback {
+        void onLayoutReady();
+    }
+
+    private static final float MIN_VIEWPORT_SIZE = 2;
+    private static final float DEFAULT_MAX_VALUE = 500f;
+    private static final float DEFAULT_MIN_VALUE = 200f;
+    // a visible window of more points per pixel column is decimated while it is projected
+    private static final int DECIMATE_POINTS_PER_PIXEL = 8;
+
+    private final ChartStyle mStyle;
+    private Callback mCallback;
+    private float mSelfWidth;
+    private float mSelfHeight;
+
+    private String[] xAxisBasisLabels = new String[0];
+    private Series mSeries = new Series();
+    // additional series sharing the axis, the value range and the crosshair with mSeries
+    private final List<Overlay> mOverlays = new ArrayList<>();
+    private Downsampler mDownsampler;
+    // the geometry the painter draws
+    private ChartSnapshot mSnapshot = new ChartSnapshot(DEFAULT_MAX_VALUE, DEFAULT_MIN_VALUE);
+    // bumped whenever the snapshot changed, so a cached drawing of it can be kept until then
+    private int mVersion;
+    // async layout, a worker publishes into mPendingSnapshot and swapPending adopts it
+    private boolean mAsyncLayout;
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    private final AtomicReference<ChartSnapshot> mPendingSnapshot = new AtomicReference<>();
+    private static ExecutorService sLayoutExecutor;
+    // viewport in x units (the index, or the timestamp for timestamped data): the x at the
+    // left edge and the x span across the plot, a size of 0 follows the x axis basis or,
+    // with timestamps, the whole data
+    private double mViewportStart;
+    private double mViewportSize;
+    // min/max over any index range, used to fit the y range to the viewport
+    private RangeIndex mRangeIndex;
+    private boolean mRangeIndexDirty = true;
+    // moving average and threshold bands of mSeries, built in the pass that builds mRangeIndex
+    private ThresholdBand[] mBands = new ThresholdBand[0];
+    private RollingStats mStats;
+    private boolean mStatsDirty;
+    // shared layout results, see setGeometryCache
+    private GeometryCache mGeometryCache;
+    private String mSeriesId;
+    // mSnapshot is in the cache, the next pass must not update it in place
+    private boolean mSnapshotShared;
+    private float proportionWidth;
+    // animates the lines after data changes, see setTransitionDuration
+    private final Transition mTransition = new Transition();
+    private boolean mAnimateNextLayout;
+    // null unless metrics are enabled
+    private ChartMetrics mMetrics;
+    // formatted level labels, follows ChartStyle.levelFormatter
+    private volatile LabelCache mLevelLabels;
+    // formatted labels of the left tip, follows ChartStyle.labelFormatter
+    private LabelCache mTipLabels;
+    // level and time ticks, memoized by range and size
+    private final TickEngine mTicks = new TickEngine();
+    private SimpleDateFormat mTimeFormat = new SimpleDateFormat("MM/dd", Locale.getDefault());
+    // the time ticks use mTimeFormat once it was set, a format fitting their step before
+    private boolean mTimeFormatSet;
+
+    // the crosshair
+    boolean isDrawMoveLine;
+    float moveX;
+    float moveY;
+    int moveIndex = -1;
+    // 0 for the main series, i + 1 for the additional series i
+    int moveSeries;
+
+    private static class Overlay {
+        final Series series;
+        final int color;
+        RangeIndex index;
+
+        Overlay(Series series, int color) {
+            this.series = series;
+            this.color = color;
+        }
+
+        RangeQuery getIndex() {
+            if (series instanceof MappedSeries) {
+                return ((MappedSeries) series).getSummary();
+            }
+            if (index == null || index.capacity() < series.capacity()) {
+                index = new RangeIndex(series.capacity());
+                index.build(series);
+            }
+            return index;
+        }
+    }
+
+    public ChartEngine(ChartStyle style) {
+        mStyle = style;
+    }
+
+    public ChartStyle getStyle() {
+        return mStyle;
+    }
+
+    public void setCallback(Callback callback) {
+        this.mCallback = callback;
+    }
+
+    public void setSize(float width, float height) {
+        mSelfWidth = width;
+        mSelfHeight = height;
+        computeLayout();
+    }
+
+    /**
+     * Draws the line and the area below it as a smooth curve through the points, one of
+     * the {@link Smoothing} modes.
+     */
+    public void setSmoothing(int smoothing) {
+        mStyle.smoothing = smoothing;
+        computeLayout();
+    }
+
+    /**
+     * Draws the moving average of the main series over window points and its envelope,
+     * deviations standard deviations above and below. window 0 removes them. Computed
+     * once with the range index and updated per append, not per frame.
+     */
+    public void setRollingStats(int window, float deviations) {
+        if (window < 0) {
+            throw new IllegalArgumentException("window not valid");
+        }
+        if (window != mStyle.rollingWindow) {
+            mStatsDirty = true;
+        }
+        mStyle.rollingWindow = window;
+        mStyle.envelopeDeviations = deviations;
+        computeLayout();
+    }
+
+    /**
+     * Fills band across the plot and marks the points of the main series inside it, a
+     * point inside several bands is marked in the color of the first one.
+     */
+    public void addThreshold(ThresholdBand band) {
+        if (band == null) {
+            throw new IllegalArgumentException("band is null");
+        }
+        ThresholdBand[] bands = new ThresholdBand[mBands.length + 1];
+        System.arraycopy(mBands, 0, bands, 0, mBands.length);
+        bands[mBands.length] = band;
+        // replaced, not modified, a layout on a worker may still read the old array
+        mBands = bands;
+        mStatsDirty = true;
+        computeLayout();
+    }
+
+    public void clearThresholds() {
+        mBands = new ThresholdBand[0];
+        mStatsDirty = true;
+        computeLayout();
+    }
+
+    /**
+     * Takes the layout from cache when a chart with the same series, data version, size
+     * and settings was laid out before, and puts the result of every other layout pass
+     * there. Meant for many charts of shared series, e.g. the rows of a list that are
+     * bound again while scrolling.
+     *
+     * Only synchronous layouts of charts without additional series are cached. A cached
+     * snapshot is shared, so passes and appends after it build a new one instead of
+     * updating it in place.
+     *
+     * @param seriesId names the series in the cache, see {@link GeometryCache#remove(String)}
+     */
+    public void setGeometryCache(GeometryCache cache, String seriesId) {
+        if (cache != null && seriesId == null) {
+            throw new IllegalArgumentException("seriesId is null");
+        }
+        mGeometryCache = cache;
+        mSeriesId = seriesId;
+    }
+
+    /**
+     * Enables timing of the layout and of a {@link ChartPainter} drawing this engine, null
+     * disables it.
+     */
+    public void setMetrics(ChartMetrics metrics) {
+        this.mMetrics = metrics;
+    }
+
+    public ChartMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * @return the points of all series in the current snapshot that are drawn
+     */
+    public int getDrawnPointCount() {
+        ChartSnapshot g = mSnapshot;
+        int count = g.drawCount;
+        for (ChartSnapshot.Line line : g.lines) {
+            count += line.drawCount;
+        }
+        return count;
+    }
+
+    /**
+     * @return the points in the data of all series
+     */
+    public int getDataPointCount() {
+        int count = mSeries.size();
+        for (Overlay overlay : mOverlays) {
+            count += overlay.series.size();
+        }
+        return count;
+    }
+
+    /**
+     * Formats the level labels and the left tip, see {@link ChartStyle#levelFormatter}.
+     */
+    public void setLabelFormatter(LabelFormatter formatter) {
+        mStyle.labelFormatter = formatter;
+        mStyle.levelFormatter = formatter;
+        computeLayout();
+    }
+
+    public void setXAxisBasisLabels(String[] labels) throws Exception {
+        if (labels == null || labels.length < 2) {
+            throw new Exception("xAxisBasisData not valid");
+        }
+        this.xAxisBasisLabels = labels;
+        computeLayout();
+    }
+
+    public Series getSeries() {
+        return mSeries;
+    }
+
+    public void setSeries(Series series) throws Exception {
+        setSeries(series, true);
+    }
+
+    /**
+     * @param animate false shows series right away even with a transition duration set, e.g.
+     *                for the partial results of a load that would otherwise restart the
+     *                transition on every update
+     */
+    public void setSeries(Series series, boolean animate) throws Exception {
+        if (series == null) {
+            throw new Exception("data is null");
+        }
+        this.mSeries = series;
+        mRangeIndexDirty = true;
+        mAnimateNextLayout = animate;
+        computeLayout();
+    }
+
+    /**
+     * Adds a series drawn as a plain line on top of the same axis. The value range covers
+     * all series, the crosshair picks the nearest point of any series. Additional series
+     * must have timestamps exactly if the main series has, and must not be modified afterwards.
+     */
+    public void addSeries(Series series, int color) throws Exception {
+        if (series == null) {
+            throw new Exception("data is null");
+        }
+        if (series.hasTimestamps() != mSeries.hasTimestamps()) {
+            throw new Exception("series x values don't match");
+        }
+        mOverlays.add(new Overlay(series, color));
+        mAnimateNextLayout = true;
+        computeLayout();
+    }
+
+    /**
+     * Removes all series added with {@link #addSeries(Series, int)}.
+     */
+    public void clearSeries() {
+        mOverlays.clear();
+        mAnimateNextLayout = true;
+        computeLayout();
+    }
+
+    /**
+     * Pattern used for the x axis and the bottom tip of timestamped data.
+     */
+    public void setTimeFormat(String pattern) {
+        mTimeFormat = new SimpleDateFormat(pattern, Locale.getDefault());
+        mTimeFormatSet = true;
+        computeLayout();
+    }
+
+    /**
+     * Bounds the data to the last capacity values, appending to a full chart drops the oldest value.
+     * 0 removes the bound.
+     *
+     * @throws IllegalStateException if the series is read only, see {@link Series#isReadOnly()}
+     */
+    public void setCapacity(int capacity) {
+        checkWritable();
+        mSeries.setMaxSize(capacity);
+        mRangeIndexDirty = true;
+        computeLayout();
+    }
+
+    /**
+     * Appends one value.
+     *
+     * The value range and the points are updated incrementally, only the new point is
+     * projected as long as the range doesn't change. With async layout every append
+     * schedules a new layout pass instead.
+     *
+     * @throws IllegalStateException if the series is read only, see {@link Series#isReadOnly()},
+     *                               or has timestamps, see {@link #append(long, float, String)}
+     */
+    public void append(float value, String bottomLabel) {
+        checkWritable();
+        if (mSeries.hasTimestamps()) {
+            throw new IllegalStateException("series has timestamps");
+        }
+        boolean evict = mSeries.isFull();
+        mSeries.add(value, bottomLabel, null);
+        appended(value, evict);
+    }
+
+    /**
+     * Appends one point of a series with timestamps, like {@link #append(float, String)}.
+     *
+     * @param timestamp at least the one of the last point
+     * @throws IllegalStateException if the series is read only or has no timestamps
+     */
+    public void append(long timestamp, float value, String bottomLabel) {
+        checkWritable();
+        if (!mSeries.hasTimestamps()) {
+            throw new IllegalStateException("series has no timestamps");
+        }
+        if (!mSeries.isEmpty() && timestamp < mSeries.getTimestamp(mSeries.size() - 1)) {
+            throw new IllegalArgumentException("timestamp not valid");
+        }
+        boolean evict = mSeries.isFull();
+        mSeries.add(timestamp, value, bottomLabel, null);
+        appended(value, evict);
+    }
+
+    /**
+     * Updates the index, the statistics and the snapshot for the value just added.
+     *
+     * @param evict the series dropped its first value to make room for it
+     */
+    private void appended(float value, boolean evict) {
+        // a stream of appends isn't animated, the line jumps to its latest shape
+        mTransition.cancel();
+        int index = mSeries.size() - 1;
+        if (!mRangeIndexDirty && mSeries.slotOf(index) < mRangeIndex.capacity()) {
+            // on a full ring buffer this overwrites the slot of the dropped value
+            mRangeIndex.set(mSeries.slotOf(index), value);
+        } else {
+            mRangeIndexDirty = true;
+        }
+        RollingStats stats = mStats;
+        if (stats != null && !mRangeIndexDirty && !mStatsDirty && mSeries.slotOf(index) < stats.capacity()) {
+            stats.append(mSeries, evict);
+        } else {
+            mStatsDirty = true;
+        }
+
+        ChartSnapshot g = mSnapshot;
+        // with timestamps the default viewport follows the data, so every append moves it.
+        // Only points up to the right edge are added in place, see lastIndex in copyInputs
+        boolean allVisible = !isZoomed() && !mSeries.hasTimestamps() && mOverlays.isEmpty()
+                && !g.decimated && index <= viewportStart() + viewportSize();
+        if (mAsyncLayout || !allVisible || mSnapshotShared) {
+            computeLayout();
+            return;
+        }
+        ChartMetrics metrics = mMetrics;
+        long start = metrics != null ? metrics.begin(ChartMetrics.PHASE_LAYOUT) : 0;
+        mVersion++;
+        g.allocations = 0;
+        g.firstIndex = 0;
+        g.lastIndex = index;
+        queryRange(g);
+        // the range query may have rebuilt the index
+        g.summary = summaryFor(mSeries, getRangeIndex());
+        g.stats = getStats();
+        if (applyRange(g)) {
+            initPoint(g, mSeries);
+            initDrawPoint(g, 0);
+            initStats(g, mSeries);
+            initLabels(g);
+        } else if (evict) {
+            slidePoint(g, value);
+            initDrawPoint(g, 0);
+            initStats(g, mSeries);
+        } else {
+            appendPoint(g, value);
+            appendStats(g, mSeries, index);
+        }
+        if (metrics != null) {
+            metrics.record(ChartMetrics.PHASE_LAYOUT, metrics.end(start));
+            metrics.addAllocations(g.allocations);
+        }
+    }
+
+    private void checkWritable() {
+        if (mSeries.isReadOnly()) {
+            throw new IllegalStateException("series is read only");
+        }
+    }
+
+    /**
+     * Shows the x range [start, start + size] across the plot, only the points inside
+     * are projected and drawn. x is the data index, or the timestamp for timestamped data.
+     * A size of 0 resets to the default viewport.
+     */
+    public void setViewport(double start, double size) {
+        mViewportSize = size <= 0 ? 0 : Math.max(size, minViewportSize());
+        mViewportStart = mViewportSize == 0 ? 0 : start;
+        computeLayout();
+    }
+
+    public double getViewportStart() {
+        return viewportStart();
+    }
+
+    public double getViewportSize() {
+        return viewportSize();
+    }
+
+    private double viewportStart() {
+        if (mViewportSize == 0) {
+            return mSeries.hasTimestamps() && !mSeries.isEmpty() ? mSeries.getX(0) : 0;
+        }
+        return mViewportStart;
+    }
+
+    private double viewportSize() {
+        if (mViewportSize == 0) {
+            return mSeries.hasTimestamps() ? dataSpan() : xAxisBasisLabels.length - 1;
+        }
+        return mViewportSize;
+    }
+
+    private double dataSpan() {
+        if (mSeries.size() < 2) {
+            return 1;
+        }
+        return Math.max(mSeries.getX(mSeries.size() - 1) - mSeries.getX(0), 1);
+    }
+
+    private double minViewportSize() {
+        if (!mSeries.hasTimestamps()) {
+            return MIN_VIEWPORT_SIZE;
+        }
+        // about two points of the average spacing
+        return MIN_VIEWPORT_SIZE * dataSpan() / Math.max(mSeries.size() - 1, 1);
+    }
+
+    private boolean isZoomed() {
+        return mViewportSize != 0;
+    }
+
+    /**
+     * Scales the viewport by 1 / scaleFactor, keeping the x under focusX in place.
+     * Call {@link #computeLayout()} when the gesture step is done.
+     */
+    public void zoom(float scaleFactor, float focusX) {
+        double start = viewportStart();
+        double size = viewportSize();
+        double maxSize = mSeries.hasTimestamps() ? dataSpan() : Math.max(xAxisBasisLabels.length - 1, mSeries.size() - 1);
+        double newSize = Math.max(minViewportSize(), Math.min(size / scaleFactor, maxSize));
+        float plotWidth = mSelfWidth - mStyle.horizontalSpaceLeft - mStyle.horizontalSpaceRight;
+        float focus = (focusX - mStyle.horizontalSpaceLeft) / plotWidth;
+        // keep the x under the focus in place
+        double newStart = start + focus * (size - newSize);
+        mViewportSize = newSize;
+        mViewportStart = clampViewportStart(newStart, newSize);
+    }
+
+    /**
+     * Moves the viewport by dx pixels. Call {@link #computeLayout()} when the gesture step is done.
+     */
+    public void pan(float dx) {
+        double size = viewportSize();
+        float plotWidth = mSelfWidth - mStyle.horizontalSpaceLeft - mStyle.horizontalSpaceRight;
+        mViewportStart = clampViewportStart(viewportStart() - dx * size / plotWidth, size);
+        mViewportSize = size;
+    }
+
+    private double clampViewportStart(double start, double size) {
+        if (mSeries.isEmpty()) {
+            return 0;
+        }
+        double minStart = mSeries.getX(0);
+        double maxStart = Math.max(minStart, mSeries.getX(mSeries.size() - 1) - size);
+        return Math.max(minStart, Math.min(start, maxStart));
+    }
+
+    /**
+     * Moves the layout pass (projection, downsampling and label formatting) to a worker
+     * thread. Each pass works on a copy of the data and produces a new {@link ChartSnapshot},
+     * the previous one stays current until {@link #swapPending()} adopts the new one, and
+     * results of passes that were superseded by newer data are dropped.
+     */
+    public void setAsyncLayout(boolean asyncLayout) {
+        if (this.mAsyncLayout == asyncLayout) {
+            return;
+        }
+        this.mAsyncLayout = asyncLayout;
+        // a published snapshot is not touched by the worker anymore, so the sync
+        // layout may update it in place, results still in flight are dropped
+        computeLayout();
+    }
+
+    /**
+     * Sets the downsampling stage used between the projected points and the drawn line,
+     * e.g. {@link M4Downsampler} or {@link LttbDownsampler}. null draws every point.
+     */
+    public void setDownsampler(Downsampler downsampler) {
+        this.mDownsampler = downsampler;
+        computeLayout();
+    }
+
+    /**
+     * Adopts the result of the last async layout pass, if there is a current one.
+     *
+     * @return true if the snapshot changed
+     */
+    public boolean swapPending() {
+        ChartSnapshot pending = mPendingSnapshot.getAndSet(null);
+        if (pending != null && pending.generation == mGeneration.get()) {
+            if (pending.animate) {
+                mTransition.capture(mSnapshot);
+            }
+            mSnapshot = pending;
+            mVersion++;
+            startTransition(pending);
+            recordLayout(pending);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return a number that changes whenever the static part of the chart changes
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    ChartSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * The layout pass, everything that depends only on data and size is computed here once.
+     */
+    public void computeLayout() {
+        mVersion++;
+        init();
+        int generation = mGeneration.incrementAndGet();
+        final ChartMetrics metrics = mMetrics;
+        boolean animate = mAnimateNextLayout && mTransition.getDuration() > 0;
+        mAnimateNextLayout = false;
+        if (!mAsyncLayout) {
+            long start = metrics != null ? metrics.begin(ChartMetrics.PHASE_LAYOUT) : 0;
+            GeometryCache cache = mGeometryCache;
+            GeometryCache.Key key = cache != null && mOverlays.isEmpty() ? geometryKey() : null;
+            if (key != null) {
+                ChartSnapshot cached = cache.get(key);
+                if (cached != null) {
+                    mTransition.cancel();
+                    mSnapshot = cached;
+                    mSnapshotShared = true;
+                    if (metrics != null) {
+                        metrics.record(ChartMetrics.PHASE_LAYOUT, metrics.end(start));
+                    }
+                    return;
+                }
+            }
+            if (animate) {
+                mTransition.capture(mSnapshot);
+            }
+            boolean shared = mSnapshotShared;
+            if (shared) {
+                // the cache keeps the old one as it is
+                mSnapshot = new ChartSnapshot(DEFAULT_MAX_VALUE, DEFAULT_MIN_VALUE);
+                mSnapshotShared = false;
+            }
+            ChartSnapshot g = copyInputs(mSnapshot);
+            if (shared) {
+                g.allocations++;
+            }
+            g.generation = generation;
+            g.animate = animate;
+            layout(g, mSeries, overlaySeries(false), metrics);
+            startTransition(g);
+            if (key != null) {
+                g.dropSources();
+                cache.put(key, g);
+                mSnapshotShared = true;
+            }
+            if (metrics != null) {
+                g.layoutNanos = metrics.end(start);
+                recordLayout(g);
+            }
+            return;
+        }
+        ChartSnapshot g = copyInputs(new ChartSnapshot(DEFAULT_MAX_VALUE, DEFAULT_MIN_VALUE));
+        g.allocations++;
+        g.animate = animate;
+        computeLayoutAsync(generation, g, mSeries.copy(), overlaySeries(true), metrics);
+    }
+
+    /**
+     * Animates towards g if it was laid out for a data change, otherwise a running
+     * transition is cancelled and g is shown as it is.
+     */
+    private void startTransition(ChartSnapshot g) {
+        if (g.animate) {
+            mTransition.start(g, g.height - mStyle.verticalSpaceBottom);
+        } else {
+            mTransition.cancel();
+        }
+    }
+
+    /**
+     * Animates the lines for millis after the data was set or series were added or removed,
+     * 0 (the default) shows new data right away. The animation advances with
+     * {@link #stepTransition(long)}, appends and layout passes for any other reason cancel it.
+     */
+    public void setTransitionDuration(long millis) {
+        mTransition.setDuration(TimeUnit.MILLISECONDS.toNanos(millis));
+        if (millis <= 0) {
+            mTransition.cancel();
+        }
+    }
+
+    public boolean isAnimating() {
+        return mTransition.isRunning();
+    }
+
+    /**
+     * Computes the frame of the transition at frameTimeNanos, the first call is its first
+     * frame. Only interpolates between buffers prepared when it started.
+     *
+     * @return whether more frames follow
+     */
+    public boolean stepTransition(long frameTimeNanos) {
+        if (!mTransition.isRunning()) {
+            return false;
+        }
+        boolean running = mTransition.step(frameTimeNanos);
+        mVersion++;
+        return running;
+    }
+
+    Transition getTransition() {
+        return mTransition;
+    }
+
+    /**
+     * Reports the cost of the pass that built g, on the drawing thread.
+     */
+    private void recordLayout(ChartSnapshot g) {
+        ChartMetrics metrics = mMetrics;
+        if (metrics == null) {
+            return;
+        }
+        metrics.record(ChartMetrics.PHASE_LAYOUT, g.layoutNanos);
+        metrics.record(ChartMetrics.PHASE_PROJECTION, g.projectionNanos);
+        metrics.addAllocations(g.allocations);
+    }
+
+    private GeometryCache.Key geometryKey() {
+        Object[] settings = {mStyle.labelFormatter, mStyle.levelFormatter, mDownsampler, mBands,
+                mTimeFormatSet ? mTimeFormat.toPattern() : null, xAxisBasisLabels};
+        return new GeometryCache.Key(mSeriesId, mSeries, mSelfWidth, mSelfHeight, viewportStart(), viewportSize(),
+                mStyle, settings);
+    }
+
+    private Series[] overlaySeries(boolean copy) {
+        Series[] result = new Series[mOverlays.size()];
+        for (int i = 0; i < result.length; i++) {
+            Series series = mOverlays.get(i).series;
+            result[i] = copy ? series.copy() : series;
+        }
+        return result;
+    }
+
+    private void computeLayoutAsync(final int generation, final ChartSnapshot g, final Series series, final Series[] overlays,
+                                    final ChartMetrics metrics) {
+        g.generation = generation;
+        getLayoutExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration.get()) {
+                    return;
+                }
+                long start = metrics != null ? metrics.begin(ChartMetrics.PHASE_LAYOUT) : 0;
+                layout(g, series, overlays, metrics);
+                if (metrics != null) {
+                    g.layoutNanos = metrics.end(start);
+                }
+                if (generation != mGeneration.get()) {
+                    return;
+                }
+                mPendingSnapshot.set(g);
+                Callback callback = mCallback;
+                if (callback != null) {
+                    callback.onLayoutReady();
+                }
+            }
+        });
+    }
+
+    private static synchronized ExecutorService getLayoutExecutor() {
+        if (sLayoutExecutor == null) {
+            sLayoutExecutor = Executors.newSingleThreadExecutor();
+        }
+        return sLayoutExecutor;
+    }
+
+    private ChartSnapshot copyInputs(ChartSnapshot g) {
+        ChartStyle style = mStyle;
+        g.allocations = 0;
+        g.width = mSelfWidth;
+        g.height = mSelfHeight;
+        g.proportionWidth = proportionWidth;
+        g.brokenLineHeight = mSelfHeight - style.verticalSpaceTop - style.verticalSpaceBottom;
+        g.spaceLeft = style.horizontalSpaceLeft;
+        g.spaceRight = style.horizontalSpaceRight;
+        g.spaceTop = style.verticalSpaceTop;
+        g.levelSpacing = style.levelSpacing;
+        g.levels = style.levels;
+        g.levelLabels = style.levelFormatter != null ? getLevelLabels() : null;
+        g.downsampler = mDownsampler;
+        g.clip = isZoomed();
+        g.smoothing = style.smoothing;
+        g.rollingWindow = style.rollingWindow;
+        g.envelopeDeviations = style.envelopeDeviations;
+        g.bands = mBands;
+        double start = viewportStart();
+        g.viewportStart = start;
+        // one point beyond each edge so the line runs into the clip
+        int size = mSeries.size();
+        g.firstIndex = Math.max(0, mSeries.lowerBound(start) - 1);
+        g.lastIndex = Math.min(size - 1, mSeries.lowerBound(start + viewportSize()));
+        if (g.lines.length != mOverlays.size()) {
+            g.lines = new ChartSnapshot.Line[mOverlays.size()];
+            for (int i = 0; i < g.lines.length; i++) {
+                g.lines[i] = new ChartSnapshot.Line();
+            }
+            g.allocations += 1 + g.lines.length;
+        }
+        g.summary = summaryFor(mSeries, mAsyncLayout ? null : getRangeIndex());
+        for (int i = 0; i < g.lines.length; i++) {
+            Overlay overlay = mOverlays.get(i);
+            Series series = overlay.series;
+            ChartSnapshot.Line line = g.lines[i];
+            line.color = overlay.color;
+            line.firstIndex = Math.max(0, series.lowerBound(start) - 1);
+            line.lastIndex = Math.min(series.size() - 1, series.lowerBound(start + viewportSize()));
+            line.summary = summaryFor(series, mAsyncLayout ? null : overlay.getIndex());
+        }
+        queryRange(g);
+        // the statistics follow appends on this thread, a worker computes its own
+        g.stats = mAsyncLayout ? null : getStats();
+        initAxisText(g, start, start + viewportSize());
+        return g;
+    }
+
+    /**
+     * The visible range of all series, an O(log n) query per series.
+     */
+    private void queryRange(ChartSnapshot g) {
+        float max = Float.NEGATIVE_INFINITY;
+        float min = Float.POSITIVE_INFINITY;
+        if (g.firstIndex <= g.lastIndex) {
+            max = getMax(g.firstIndex, g.lastIndex);
+            min = getMin(g.firstIndex, g.lastIndex);
+        }
+        for (int i = 0; i < g.lines.length; i++) {
+            ChartSnapshot.Line line = g.lines[i];
+            if (line.firstIndex > line.lastIndex) {
+                continue;
+            }
+            Overlay overlay = mOverlays.get(i);
+            max = Math.max(max, overlay.getIndex().max(overlay.series, line.firstIndex, line.lastIndex));
+            min = Math.min(min, overlay.getIndex().min(overlay.series, line.firstIndex, line.lastIndex));
+        }
+        g.hasData = min <= max;
+        if (g.hasData) {
+            g.rawMax = max;
+            g.rawMin = min;
+        }
+    }
+
+    /**
+     * The summary a decimated window of series is projected with. The rollup of a mapped
+     * series never changes and can be read by a worker, an index of a series on the heap
+     * follows appends and is only passed in for a layout on this thread.
+     */
+    private static RangeQuery summaryFor(Series series, RangeQuery index) {
+        if (series instanceof MappedSeries) {
+            return ((MappedSeries) series).getSummary();
+        }
+        return index;
+    }
+
+    private RangeQuery getRangeIndex() {
+        if (mSeries instanceof MappedSeries) {
+            // too long to index on the heap, the series keeps its own summary
+            return ((MappedSeries) mSeries).getSummary();
+        }
+        if (mRangeIndexDirty) {
+            // sized to the storage of the series, so appends until it grows are point updates
+            mRangeIndex = new RangeIndex(mSeries.capacity());
+            if (hasStats()) {
+                // one pass for both
+                mStats = newStats();
+                mStats.build(mSeries, mRangeIndex);
+            } else {
+                mStats = null;
+                mRangeIndex.build(mSeries);
+            }
+            mRangeIndexDirty = false;
+            mStatsDirty = false;
+        }
+        return mRangeIndex;
+    }
+
+    private boolean hasStats() {
+        // a mapped series keeps nothing per point on the heap
+        return (mStyle.rollingWindow > 0 || mBands.length > 0) && !(mSeries instanceof MappedSeries);
+    }
+
+    private RollingStats newStats() {
+        return new RollingStats(mSeries.capacity(), mStyle.rollingWindow, mBands);
+    }
+
+    /**
+     * @return the statistics of mSeries, null if there are none
+     */
+    private RollingStats getStats() {
+        if (!hasStats()) {
+            return null;
+        }
+        getRangeIndex();
+        if (mStatsDirty) {
+            mStats = newStats();
+            mStats.build(mSeries, null);
+            mStatsDirty = false;
+        }
+        return mStats;
+    }
+
+    /**
+     * @return the minimum of the values [from, to], both inclusive, in O(log n)
+     */
+    public float getMin(int from, int to) {
+        return getRangeIndex().min(mSeries, from, to);
+    }
+
+    /**
+     * @return the maximum of the values [from, to], both inclusive, in O(log n)
+     */
+    public float getMax(int from, int to) {
+        return getRangeIndex().max(mSeries, from, to);
+    }
+
+    /**
+     * @return the average of the values [from, to], both inclusive, in O(log n)
+     */
+    public float getAverage(int from, int to) {
+        return getRangeIndex().average(mSeries, from, to);
+    }
+
+    /**
+     * Computes everything in g from series, may run on a worker thread so it must only
+     * read the inputs copied into g and fields that don't change after construction.
+     */
+    private void layout(ChartSnapshot g, Series series, Series[] overlays, ChartMetrics metrics) {
+        initRange(g);
+        long start = metrics != null ? metrics.begin(ChartMetrics.PHASE_PROJECTION) : 0;
+        initPoint(g, series);
+        initDrawPoint(g, 0);
+        for (int i = 0; i < overlays.length; i++) {
+            initLine(g, g.lines[i], overlays[i]);
+        }
+        initStats(g, series);
+        if (metrics != null) {
+            g.projectionNanos = metrics.end(start);
+        }
+        initLabels(g);
+    }
+
+    private void init() {
+        proportionWidth = (float) ((mSelfWidth - mStyle.horizontalSpaceLeft - mStyle.horizontalSpaceRight) / viewportSize());
+    }
+
+    private void initAxisText(ChartSnapshot g, double start, double stop) {
+        g.timeTicks = null;
+        if (mSeries.hasTimestamps() && !mSeries.isEmpty()) {
+            g.startText = mTimeFormat.format(new Date((long) start));
+            g.stopText = mTimeFormat.format(new Date((long) stop));
+            g.timeTicks = mTicks.times(start, stop, pixelWidth(g), mStyle.timeTickSpacing,
+                    mTimeFormatSet ? mTimeFormat : null);
+        } else if (isZoomed() && !mSeries.isEmpty()) {
+            // the x axis basis describes the whole chart, show the labels of the visible points instead
+            int last = mSeries.size() - 1;
+            g.startText = mSeries.getBottomLabel((int) Math.min(Math.round(start), last));
+            g.stopText = mSeries.getBottomLabel((int) Math.min(Math.round(stop), last));
+        } else if (xAxisBasisLabels.length > 0) {
+            g.startText = xAxisBasisLabels[0];
+            g.stopText = xAxisBasisLabels[xAxisBasisLabels.length - 1];
+        } else {
+            g.startText = "";
+            g.stopText = "";
+        }
+    }
+
+    private void initRange(ChartSnapshot g) {
+        applyRange(g);
+        g.proportionHeight = g.brokenLineHeight / (g.maxData - g.minData);
+        updateProjection(g);
+    }
+
+    private void updateProjection(ChartSnapshot g) {
+        g.projection.setX(g.spaceLeft, g.viewportStart, g.proportionWidth);
+        g.projection.setY(g.spaceTop, g.brokenLineHeight, g.minData, g.proportionHeight);
+    }
+
+    /**
+     * Derives the shown range from rawMin/rawMax: the level ticks around it, the first and
+     * the last tick are the range.
+     *
+     * @return true if the range changed
+     */
+    private boolean applyRange(ChartSnapshot g) {
+        Ticks ticks = mTicks.values(g.hasData ? g.rawMin : DEFAULT_MIN_VALUE, g.hasData ? g.rawMax : DEFAULT_MAX_VALUE,
+                g.brokenLineHeight, g.levelSpacing, g.levels, g.levelLabels);
+        g.levelTicks = ticks;
+        float max = (float) ticks.getMax();
+        float min = (float) ticks.getMin();
+        if (max == g.maxData && min == g.minData) {
+            return false;
+        }
+        g.maxData = max;
+        g.minData = min;
+        g.proportionHeight = g.brokenLineHeight / (g.maxData - g.minData);
+        updateProjection(g);
+        return true;
+    }
+
+    private void initPoint(ChartSnapshot g, Series series) {
+        int size = Math.max(0, g.lastIndex - g.firstIndex + 1);
+        int pixelWidth = pixelWidth(g);
+        g.decimated = size > DECIMATE_POINTS_PER_PIXEL * pixelWidth;
+        int capacity = g.decimated ? Projection.columnsCapacity(pixelWidth) : size;
+        if (g.pointsX.length < capacity) {
+            g.pointsX = new float[capacity];
+            g.pointsY = new float[capacity];
+            g.allocations += 2;
+        }
+        if (g.decimated) {
+            g.pointCount = g.projection.projectColumns(series, g.summary, g.firstIndex, size, g.pointsX, g.pointsY);
+        } else {
+            g.projection.project(series, g.firstIndex, size, g.pointsX, g.pointsY);
+            g.pointCount = size;
+        }
+        g.pointStart = 0;
+        g.pointShift = 0;
+    }
+
+    /**
+     * Drops the first point and adds value at the end, for an append to a full series.
+     * The x position of a point only depends on its index, so the window moves by one
+     * point and is drawn one point further left. The buffer holds twice the points, it
+     * is compacted once every pointCount + 1 appends.
+     */
+    private void slidePoint(ChartSnapshot g, float value) {
+        int count = g.pointCount;
+        if (g.downsampler != null || g.smoothing != Smoothing.NONE) {
+            // both go over every point anyway, and expect them at the start of the buffer
+            System.arraycopy(g.pointsY, 1, g.pointsY, 0, count - 1);
+            g.pointsY[count - 1] = g.projection.y(value);
+            return;
+        }
+        int start = g.pointStart + 1;
+        if (g.pointsX.length < 2 * count) {
+            float[] pointsX = new float[2 * count];
+            float[] pointsY = new float[2 * count];
+            g.allocations += 2;
+            System.arraycopy(g.pointsY, start, pointsY, 0, count - 1);
+            for (int i = 0; i < count - 1; i++) {
+                pointsX[i] = g.projection.x(i);
+            }
+            g.pointsX = pointsX;
+            g.pointsY = pointsY;
+            start = 0;
+        } else if (start + count > g.pointsX.length) {
+            // the slots keep their x positions, only the values move back
+            System.arraycopy(g.pointsY, start, g.pointsY, 0, count - 1);
+            start = 0;
+        }
+        int last = start + count - 1;
+        g.pointsX[last] = g.projection.x(last);
+        g.pointsY[last] = g.projection.y(value);
+        g.pointStart = start;
+        g.pointShift = -start * g.proportionWidth;
+    }
+
+    private void appendPoint(ChartSnapshot g, float value) {
+        if (g.pointStart != 0) {
+            // back to the start of the buffer, the slots there keep their x positions
+            System.arraycopy(g.pointsY, g.pointStart, g.pointsY, 0, g.pointCount);
+            g.pointStart = 0;
+            g.pointShift = 0;
+        }
+        int index = g.pointCount;
+        if (g.pointsX.length <= index) {
+            int capacity = Math.max(index + 1, g.pointsX.length + (g.pointsX.length >> 1));
+            float[] pointsX = new float[capacity];
+            float[] pointsY = new float[capacity];
+            g.allocations += 2;
+            System.arraycopy(g.pointsX, 0, pointsX, 0, index);
+            System.arraycopy(g.pointsY, 0, pointsY, 0, index);
+            g.pointsX = pointsX;
+            g.pointsY = pointsY;
+        }
+        g.pointsX[index] = g.projection.x(index);
+        g.pointsY[index] = g.projection.y(value);
+        g.pointCount++;
+        g.lastIndex = g.pointCount - 1;
+        initDrawPoint(g, index);
+    }
+
+    private int pixelWidth(ChartSnapshot g) {
+        return Math.max((int) Math.ceil(g.width - g.spaceLeft - g.spaceRight), 1);
+    }
+
+    /**
+     * @param changedFrom the first projected point that changed since the last call, the
+     *                    control points before it are kept
+     */
+    private void initDrawPoint(ChartSnapshot g, int changedFrom) {
+        if (g.downsampler == null) {
+            g.drawX = g.pointsX;
+            g.drawY = g.pointsY;
+            g.drawFrom = g.pointStart;
+            g.drawShift = g.pointShift;
+            g.drawCount = g.pointCount;
+        } else {
+            g.drawFrom = 0;
+            g.drawShift = 0;
+            int pixelWidth = pixelWidth(g);
+            int capacity = g.downsampler.capacity(g.pointCount, pixelWidth);
+            if (g.drawX == g.pointsX || g.drawX.length < capacity) {
+                g.drawX = new float[capacity];
+                g.drawY = new float[capacity];
+                g.allocations += 2;
+            }
+            g.drawCount = g.downsampler.downsample(g.pointsX, g.pointsY, g.pointCount, pixelWidth, g.drawX, g.drawY);
+            // any drawn point may have moved
+            changedFrom = 0;
+        }
+        g.controls = initControls(g, g.controls, g.drawX, g.drawY, g.drawCount, changedFrom);
+    }
+
+    /**
+     * Control points of the smooth curve through the drawn points, computed once per layout
+     * and reused by every redraw until then. Only the segments next to and after changedFrom
+     * are computed again, a point moves the tangents of its neighbours.
+     */
+    private float[] initControls(ChartSnapshot g, float[] controls, float[] xs, float[] ys, int count, int changedFrom) {
+        if (g.smoothing == Smoothing.NONE) {
+            return controls;
+        }
+        int capacity = Smoothing.capacity(count);
+        if (controls.length < capacity) {
+            float[] grown = new float[Math.max(capacity, controls.length + (controls.length >> 1))];
+            System.arraycopy(controls, 0, grown, 0, controls.length);
+            controls = grown;
+            g.allocations++;
+        }
+        Smoothing.controls(g.smoothing, xs, ys, count, changedFrom - 2, controls);
+        return controls;
+    }
+
+    private void initLine(ChartSnapshot g, ChartSnapshot.Line line, Series series) {
+        int size = Math.max(0, line.lastIndex - line.firstIndex + 1);
+        int pixelWidth = pixelWidth(g);
+        boolean decimated = size > DECIMATE_POINTS_PER_PIXEL * pixelWidth;
+        int pointCapacity = decimated ? Projection.columnsCapacity(pixelWidth) : size;
+        if (line.pointsX.length < pointCapacity) {
+            line.pointsX = new float[pointCapacity];
+            line.pointsY = new float[pointCapacity];
+            g.allocations += 2;
+        }
+        if (decimated) {
+            line.pointCount = g.projection.projectColumns(series, line.summary, line.firstIndex, size, line.pointsX, line.pointsY);
+        } else {
+            g.projection.project(series, line.firstIndex, size, line.pointsX, line.pointsY);
+            line.pointCount = size;
+        }
+
+        if (g.downsampler == null) {
+            line.drawX = line.pointsX;
+            line.drawY = line.pointsY;
+            line.drawCount = line.pointCount;
+        } else {
+            int capacity = g.downsampler.capacity(line.pointCount, pixelWidth);
+            if (line.drawX == line.pointsX || line.drawX.length < capacity) {
+                line.drawX = new float[capacity];
+                line.drawY = new float[capacity];
+                g.allocations += 2;
+            }
+            line.drawCount = g.downsampler.downsample(line.pointsX, line.pointsY, line.pointCount, pixelWidth, line.drawX, line.drawY);
+        }
+        line.controls = initControls(g, line.controls, line.drawX, line.drawY, line.drawCount, 0);
+    }
+
+    /**
+     * Projects the bands, the moving average and the markers of the visible window. The
+     * statistics themselves are only read, see {@link RollingStats}.
+     */
+    private void initStats(ChartSnapshot g, Series series) {
+        int bands = g.bands.length;
+        if (g.bandTops.length < bands) {
+            g.bandTops = new float[bands];
+            g.bandBottoms = new float[bands];
+            g.allocations += 2;
+        }
+        for (int b = 0; b < bands; b++) {
+            ThresholdBand band = g.bands[b];
+            // clamped to the value range, a band outside of it ends up empty
+            g.bandTops[b] = g.projection.y(Math.max(Math.min(band.high, g.maxData), g.minData));
+            g.bandBottoms[b] = g.projection.y(Math.min(Math.max(band.low, g.minData), g.maxData));
+        }
+        g.statsCount = 0;
+        g.markerCount = 0;
+        if ((g.rollingWindow == 0 && bands == 0) || series instanceof MappedSeries || g.firstIndex > g.lastIndex) {
+            return;
+        }
+        RollingStats stats = g.stats;
+        if (stats == null || stats.getWindow() != g.rollingWindow) {
+            // a worker, or bands without a window set on this thread in between
+            stats = new RollingStats(series.capacity(), g.rollingWindow, g.bands);
+            stats.build(series, null);
+            g.stats = stats;
+            g.allocations++;
+        }
+        if (g.rollingWindow > 0) {
+            if (g.decimated) {
+                // the average is smooth, one point per pixel column is enough
+                int pixelWidth = pixelWidth(g);
+                ensureStatsCapacity(g, pixelWidth + 3);
+                int previous = -1;
+                for (int column = -1; column <= pixelWidth + 1; column++) {
+                    double x = g.projection.xOf(g.spaceLeft + column);
+                    int index = Math.max(g.firstIndex, Math.min(series.lowerBound(x), g.lastIndex));
+                    if (index != previous) {
+                        addStatsPoint(g, series, stats, index);
+                        previous = index;
+                    }
+                }
+            } else {
+                ensureStatsCapacity(g, g.lastIndex - g.firstIndex + 1);
+                for (int index = g.firstIndex; index <= g.lastIndex; index++) {
+                    addStatsPoint(g, series, stats, index);
+                }
+            }
+        }
+        for (int k = stats.firstAnomaly(g.firstIndex), end = stats.anomalyEnd(); k < end; k++) {
+            if (stats.anomalyIndex(k) > g.lastIndex) {
+                break;
+            }
+            addMarker(g, series, stats, k);
+        }
+    }
+
+    /**
+     * The statistics of the point appended at index, after {@link #appendPoint}.
+     */
+    private void appendStats(ChartSnapshot g, Series series, int index) {
+        RollingStats stats = g.stats;
+        if (stats == null) {
+            return;
+        }
+        if (g.rollingWindow > 0) {
+            ensureStatsCapacity(g, g.statsCount + 1);
+            addStatsPoint(g, series, stats, index);
+        }
+        int k = stats.firstAnomaly(index);
+        if (k < stats.anomalyEnd()) {
+            addMarker(g, series, stats, k);
+        }
+    }
+
+    private void ensureStatsCapacity(ChartSnapshot g, int capacity) {
+        if (g.statsX.length >= capacity) {
+            return;
+        }
+        capacity = Math.max(capacity, g.statsX.length + (g.statsX.length >> 1));
+        g.statsX = grow(g.statsX, capacity, g.statsCount);
+        g.meanY = grow(g.meanY, capacity, g.statsCount);
+        g.upperY = grow(g.upperY, capacity, g.statsCount);
+        g.lowerY = grow(g.lowerY, capacity, g.statsCount);
+        g.allocations += 4;
+    }
+
+    private static float[] grow(float[] array, int capacity, int count) {
+        float[] grown = new float[capacity];
+        System.arraycopy(array, 0, grown, 0, count);
+        return grown;
+    }
+
+    private void addStatsPoint(ChartSnapshot g, Series series, RollingStats stats, int index) {
+        float mean = stats.mean(series, index);
+        float spread = stats.deviation(series, index) * g.envelopeDeviations;
+        int n = g.statsCount++;
+        g.statsX[n] = g.projection.x(series.getX(index));
+        g.meanY[n] = g.projection.y(mean);
+        g.upperY[n] = g.projection.y(mean + spread);
+        g.lowerY[n] = g.projection.y(mean - spread);
+    }
+
+    private void addMarker(ChartSnapshot g, Series series, RollingStats stats, int k) {
+        int index = stats.anomalyIndex(k);
+        float x = g.projection.x(series.getX(index));
+        int n = g.markerCount;
+        if (n > 0 && (int) Math.floor(g.markerX[n - 1]) == (int) Math.floor(x)) {
+            // one marker per pixel column
+            return;
+        }
+        if (g.markerX.length == n) {
+            int capacity = Math.max(16, n + (n >> 1));
+            g.markerX = grow(g.markerX, capacity, n);
+            g.markerY = grow(g.markerY, capacity, n);
+            int[] colors = new int[capacity];
+            System.arraycopy(g.markerColors, 0, colors, 0, n);
+            g.markerColors = colors;
+            g.allocations += 3;
+        }
+        g.markerX[n] = x;
+        g.markerY[n] = g.projection.y(series.getValue(index));
+        g.markerColors[n] = stats.anomalyBand(k).color | 0xFF000000;
+        g.markerCount++;
+    }
+
+    private void initLabels(ChartSnapshot g) {
+        Ticks ticks = g.levelTicks;
+        g.maxLevelLabel = ticks.getLabel(ticks.size() - 1);
+        g.maxDataLabel = String.valueOf(g.maxData);
+    }
+
+    /**
+     * The level formatter of the style behind a cache, the levels repeat on every layout
+     * pass while the range doesn't change. Also the identity the tick sets are memoized by.
+     */
+    private LabelFormatter getLevelLabels() {
+        LabelCache cache = mLevelLabels;
+        if (cache == null || cache.getFormatter() != mStyle.levelFormatter) {
+            cache = new LabelCache(mStyle.levelFormatter, LabelCache.DEFAULT_SIZE);
+            mLevelLabels = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * The label formatter of the style behind a cache, the crosshair goes back and forth
+     * over the same points. Keyed by value, so the series can be shared between charts.
+     */
+    LabelFormatter getTipLabels() {
+        LabelCache cache = mTipLabels;
+        if (cache == null || cache.getFormatter() != mStyle.labelFormatter) {
+            cache = new LabelCache(mStyle.labelFormatter, LabelCache.DEFAULT_SIZE);
+            mTipLabels = cache;
+        }
+        return cache;
+    }
+
+    Series movingSeries() {
+        if (moveSeries == 0) {
+            return mSeries;
+        }
+        return moveSeries <= mOverlays.size() ? mOverlays.get(moveSeries - 1).series : null;
+    }
+
+    /**
+     * Shows the crosshair at the point closest to (x, y).
+     */
+    public void touch(float x, float y) {
+        isDrawMoveLine = true;
+        countRoundPoint(x, y);
+    }
+
+    public void hideCrosshair() {
+        isDrawMoveLine = false;
+        moveIndex = -1;
+    }
+
+    /**
+     * Picks the point closest to the touch over all series in one pass,
+     * a binary search per series.
+     */
+    private void countRoundPoint(float x, float y) {
+        moveIndex = -1;
+        // the points as shown, an async pass may not have caught up with the viewport yet
+        ChartSnapshot g = mSnapshot;
+        double start = g.viewportStart;
+        double stop = start + (g.width - g.spaceLeft - g.spaceRight) / g.proportionWidth;
+        double target = start + (x - g.spaceLeft) / g.proportionWidth;
+        float bestDistance = Float.MAX_VALUE;
+        int lineCount = Math.min(g.lines.length, mOverlays.size());
+        for (int s = 0; s <= lineCount; s++) {
+            Series series;
+            int first;
+            int last;
+            if (s == 0) {
+                series = mSeries;
+                first = g.firstIndex;
+                last = g.lastIndex;
+            } else {
+                ChartSnapshot.Line line = g.lines[s - 1];
+                series = mOverlays.get(s - 1).series;
+                first = line.firstIndex;
+                last = line.lastIndex;
+            }
+            if (series.isEmpty() || first > last) {
+                continue;
+            }
+            // only points inside the plot can be picked
+            int location = HitTest.pick(series, target, start, stop);
+            if (location < first || location > last || location >= series.size()) {
+                continue;
+            }
+            // projected again, a decimated snapshot doesn't keep every point
+            float pointX = g.projection.x(series.getX(location));
+            float pointY = g.projection.y(series.getValue(location));
+            float dx = pointX - x;
+            float dy = pointY - y;
+            float distance = dx * dx + dy * dy;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                moveIndex = location;
+                moveSeries = s;
+                moveX = pointX;
+                moveY = pointY;
+            }
+        }
+
+        Series series = movingSeries();
+        if (moveIndex != -1 && series.hasTimestamps() && series.getBottomLabel(moveIndex).isEmpty()) {
+            // formatted once, when the point is picked the first time
+            series.setBottomLabel(moveIndex, mTimeFormat.format(new Date(series.getTimestamp(moveIndex))));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Opt-in timings of a chart, set with {@link ChartEngine#setMetrics(ChartMetrics)}: how long
+ * each phase took in the last frame and rolling histograms of it, how many points were
+ * drawn for how many points of data, and how many buffers the layout allocated.
+ *
+ * Phases are timed with {@link #begin(int)} and {@link #end(long)}, which also open and close
+ * a section of the {@link Tracer} if one is set, e.g. android.os.Trace. Those two may be
+ * called from the layout worker, everything else only from the thread drawing the chart.
+ *
+ * The histograms roll over: {@link #getHistogram(int)} covers the window in progress,
+ * {@link #getPreviousHistogram(int)} the last complete one.
+ */
+public class ChartMetrics {
+
+    // layout pass, value range, projection and labels
+    public static final int PHASE_LAYOUT = 0;
+    // projection and decimation of all series, part of the layout
+    public static final int PHASE_PROJECTION = 1;
+    // background and lines: building the paths and drawing them
+    public static final int PHASE_PATH = 2;
+    // axis, level lines and text
+    public static final int PHASE_CHROME = 3;
+    // crosshair and tips
+    public static final int PHASE_OVERLAY = 4;
+    // a whole frame
+    public static final int PHASE_FRAME = 5;
+    // from a touch event to the end of the frame showing it
+    public static final int PHASE_TOUCH = 6;
+    public static final int PHASE_COUNT = 7;
+
+    public static final long DEFAULT_WINDOW_NANOS = 10_000_000_000L;
+
+    private static final String[] PHASE_NAMES = {
+            "LineChart.layout", "LineChart.projection", "LineChart.path", "LineChart.chrome",
+            "LineChart.overlay", "LineChart.frame", "LineChart.touch"
+    };
+
+    /**
+     * Notified at the end of every frame.
+     */
+    public interface Listener {
+        void onFrame(ChartMetrics metrics);
+    }
+
+    /**
+     * Receives the phases as nested sections, must be safe to call from any thread.
+     */
+    public interface Tracer {
+        void beginSection(String name);
+
+        void endSection();
+    }
+
+    private final long mWindowNanos;
+    private long mWindowStart;
+    private Histogram[] mCurrent = histograms();
+    private Histogram[] mPrevious = histograms();
+    private final long[] mLastNanos = new long[PHASE_COUNT];
+    private long mFrames;
+    private int mDrawnPoints;
+    private int mDataPoints;
+    private int mAllocations;
+    private int mFrameAllocations;
+    private Listener mListener;
+    private volatile Tracer mTracer;
+
+    public ChartMetrics() {
+        this(DEFAULT_WINDOW_NANOS);
+    }
+
+    /**
+     * @param windowNanos time covered by one histogram window
+     */
+    public ChartMetrics(long windowNanos) {
+        mWindowNanos = windowNanos;
+        mWindowStart = System.nanoTime();
+    }
+
+    private static Histogram[] histograms() {
+        Histogram[] histograms = new Histogram[PHASE_COUNT];
+        for (int i = 0; i < PHASE_COUNT; i++) {
+            histograms[i] = new Histogram();
+        }
+        return histograms;
+    }
+
+    public static String getPhaseName(int phase) {
+        return PHASE_NAMES[phase];
+    }
+
+    public void setListener(Listener listener) {
+        this.mListener = listener;
+    }
+
+    public Tracer getTracer() {
+        return mTracer;
+    }
+
+    public void setTracer(Tracer tracer) {
+        this.mTracer = tracer;
+    }
+
+    /**
+     * Starts timing phase.
+     *
+     * @return the start time to pass to {@link #end(long)}
+     */
+    public long begin(int phase) {
+        Tracer tracer = mTracer;
+        if (tracer != null) {
+            tracer.beginSection(PHASE_NAMES[phase]);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * @return the nanoseconds since start, to be passed to {@link #record(int, long)}
+     */
+    public long end(long start) {
+        long nanos = System.nanoTime() - start;
+        Tracer tracer = mTracer;
+        if (tracer != null) {
+            tracer.endSection();
+        }
+        return nanos;
+    }
+
+    public void record(int phase, long nanos) {
+        roll(System.nanoTime());
+        mLastNanos[phase] = nanos;
+        mCurrent[phase].record(nanos);
+    }
+
+    void addAllocations(int allocations) {
+        mAllocations += allocations;
+    }
+
+    private void roll(long now) {
+        if (now - mWindowStart < mWindowNanos) {
+            return;
+        }
+        Histogram[] previous = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = previous;
+        for (Histogram histogram : mCurrent) {
+            histogram.reset();
+        }
+        // a window without any frames leaves nothing to compare against
+        if (now - mWindowStart >= 2 * mWindowNanos) {
+            for (Histogram histogram : mPrevious) {
+                histogram.reset();
+            }
+        }
+        mWindowStart = now;
+    }
+
+    /**
+     * Ends a frame and notifies the listener.
+     *
+     * @param drawnPoints points of all series drawn in the frame
+     * @param dataPoints  points in the data of all series
+     */
+    public void frame(int drawnPoints, int dataPoints) {
+        mFrames++;
+        mDrawnPoints = drawnPoints;
+        mDataPoints = dataPoints;
+        mFrameAllocations = mAllocations;
+        mAllocations = 0;
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onFrame(this);
+        }
+    }
+
+    public long getFrameCount() {
+        return mFrames;
+    }
+
+    /**
+     * @return duration of phase when it was last recorded
+     */
+    public long getLastNanos(int phase) {
+        return mLastNanos[phase];
+    }
+
+    public Histogram getHistogram(int phase) {
+        return mCurrent[phase];
+    }
+
+    public Histogram getPreviousHistogram(int phase) {
+        return mPrevious[phase];
+    }
+
+    public int getDrawnPoints() {
+        return mDrawnPoints;
+    }
+
+    public int getDataPoints() {
+        return mDataPoints;
+    }
+
+    /**
+     * @return buffers the layout allocated since the previous frame, 0 when it only reused them
+     */
+    public int getAllocations() {
+        return mFrameAllocations;
+    }
+}
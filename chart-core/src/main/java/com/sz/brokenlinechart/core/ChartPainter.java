@@ -0,0 +1,318 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Turns the current snapshot of a {@link ChartEngine} into {@link Renderer} calls.
+ *
+ * The chart is drawn in two layers: the static layer (axis, level lines and text,
+ * background and lines) only changes with {@link ChartEngine#getVersion()}, so a
+ * renderer may record it once and replay it, the crosshair is drawn on top of it in
+ * every frame.
+ */
+public class ChartPainter {
+
+    // the level labels sit one text height below their line, measured at this size
+    private static final float LEVEL_MEASURE_TEXT_SIZE = 12;
+
+    private final ChartEngine mEngine;
+    private final ChartStyle mStyle;
+    private final float[] mTextBounds = new float[2];
+
+    public ChartPainter(ChartEngine engine) {
+        mEngine = engine;
+        mStyle = engine.getStyle();
+    }
+
+    /**
+     * With {@link ChartEngine#setMetrics(ChartMetrics)} the drawing is timed in the phases
+     * {@link ChartMetrics#PHASE_CHROME} (drawBottomText to drawLevelText) and
+     * {@link ChartMetrics#PHASE_PATH} (drawBands to drawMarkers).
+     */
+    public void paintStatic(Renderer renderer) {
+        ChartSnapshot g = mEngine.getSnapshot();
+        ChartMetrics metrics = mEngine.getMetrics();
+        long start = metrics != null ? metrics.begin(ChartMetrics.PHASE_CHROME) : 0;
+        drawBottomText(renderer, g);
+        drawBottomLine(renderer, g);
+        drawLevelLine(renderer, g);
+        drawLevelText(renderer, g);
+        if (metrics != null) {
+            metrics.record(ChartMetrics.PHASE_CHROME, metrics.end(start));
+            start = metrics.begin(ChartMetrics.PHASE_PATH);
+        }
+        drawBands(renderer, g);
+        drawBackground(renderer, g);
+        drawBrokenLine(renderer, g);
+        drawStats(renderer, g);
+        drawMarkers(renderer, g);
+        if (metrics != null) {
+            metrics.record(ChartMetrics.PHASE_PATH, metrics.end(start));
+        }
+    }
+
+    /**
+     * Timed as {@link ChartMetrics#PHASE_OVERLAY}.
+     */
+    public void paintCrosshair(Renderer renderer) {
+        ChartMetrics metrics = mEngine.getMetrics();
+        long start = metrics != null ? metrics.begin(ChartMetrics.PHASE_OVERLAY) : 0;
+        drawMovingLine(renderer, mEngine.getSnapshot());
+        if (metrics != null) {
+            metrics.record(ChartMetrics.PHASE_OVERLAY, metrics.end(start));
+        }
+    }
+
+    private void drawBottomText(Renderer renderer, ChartSnapshot g) {
+        ChartStyle style = mStyle;
+        float currentTextY = g.height - style.textSize;
+        Ticks ticks = g.timeTicks;
+        if (ticks != null) {
+            float left = style.horizontalSpaceLeft;
+            float right = g.width - style.horizontalSpaceRight;
+            for (int i = 0; i < ticks.size(); ++i) {
+                float x = g.projection.x(ticks.getValue(i));
+                if (x >= left && x <= right) {
+                    renderer.drawText(ticks.getLabel(i), x, currentTextY, style.textSize, style.fontColor, Renderer.ALIGN_CENTER);
+                }
+            }
+            return;
+        }
+        renderer.drawText(g.startText, style.horizontalSpaceLeft, currentTextY, style.textSize, style.fontColor, Renderer.ALIGN_LEFT);
+        renderer.drawText(g.stopText, g.width - style.horizontalSpaceRight, currentTextY, style.textSize, style.fontColor, Renderer.ALIGN_RIGHT);
+    }
+
+    private void drawBottomLine(Renderer renderer, ChartSnapshot g) {
+        ChartStyle style = mStyle;
+        float bottomLineStartX = style.horizontalSpaceLeft;
+        float bottomLineStopX = g.width - style.horizontalSpaceRight;
+        float bottomLineStartY = g.height - style.verticalSpaceBottom;
+        float bottomLineStopY = bottomLineStartY;
+
+        renderer.drawLine(bottomLineStartX, bottomLineStartY, bottomLineStopX, bottomLineStopY,
+                style.bottomLineColor, style.bottomLineWidth, 0);
+
+        // ticks at both ends of the axis
+        float verticalLineStartY = g.height - style.verticalSpaceBottom;
+        float verticalLineStopY = verticalLineStartY + style.bottomVerticalLineHeight;
+        renderer.drawLine(bottomLineStartX, verticalLineStartY, bottomLineStartX, verticalLineStopY,
+                style.bottomVerticalLineColor, style.bottomVerticalLineWidth, 0);
+        renderer.drawLine(bottomLineStopX, verticalLineStartY, bottomLineStopX, verticalLineStopY,
+                style.bottomVerticalLineColor, style.bottomVerticalLineWidth, 0);
+
+        // and at the time ticks
+        Ticks ticks = g.timeTicks;
+        if (ticks != null) {
+            for (int i = 0; i < ticks.size(); ++i) {
+                float x = g.projection.x(ticks.getValue(i));
+                if (x > bottomLineStartX && x < bottomLineStopX) {
+                    renderer.drawLine(x, verticalLineStartY, x, verticalLineStopY,
+                            style.bottomVerticalLineColor, style.bottomVerticalLineWidth, 0);
+                }
+            }
+        }
+    }
+
+    private void drawLevelLine(Renderer renderer, ChartSnapshot g) {
+        ChartStyle style = mStyle;
+        Ticks ticks = g.levelTicks;
+        if (style.levels <= 0 || ticks == null)
+            return;
+
+        float lineStartX = style.horizontalSpaceLeft;
+        float lineStopX = g.width - style.horizontalSpaceRight;
+        // the first tick is on the bottom line
+        for (int i = 1; i < ticks.size(); ++i) {
+            float lineY = g.projection.y((float) ticks.getValue(i));
+            renderer.drawLine(lineStartX, lineY, lineStopX, lineY, style.levelLineColor, style.levelLineWidth, style.levelDash);
+        }
+    }
+
+    private void drawLevelText(Renderer renderer, ChartSnapshot g) {
+        ChartStyle style = mStyle;
+        Ticks ticks = g.levelTicks;
+        if (style.levels < 0 || ticks == null)
+            return;
+
+        renderer.measureText(g.maxLevelLabel, LEVEL_MEASURE_TEXT_SIZE, mTextBounds);
+        float fontHeight = mTextBounds[1];
+
+        float textStartX = style.horizontalSpaceLeft - style.leftTextSpace;
+        for (int i = 0; i < ticks.size(); ++i) {
+            float textStartY = g.projection.y((float) ticks.getValue(i)) + fontHeight;
+            renderer.drawText(ticks.getLabel(i), textStartX, textStartY, style.levelTextSize, style.fontColor, Renderer.ALIGN_RIGHT);
+        }
+    }
+
+    private void clipPlot(Renderer renderer, ChartSnapshot g) {
+        renderer.clipRect(mStyle.horizontalSpaceLeft, 0, g.width - mStyle.horizontalSpaceRight, g.height);
+    }
+
+    private void drawBackground(Renderer renderer, ChartSnapshot g) {
+        if (g.pointCount <= 1) {
+            return;
+        }
+        ChartStyle style = mStyle;
+        float baseline = g.height - style.verticalSpaceBottom;
+        float gradientTop = baseline - (g.maxData - g.minData) * g.proportionHeight;
+        if (g.clip) {
+            clipPlot(renderer, g);
+        }
+        Transition transition = mEngine.getTransition();
+        if (transition.isRunning()) {
+            // straight segments while the points move, the control points belong to the target
+            renderer.fillArea(g.drawX, transition.getTrack(0).y, 0, g.drawCount, style.horizontalSpaceLeft, baseline,
+                    gradientTop, style.linearGradientStartColor, style.linearGradientStopColor);
+        } else if (g.smoothing != Smoothing.NONE) {
+            renderer.fillCurveArea(g.drawX, g.drawY, g.controls, g.drawCount, style.horizontalSpaceLeft, baseline,
+                    gradientTop, style.linearGradientStartColor, style.linearGradientStopColor);
+        } else {
+            shift(renderer, g);
+            renderer.fillArea(g.drawX, g.drawY, g.drawFrom, g.drawCount, style.horizontalSpaceLeft - g.drawShift, baseline,
+                    gradientTop, style.linearGradientStartColor, style.linearGradientStopColor);
+            unshift(renderer, g);
+        }
+        if (g.clip) {
+            renderer.restore();
+        }
+    }
+
+    private void drawBrokenLine(Renderer renderer, ChartSnapshot g) {
+        ChartStyle style = mStyle;
+        if (g.clip) {
+            clipPlot(renderer, g);
+        }
+        // the main series on top
+        Transition transition = mEngine.getTransition();
+        boolean animating = transition.isRunning();
+        boolean smooth = g.smoothing != Smoothing.NONE;
+        for (int i = 0; i < g.lines.length; i++) {
+            ChartSnapshot.Line line = g.lines[i];
+            if (animating) {
+                renderer.drawPolyline(line.drawX, transition.getTrack(i + 1).y, 0, line.drawCount, line.color, style.brokenLineWidth);
+            } else if (smooth) {
+                renderer.drawCurve(line.drawX, line.drawY, line.controls, line.drawCount, line.color, style.brokenLineWidth);
+            } else {
+                renderer.drawPolyline(line.drawX, line.drawY, 0, line.drawCount, line.color, style.brokenLineWidth);
+            }
+        }
+        if (animating) {
+            renderer.drawPolyline(g.drawX, transition.getTrack(0).y, 0, g.drawCount, style.brokenLineColor, style.brokenLineWidth);
+        } else if (smooth) {
+            renderer.drawCurve(g.drawX, g.drawY, g.controls, g.drawCount, style.brokenLineColor, style.brokenLineWidth);
+        } else {
+            shift(renderer, g);
+            renderer.drawPolyline(g.drawX, g.drawY, g.drawFrom, g.drawCount, style.brokenLineColor, style.brokenLineWidth);
+            unshift(renderer, g);
+        }
+        if (g.clip) {
+            renderer.restore();
+        }
+    }
+
+    // appends slide the drawn points through their buffer instead of moving them, see drawShift
+    private static void shift(Renderer renderer, ChartSnapshot g) {
+        if (g.drawShift != 0) {
+            renderer.translate(g.drawShift, 0);
+        }
+    }
+
+    private static void unshift(Renderer renderer, ChartSnapshot g) {
+        if (g.drawShift != 0) {
+            renderer.restore();
+        }
+    }
+
+    private void drawBands(Renderer renderer, ChartSnapshot g) {
+        float left = mStyle.horizontalSpaceLeft;
+        float right = g.width - mStyle.horizontalSpaceRight;
+        for (int i = 0; i < g.bands.length; i++) {
+            if (g.bandTops[i] < g.bandBottoms[i]) {
+                renderer.fillRoundRect(left, g.bandTops[i], right, g.bandBottoms[i], 0, g.bands[i].color);
+            }
+        }
+    }
+
+    private void drawStats(Renderer renderer, ChartSnapshot g) {
+        if (g.statsCount <= 1) {
+            return;
+        }
+        ChartStyle style = mStyle;
+        // the envelope may leave the value range
+        renderer.clipRect(style.horizontalSpaceLeft, style.verticalSpaceTop, g.width - style.horizontalSpaceRight,
+                g.height - style.verticalSpaceBottom);
+        renderer.drawPolyline(g.statsX, g.upperY, 0, g.statsCount, style.envelopeLineColor, style.averageLineWidth);
+        renderer.drawPolyline(g.statsX, g.lowerY, 0, g.statsCount, style.envelopeLineColor, style.averageLineWidth);
+        renderer.drawPolyline(g.statsX, g.meanY, 0, g.statsCount, style.averageLineColor, style.averageLineWidth);
+        renderer.restore();
+    }
+
+    private void drawMarkers(Renderer renderer, ChartSnapshot g) {
+        if (g.markerCount == 0) {
+            return;
+        }
+        if (g.clip) {
+            clipPlot(renderer, g);
+        }
+        for (int i = 0; i < g.markerCount; i++) {
+            renderer.fillCircle(g.markerX[i], g.markerY[i], mStyle.markerRadius, g.markerColors[i]);
+        }
+        if (g.clip) {
+            renderer.restore();
+        }
+    }
+
+    private void drawMovingLine(Renderer renderer, ChartSnapshot g) {
+        ChartEngine engine = mEngine;
+        if (!engine.isDrawMoveLine) {
+            return;
+        }
+        Series series = engine.movingSeries();
+        int moveIndex = engine.moveIndex;
+        if (moveIndex == -1 || series == null || moveIndex >= series.size())
+            return;
+
+        ChartStyle style = mStyle;
+        float moveX = engine.moveX;
+        float moveY = engine.moveY;
+
+        renderer.drawLine(style.horizontalSpaceLeft, moveY, g.width - style.horizontalSpaceRight, moveY,
+                style.movingLineColor, style.movingLineWidth, style.movingLineDash);
+        renderer.drawLine(moveX, style.verticalSpaceTop, moveX, g.height - style.verticalSpaceBottom,
+                style.movingLineColor, style.movingLineWidth, style.movingLineDash);
+
+        renderer.fillCircle(moveX, moveY, style.movingPointRadiusOuter, style.pointOuterColor);
+        renderer.fillCircle(moveX, moveY, style.movingPointRadiusInner, style.pointInnerColor);
+
+        {
+            // bottom
+            renderer.measureText(g.startText, style.textSize, mTextBounds);
+            float fontWidth = mTextBounds[0];
+            float fontHeight = mTextBounds[1];
+
+            float left = moveX - fontWidth / 2 - style.textPadding;
+            float right = moveX + fontWidth / 2 + style.textPadding;
+            float top = g.height - style.verticalSpaceBottom + style.bottomVerticalLineHeight / 2;
+            float bottom = top + style.textPadding * 2 + fontHeight;
+            drawTip(renderer, series.getBottomLabel(moveIndex), left, top, right, bottom, style.bottomTipFrameColor);
+        }
+
+        {
+            // left
+            renderer.measureText(g.maxDataLabel, style.textSize, mTextBounds);
+            float fontWidth = mTextBounds[0];
+            float fontHeight = mTextBounds[1];
+
+            float left = style.horizontalSpaceLeft - style.leftTextSpace - fontWidth - style.textPadding * 4;
+            float right = style.horizontalSpaceLeft - style.leftTextSpace;
+            float top = moveY - fontHeight / 2 - style.textPadding;
+            float bottom = moveY + fontHeight / 2 + style.textPadding;
+            drawTip(renderer, series.getLeftLabel(moveIndex, mEngine.getTipLabels()), left, top, right, bottom, style.leftTipFrameColor);
+        }
+    }
+
+    private void drawTip(Renderer renderer, String text, float left, float top, float right, float bottom, int frameColor) {
+        ChartStyle style = mStyle;
+        renderer.fillRoundRect(left, top, right, bottom, style.tipRadius, frameColor);
+        float baseline = (top + bottom) / 2 + renderer.centerToBaseline(style.textSize);
+        renderer.drawText(text, (left + right) / 2, baseline, style.textSize, style.tipTextColor, Renderer.ALIGN_CENTER);
+    }
+}
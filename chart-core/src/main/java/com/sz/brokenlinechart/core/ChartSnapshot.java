@@ -0,0 +1,174 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * The result of one layout pass of {@link ChartEngine}: value range, projected points,
+ * axis text and level labels. {@link ChartPainter} draws a chart from it alone.
+ *
+ * In the default mode the engine updates its snapshot in place. With async layout
+ * every pass builds a new snapshot on a worker thread, which is not modified anymore
+ * once it has been published.
+ */
+final class ChartSnapshot {
+
+    // version of the chart inputs this snapshot was built from
+    int generation;
+    // cost of the pass that built it, see ChartMetrics
+    long layoutNanos;
+    long projectionNanos;
+    int allocations;
+
+    // inputs, together with the style settings below all a pass reads besides the series
+    float width;
+    float height;
+    float proportionWidth;
+    float brokenLineHeight;
+    float spaceLeft;
+    float spaceRight;
+    float spaceTop;
+    // the value axis: pixels between level lines, most intervals and the label formatter,
+    // null for none
+    float levelSpacing;
+    int levels;
+    LabelFormatter levelLabels;
+    // null draws every point
+    Downsampler downsampler;
+    double viewportStart;
+    // data indices of the first and last projected point
+    int firstIndex;
+    int lastIndex = -1;
+    // zoomed in, the lines are clipped to the plot
+    boolean clip;
+    // one of the Smoothing modes
+    int smoothing;
+    // laid out for a data change, the lines animate towards it
+    boolean animate;
+    // labels at both ends of the x axis
+    String startText = "";
+    String stopText = "";
+    // min/max over index ranges, lets a decimated window be projected per pixel column
+    // instead of per point, null to read every point
+    RangeQuery summary;
+
+    // value range
+    float maxData;
+    float minData;
+    // real extremes of the visible data, only valid when hasData is set
+    boolean hasData;
+    float rawMax;
+    float rawMin;
+    float proportionHeight;
+
+    // maps x values and data values to pixels, follows the inputs and the value range
+    final Projection projection = new Projection();
+
+    // projected points, only the first pointCount entries are valid
+    // decimated: a large window keeps the first, min, max and last point per pixel column
+    // instead of every point, see Projection.projectColumns
+    boolean decimated;
+    float[] pointsX = new float[0];
+    float[] pointsY = new float[0];
+    int pointCount;
+    // appends to a full series slide the points through the buffer instead of moving them:
+    // the points start at pointStart, and are drawn pointShift further right. Both are 0
+    // after a layout pass
+    int pointStart;
+    float pointShift;
+
+    // points that are actually drawn, same as points unless a downsampler is set,
+    // the drawCount entries from drawFrom, drawShift further right
+    float[] drawX = pointsX;
+    float[] drawY = pointsY;
+    int drawFrom;
+    float drawShift;
+    int drawCount;
+    // with smoothing, the control points of the curve through the drawn points
+    float[] controls = new float[0];
+
+    // threshold bands and rolling statistics of the main series, see RollingStats
+    ThresholdBand[] bands = new ThresholdBand[0];
+    int rollingWindow;
+    float envelopeDeviations;
+    // the statistics of the series, null until a worker computed its own
+    RollingStats stats;
+    // pixel extent of each band within the value range, empty if top >= bottom
+    float[] bandTops = new float[0];
+    float[] bandBottoms = new float[0];
+    // the moving average and its envelope, one point per point or per pixel column
+    float[] statsX = new float[0];
+    float[] meanY = new float[0];
+    float[] upperY = new float[0];
+    float[] lowerY = new float[0];
+    int statsCount;
+    // points inside a band, at most one per pixel column
+    float[] markerX = new float[0];
+    float[] markerY = new float[0];
+    int[] markerColors = new int[0];
+    int markerCount;
+
+    // the additional series, drawn as plain lines
+    Line[] lines = new Line[0];
+
+    // ticks of the value axis, the range is from the first to the last one
+    Ticks levelTicks;
+    // ticks of a time axis, null unless the data has timestamps
+    Ticks timeTicks;
+    String maxLevelLabel = "";
+    String maxDataLabel = "";
+
+    ChartSnapshot(float maxData, float minData) {
+        this.maxData = maxData;
+        this.minData = minData;
+    }
+
+    /**
+     * Drops the range index and the statistics of the series, which are only read while
+     * laying out. A snapshot kept by a {@link GeometryCache} would otherwise keep them alive,
+     * e.g. after the series was removed from a {@link SeriesStore}, without them counting
+     * against its budget.
+     */
+    void dropSources() {
+        summary = null;
+        stats = null;
+        for (Line line : lines) {
+            line.summary = null;
+        }
+    }
+
+    /**
+     * Approximate heap size of the buffers, for the budget of a {@link GeometryCache}.
+     */
+    long byteSize() {
+        // the fields, the labels and the array headers
+        long size = 512;
+        size += 4L * (pointsX.length + pointsY.length + controls.length);
+        if (drawX != pointsX) {
+            size += 4L * (drawX.length + drawY.length);
+        }
+        size += 4L * (bandTops.length + bandBottoms.length + statsX.length + meanY.length + upperY.length + lowerY.length);
+        size += 4L * (markerX.length + markerY.length + markerColors.length);
+        for (Line line : lines) {
+            size += 64 + 4L * (line.pointsX.length + line.pointsY.length + line.controls.length);
+            if (line.drawX != line.pointsX) {
+                size += 4L * (line.drawX.length + line.drawY.length);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Geometry of one additional series, projected into the shared value range.
+     */
+    static final class Line {
+        int color;
+        int firstIndex;
+        int lastIndex = -1;
+        RangeQuery summary;
+        float[] pointsX = new float[0];
+        float[] pointsY = new float[0];
+        int pointCount;
+        float[] drawX = pointsX;
+        float[] drawY = pointsY;
+        int drawCount;
+        float[] controls = new float[0];
+    }
+}
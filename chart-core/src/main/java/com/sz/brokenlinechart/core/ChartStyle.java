@@ -0,0 +1,97 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Colors and dimensions of the chart, all dimensions in pixels.
+ *
+ * The constructor converts the dp and sp defaults with the given densities, on Android
+ * those of the display, 1 for plain pixels.
+ */
+public class ChartStyle {
+
+    public static final int DEFAULT_LEVEL_NUMBER = 5;
+    public static final float DEFAULT_TEXT_SIZE = 12f; // sp
+    public static final float DEFAULT_LEVEL_LINE_WIDTH = 4;
+    public static final float DEFAULT_BOTTOM_LINE_WIDTH = 4;
+    public static final float DEFAULT_BROKEN_LINE_WIDTH = 5;
+    public static final float DEFAULT_BOTTOM_VERTICAL_LINE_WIDTH = 2;
+    public static final float DEFAULT_MOVING_LINE_WIDTH = 3;
+    public static final float DEFAULT_MOVING_POINT_RADIUS_INNER = 16;
+    public static final float DEFAULT_MOVING_POINT_RADIUS_OUTER = DEFAULT_MOVING_POINT_RADIUS_INNER + 3;
+    public static final float DEFAULT_LEFT_TEXT_SPACE = 15;
+    public static final float DEFAULT_TEXT_PADDING = 18;
+    public static final float DEFAULT_DASH_DIP1 = 1;
+    public static final float DEFAULT_DASH_DIP2 = 2;
+    public static final float DEFAULT_DASH_DIP3 = 3;
+    public static final float DEFAULT_DASH_DIP4 = 4;
+    public static final float DEFAULT_LEVEL_SPACING = 32; // dp
+    public static final float DEFAULT_TIME_TICK_SPACING = 96; // dp
+
+    public int fontColor = 0xFFC8C8C8;
+    public int levelLineColor = 0xFFD7D7D7;
+    public int bottomLineColor = 0xFFC9C9C9;
+    public int bottomVerticalLineColor = 0xFFC9C9C9;
+    public int movingLineColor = 0xFF1777FF;
+    public int brokenLineColor = 0xFF1777FF;
+    public int extraLineColor = 0xFFFF9500;
+    public int linearGradientStartColor = 0x2D266CDE;
+    public int linearGradientStopColor = 0x00FFFFFF;
+    public int pointInnerColor = 0xFF1777FF;
+    public int pointOuterColor = 0xFFFFFFFF;
+    public int bottomTipFrameColor = 0xFF1777FF;
+    public int leftTipFrameColor = 0xFF1777FF;
+    public int tipTextColor = 0xFFFFFFFF;
+    public int averageLineColor = 0xFF8E8E93;
+    public int envelopeLineColor = 0x808E8E93;
+
+    public float leftTextSpace = DEFAULT_LEFT_TEXT_SPACE;
+    public float horizontalSpaceLeft = 170f;
+    public float horizontalSpaceRight = 50f;
+    public float verticalSpaceTop = 75f;
+    public float verticalSpaceBottom = 100f;
+    public float bottomVerticalLineHeight = 20f;
+    public float movingPointRadiusOuter = DEFAULT_MOVING_POINT_RADIUS_OUTER;
+    public float movingPointRadiusInner = DEFAULT_MOVING_POINT_RADIUS_INNER;
+    public float bottomLineWidth = DEFAULT_BOTTOM_LINE_WIDTH;
+    public float levelLineWidth = DEFAULT_LEVEL_LINE_WIDTH;
+    public float bottomVerticalLineWidth = DEFAULT_BOTTOM_VERTICAL_LINE_WIDTH;
+    public float brokenLineWidth = DEFAULT_BROKEN_LINE_WIDTH;
+    public float movingLineWidth = DEFAULT_MOVING_LINE_WIDTH;
+    public float textPadding = DEFAULT_TEXT_PADDING;
+    public float tipRadius = 7;
+    public float averageLineWidth = 3;
+    public float markerRadius = 8;
+    // axis and tip text
+    public float textSize;
+    public float levelTextSize;
+    public float levelDash;
+    public float movingLineDash;
+    // least space between two level lines and between two time ticks
+    public float levelSpacing;
+    public float timeTickSpacing;
+
+    // most intervals between level lines, fewer when they would be closer than levelSpacing
+    public int levels = DEFAULT_LEVEL_NUMBER;
+    // the line as a smooth curve, one of the Smoothing modes
+    public int smoothing = Smoothing.NONE;
+    // points of the moving average, 0 for none, and the width of its envelope in
+    // standard deviations to either side
+    public int rollingWindow;
+    public float envelopeDeviations = 2;
+    // the tip of the picked point, like "%.2f"
+    public LabelFormatter labelFormatter = new DecimalLabelFormatter(2);
+    // level labels, null for as many decimals as the step between levels needs
+    public LabelFormatter levelFormatter;
+
+    /**
+     * @param density       pixels per dp
+     * @param scaledDensity pixels per sp
+     */
+    public ChartStyle(float density, float scaledDensity) {
+        textSize = DEFAULT_TEXT_SIZE * scaledDensity;
+        levelTextSize = DEFAULT_TEXT_SIZE * density;
+        levelDash = DEFAULT_DASH_DIP2 * density;
+        movingLineDash = DEFAULT_DASH_DIP4 * density;
+        levelSpacing = DEFAULT_LEVEL_SPACING * density;
+        timeTickSpacing = DEFAULT_TIME_TICK_SPACING * density;
+    }
+}
@@ -0,0 +1,107 @@
+package com.sz.brokenlinechart.core;
+
+import java.text.DecimalFormatSymbols;
+
+/**
+ * Formats values with a fixed number of decimals like the pattern "%.2f", without going
+ * through {@link java.util.Formatter}: the value is rounded half up to a long and its
+ * digits are written into a char buffer. Values too large for that, NaN and infinities
+ * fall back to {@link String#format}.
+ *
+ * Uses the decimal separator and digits of the default locale at construction, the same
+ * ones String.format would use.
+ */
+public class DecimalLabelFormatter implements LabelFormatter {
+
+    private static final long[] POWERS = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L};
+    // below 2^52 the scaled value and the half added for rounding are exact doubles
+    private static final double MAX_SCALED = 1L << 52;
+
+    private final int decimals;
+    private final String pattern;
+    private final char separator;
+    private final char zero;
+
+    /**
+     * @param decimals 0 to 6
+     */
+    public DecimalLabelFormatter(int decimals) {
+        if (decimals < 0 || decimals >= POWERS.length) {
+            throw new IllegalArgumentException("decimals not valid");
+        }
+        this.decimals = decimals;
+        this.pattern = "%." + decimals + "f";
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
+        this.separator = symbols.getDecimalSeparator();
+        this.zero = symbols.getZeroDigit();
+    }
+
+    // equal formatters format alike, charts sharing a GeometryCache compare them
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof DecimalLabelFormatter)) {
+            return false;
+        }
+        DecimalLabelFormatter f = (DecimalLabelFormatter) o;
+        return decimals == f.decimals && separator == f.separator && zero == f.zero;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * decimals + separator) + zero;
+    }
+
+    /**
+     * @return a DecimalLabelFormatter for "%.Nf" patterns, a formatter calling
+     * {@link String#format} with the pattern for all others
+     */
+    public static LabelFormatter forPattern(final String pattern) {
+        if (pattern.length() == 4 && pattern.startsWith("%.") && pattern.charAt(3) == 'f') {
+            int decimals = pattern.charAt(2) - '0';
+            if (decimals >= 0 && decimals < POWERS.length) {
+                return new DecimalLabelFormatter(decimals);
+            }
+        }
+        return new LabelFormatter() {
+            @Override
+            public String format(float value) {
+                return String.format(pattern, value);
+            }
+        };
+    }
+
+    public int getDecimals() {
+        return decimals;
+    }
+
+    @Override
+    public String format(float value) {
+        // the float widened to double, which is what the pattern formats as well. A float
+        // times a power of ten up to 10^6 is exact, so ties round the same as Formatter
+        double scaled = Math.abs((double) value) * POWERS[decimals];
+        if (!(scaled < MAX_SCALED)) {
+            return String.format(pattern, value);
+        }
+        // half up, away from zero like Formatter
+        long units = (long) (scaled + 0.5);
+        // sign, up to 16 integer digits, separator and decimals
+        char[] chars = new char[26];
+        int p = chars.length;
+        for (int i = 0; i < decimals; i++) {
+            chars[--p] = (char) (zero + units % 10);
+            units /= 10;
+        }
+        if (decimals > 0) {
+            chars[--p] = separator;
+        }
+        do {
+            chars[--p] = (char) (zero + units % 10);
+            units /= 10;
+        } while (units != 0);
+        // Formatter keeps the sign of negative values that round to zero, "-0.00"
+        if (Float.floatToRawIntBits(value) < 0) {
+            chars[--p] = '-';
+        }
+        return new String(chars, p, chars.length - p);
+    }
+}
@@ -0,0 +1,28 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Reduces the projected points of a series before they are turned into a path.
+ *
+ * Implementations work on pixel coordinates and must keep the points in x order,
+ * so the result can be stroked the same way as the original points.
+ */
+public interface Downsampler {
+
+    /**
+     * @param count      number of input points
+     * @param pixelWidth width of the plot area in pixels
+     * @return the size the output buffers need to have for {@link #downsample}
+     */
+    int capacity(int count, int pixelWidth);
+
+    /**
+     * @param xs         projected x coordinates, ascending
+     * @param ys         projected y coordinates
+     * @param count      number of valid input points
+     * @param pixelWidth width of the plot area in pixels
+     * @param outX       receives the reduced x coordinates
+     * @param outY       receives the reduced y coordinates
+     * @return the number of points written to outX/outY
+     */
+    int downsample(float[] xs, float[] ys, int count, int pixelWidth, float[] outX, float[] outY);
+}
@@ -0,0 +1,177 @@
+package com.sz.brokenlinechart.core;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Layout results shared by the engines showing the same series, keyed by the series and
+ * its version, the chart size and every setting the layout depends on. The least recently
+ * used entries are evicted beyond a memory budget.
+ *
+ * A cached snapshot is never modified again, an engine that took one from the cache
+ * builds a new snapshot for its next layout pass, see
+ * {@link ChartEngine#setGeometryCache(GeometryCache, String)}.
+ */
+public class GeometryCache {
+
+    private final long budget;
+    private long bytes;
+    private final LinkedHashMap<Key, ChartSnapshot> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int hits;
+    private int misses;
+
+    /**
+     * @param budget bytes of projected geometry to keep
+     */
+    public GeometryCache(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("budget not valid");
+        }
+        this.budget = budget;
+    }
+
+    synchronized ChartSnapshot get(Key key) {
+        ChartSnapshot g = entries.get(key);
+        if (g != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return g;
+    }
+
+    synchronized void put(Key key, ChartSnapshot g) {
+        ChartSnapshot old = entries.remove(key);
+        if (old != null) {
+            bytes -= old.byteSize();
+        }
+        long size = g.byteSize();
+        if (size > budget) {
+            return;
+        }
+        entries.put(key, g);
+        bytes += size;
+        Iterator<Map.Entry<Key, ChartSnapshot>> eldest = entries.entrySet().iterator();
+        while (bytes > budget && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().byteSize();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Drops the geometry of the series with the id, e.g. when it is removed from a
+     * {@link SeriesStore}.
+     */
+    public synchronized void remove(String seriesId) {
+        Iterator<Map.Entry<Key, ChartSnapshot>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, ChartSnapshot> entry = it.next();
+            if (entry.getKey().seriesId.equals(seriesId)) {
+                bytes -= entry.getValue().byteSize();
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getHitCount() {
+        return hits;
+    }
+
+    public synchronized int getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Everything a layout pass of a chart with one series depends on. The series compares
+     * by identity, the settings by equals, so charts with their own but equal formatters,
+     * downsamplers and bands share entries.
+     */
+    static final class Key {
+        final String seriesId;
+        final Series series;
+        final int version;
+        final float width;
+        final float height;
+        final double viewportStart;
+        final double viewportSize;
+        final float[] insets;
+        final int levels;
+        // the tick engine picks fewer ticks when they would be closer than these
+        final float levelSpacing;
+        final float timeTickSpacing;
+        final int smoothing;
+        final int rollingWindow;
+        final float envelopeDeviations;
+        final Object[] settings;
+        private final int hash;
+
+        Key(String seriesId, Series series, float width, float height, double viewportStart, double viewportSize,
+            ChartStyle style, Object[] settings) {
+            this.seriesId = seriesId;
+            this.series = series;
+            this.version = series.getVersion();
+            this.width = width;
+            this.height = height;
+            this.viewportStart = viewportStart;
+            this.viewportSize = viewportSize;
+            this.insets = new float[]{style.horizontalSpaceLeft, style.horizontalSpaceRight,
+                    style.verticalSpaceTop, style.verticalSpaceBottom};
+            this.levels = style.levels;
+            this.levelSpacing = style.levelSpacing;
+            this.timeTickSpacing = style.timeTickSpacing;
+            this.smoothing = style.smoothing;
+            this.rollingWindow = style.rollingWindow;
+            this.envelopeDeviations = style.envelopeDeviations;
+            this.settings = settings;
+            int h = seriesId.hashCode();
+            h = 31 * h + System.identityHashCode(series);
+            h = 31 * h + version;
+            h = 31 * h + Float.floatToIntBits(width);
+            h = 31 * h + Float.floatToIntBits(height);
+            h = 31 * h + Float.floatToIntBits(levelSpacing);
+            h = 31 * h + Float.floatToIntBits(timeTickSpacing);
+            long bits = Double.doubleToLongBits(viewportStart) ^ Double.doubleToLongBits(viewportSize);
+            h = 31 * h + (int) (bits ^ (bits >>> 32));
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return hash == k.hash && series == k.series && version == k.version && seriesId.equals(k.seriesId)
+                    && width == k.width && height == k.height
+                    && viewportStart == k.viewportStart && viewportSize == k.viewportSize
+                    && levels == k.levels && levelSpacing == k.levelSpacing && timeTickSpacing == k.timeTickSpacing
+                    && smoothing == k.smoothing && rollingWindow == k.rollingWindow
+                    && envelopeDeviations == k.envelopeDeviations && Arrays.equals(insets, k.insets)
+                    && Arrays.deepEquals(settings, k.settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
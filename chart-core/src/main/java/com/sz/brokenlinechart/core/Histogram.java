@@ -0,0 +1,119 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Counts of non-negative values like durations in nanoseconds, in buckets that are
+ * linear within every power of two (the layout of HdrHistogram): 16 buckets per power
+ * of two, so a recorded value is off by at most 1/16 of itself.
+ *
+ * Recording is a few shifts and an increment, the buckets are a fixed long[], nothing
+ * is allocated after construction. Not thread safe.
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT >> 1;
+    // values below SUB_COUNT are exact, then HALF_COUNT buckets per power of two up to 2^63
+    private static final int BUCKETS = (64 - SUB_BITS) * HALF_COUNT + HALF_COUNT;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    private static int index(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * HALF_COUNT + (int) (value >>> shift);
+    }
+
+    // the largest value that falls into the bucket
+    private static long highestValue(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = index / HALF_COUNT - 1;
+        long sub = index - shift * HALF_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the smallest value recorded, 0 if there are none
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @param percentile 0 to 100
+     * @return the value at or below which percentile percent of the values are, within
+     * the precision of the buckets, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Adds the values of other to this histogram.
+     */
+    public void add(Histogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        count = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+        sum = 0;
+    }
+}
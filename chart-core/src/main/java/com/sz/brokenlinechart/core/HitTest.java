@@ -0,0 +1,29 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Finds the point under a touch.
+ */
+public final class HitTest {
+
+    private HitTest() {
+    }
+
+    /**
+     * The index of the point of series closest to x that lies in [start, stop], a binary
+     * search. When no point lies inside the neighbour of the closest one is returned,
+     * callers check it against the visible points.
+     *
+     * @return -1 for an empty series
+     */
+    public static int pick(Series series, double x, double start, double stop) {
+        if (series.isEmpty()) {
+            return -1;
+        }
+        int location = series.nearest(x);
+        if (series.getX(location) < start && location < series.size() - 1)
+            location++;
+        if (series.getX(location) > stop && location > 0)
+            location--;
+        return location;
+    }
+}
@@ -0,0 +1,62 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * A bounded cache in front of a {@link LabelFormatter}, for labels of values that come
+ * back often like the levels while the range doesn't change.
+ *
+ * Direct mapped: every value has one slot, a new value replaces whatever label was in its
+ * slot. Lookups don't allocate, a miss allocates the label and one entry. Entries are
+ * immutable, so the cache can be shared with the layout worker.
+ */
+public class LabelCache implements LabelFormatter {
+
+    public static final int DEFAULT_SIZE = 64;
+
+    private final LabelFormatter formatter;
+    private final Entry[] entries;
+    private final int mask;
+
+    /**
+     * @param size number of labels kept, rounded up to a power of two
+     */
+    public LabelCache(LabelFormatter formatter, int size) {
+        this.formatter = formatter;
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.entries = new Entry[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public LabelFormatter getFormatter() {
+        return formatter;
+    }
+
+    @Override
+    public String format(float value) {
+        int bits = Float.floatToIntBits(value);
+        // spread the mantissa, nearby values differ in the low bits
+        int slot = (bits ^ (bits >>> 16)) * 0x9E3779B9 >>> 16 & mask;
+        Entry entry = entries[slot];
+        if (entry != null && entry.bits == bits) {
+            return entry.label;
+        }
+        String label = formatter.format(value);
+        entries[slot] = new Entry(bits, label);
+        return label;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = null;
+        }
+    }
+
+    private static final class Entry {
+        final int bits;
+        final String label;
+
+        Entry(int bits, String label) {
+            this.bits = bits;
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Turns values into the text of level labels and tips.
+ *
+ * Labels are only formatted when they are shown, implementations may be called from the
+ * layout worker, see {@link ChartEngine#setAsyncLayout(boolean)}, and must not keep state
+ * that isn't safe to share between threads.
+ */
+public interface LabelFormatter {
+
+    String format(float value);
+}
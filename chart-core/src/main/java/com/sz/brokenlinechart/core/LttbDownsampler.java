@@ -0,0 +1,102 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling.
+ *
+ * The series is split into buckets, one per target point, and from each bucket the point
+ * forming the largest triangle with the previously chosen point and the average of the
+ * next bucket is kept. The first and the last point are always kept.
+ */
+public class LttbDownsampler implements Downsampler {
+
+    // number of output points per pixel column
+    private final float pointsPerPixel;
+
+    public LttbDownsampler() {
+        this(1f);
+    }
+
+    public LttbDownsampler(float pointsPerPixel) {
+        this.pointsPerPixel = pointsPerPixel;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LttbDownsampler && ((LttbDownsampler) o).pointsPerPixel == pointsPerPixel;
+    }
+
+    @Override
+    public int hashCode() {
+        return Float.floatToIntBits(pointsPerPixel);
+    }
+
+    @Override
+    public int capacity(int count, int pixelWidth) {
+        return Math.min(count, threshold(pixelWidth));
+    }
+
+    private int threshold(int pixelWidth) {
+        return Math.max(3, (int) (pixelWidth * pointsPerPixel));
+    }
+
+    @Override
+    public int downsample(float[] xs, float[] ys, int count, int pixelWidth, float[] outX, float[] outY) {
+        int threshold = threshold(pixelWidth);
+        if (count <= threshold) {
+            System.arraycopy(xs, 0, outX, 0, count);
+            System.arraycopy(ys, 0, outY, 0, count);
+            return count;
+        }
+
+        int n = 0;
+        outX[n] = xs[0];
+        outY[n] = ys[0];
+        n++;
+
+        double every = (double) (count - 2) / (threshold - 2);
+        int a = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            // average of the next bucket
+            int avgStart = (int) Math.floor((i + 1) * every) + 1;
+            int avgEnd = Math.min((int) Math.floor((i + 2) * every) + 1, count);
+            float avgX = 0;
+            float avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += xs[j];
+                avgY += ys[j];
+            }
+            int avgLength = avgEnd - avgStart;
+            if (avgLength > 0) {
+                avgX /= avgLength;
+                avgY /= avgLength;
+            } else {
+                avgX = xs[count - 1];
+                avgY = ys[count - 1];
+            }
+
+            // the current bucket
+            int rangeStart = (int) Math.floor(i * every) + 1;
+            int rangeEnd = (int) Math.floor((i + 1) * every) + 1;
+            float ax = xs[a];
+            float ay = ys[a];
+            float maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                float area = Math.abs((ax - avgX) * (ys[j] - ay) - (ax - xs[j]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            outX[n] = xs[next];
+            outY[n] = ys[next];
+            n++;
+            a = next;
+        }
+
+        outX[n] = xs[count - 1];
+        outY[n] = ys[count - 1];
+        n++;
+        return n;
+    }
+}
@@ -0,0 +1,80 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * M4 aggregation: keeps the first, last, minimum and maximum point of every pixel column.
+ *
+ * A polyline through these points rasterizes to the same pixels as the full series,
+ * while the number of points is bounded by four times the plot width.
+ */
+public class M4Downsampler implements Downsampler {
+
+    private final int[] bucket = new int[4];
+
+    // no settings, every instance downsamples alike
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof M4Downsampler;
+    }
+
+    @Override
+    public int hashCode() {
+        return M4Downsampler.class.hashCode();
+    }
+
+    @Override
+    public int capacity(int count, int pixelWidth) {
+        return Math.min(count, 4 * (pixelWidth + 2));
+    }
+
+    @Override
+    public int downsample(float[] xs, float[] ys, int count, int pixelWidth, float[] outX, float[] outY) {
+        if (count <= 0) {
+            return 0;
+        }
+        int n = 0;
+        int column = (int) Math.floor(xs[0]);
+        int first = 0;
+        int last = 0;
+        int min = 0;
+        int max = 0;
+        for (int i = 1; i < count; i++) {
+            int c = (int) Math.floor(xs[i]);
+            if (c != column) {
+                n = flush(xs, ys, first, min, max, last, outX, outY, n);
+                column = c;
+                first = i;
+                min = i;
+                max = i;
+            } else {
+                if (ys[i] < ys[min]) {
+                    min = i;
+                }
+                if (ys[i] > ys[max]) {
+                    max = i;
+                }
+            }
+            last = i;
+        }
+        return flush(xs, ys, first, min, max, last, outX, outY, n);
+    }
+
+    private int flush(float[] xs, float[] ys, int first, int min, int max, int last,
+                      float[] outX, float[] outY, int n) {
+        int[] b = bucket;
+        b[0] = first;
+        b[1] = Math.min(min, max);
+        b[2] = Math.max(min, max);
+        b[3] = last;
+        int previous = -1;
+        for (int index : b) {
+            if (index == previous) {
+                continue;
+            }
+            outX[n] = xs[index];
+            outY[n] = ys[index];
+            n++;
+            previous = index;
+        }
+        return n;
+    }
+}
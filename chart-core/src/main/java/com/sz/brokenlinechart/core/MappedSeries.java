@@ -0,0 +1,311 @@
+package com.sz.brokenlinechart.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read only series backed by a memory-mapped file, for histories too long for the heap.
+ *
+ * Values are read straight from the mapping, the OS pages in what the chart actually
+ * touches: the visible window while it is projected, nothing else. The heap only holds
+ * a {@link Rollup} from buckets of 2^{@link #ROLLUP_FIRST_LEVEL} points up, to fit the value
+ * range and to project a zoomed out window per pixel column. The rollup can be kept in
+ * a file next to the data, see {@link #rollupFile(File)}.
+ *
+ * The file is big endian, a 16 byte header followed by the data:
+ *
+ *      int   magic 'BLCS'
+ *      short version 1
+ *      short flags, FLAG_TIMESTAMPS if the file has timestamps
+ *      long  number of points
+ *      long  timestamps[count], ascending, only with FLAG_TIMESTAMPS
+ *      float values[count]
+ */
+public class MappedSeries extends Series {
+
+    public static final int MAGIC = 0x424C4353;
+    public static final short VERSION = 1;
+    public static final short FLAG_TIMESTAMPS = 1;
+    public static final int HEADER_SIZE = 16;
+    // buckets of 256 points and up, about 1/8 byte of heap per point
+    public static final int ROLLUP_FIRST_LEVEL = 8;
+
+    // a mapping is limited to 2GB, the data is mapped in chunks of 1 << CHUNK_SHIFT points
+    private static final int CHUNK_SHIFT = 27;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final int count;
+    private final FloatBuffer[] values;
+    // null without timestamps
+    private final LongBuffer[] timestamps;
+    private final Rollup summary;
+    // label of the last picked point, there is no room for labels per point
+    private int labelIndex = -1;
+    private String bottomLabel;
+    private String leftLabel;
+
+    private MappedSeries(int count, FloatBuffer[] values, LongBuffer[] timestamps, Rollup summary) {
+        super(1);
+        this.count = count;
+        this.values = values;
+        this.timestamps = timestamps;
+        this.summary = summary != null ? summary : Rollup.build(this, ROLLUP_FIRST_LEVEL);
+    }
+
+    /**
+     * Maps a series file. The rollup is loaded from {@link #rollupFile(File)} when it is up
+     * to date, otherwise the data is read once to build it.
+     */
+    public static MappedSeries open(File file) throws IOException {
+        return open(file, false);
+    }
+
+    /**
+     * @param saveRollup write a rebuilt rollup to {@link #rollupFile(File)}, so the next open
+     *                   doesn't read the whole file
+     */
+    public static MappedSeries open(File file, boolean saveRollup) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_SIZE, channel.size()));
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getShort() != VERSION) {
+                throw new IOException("series file not valid");
+            }
+            boolean hasTimestamps = (header.getShort() & FLAG_TIMESTAMPS) != 0;
+            long count = header.getLong();
+            long dataSize = count * (hasTimestamps ? 12 : 4);
+            if (count < 0 || count > Integer.MAX_VALUE || channel.size() < HEADER_SIZE + dataSize) {
+                throw new IOException("series file not valid");
+            }
+            long offset = HEADER_SIZE;
+            LongBuffer[] timestamps = null;
+            if (hasTimestamps) {
+                timestamps = new LongBuffer[chunks(count)];
+                for (int i = 0; i < timestamps.length; i++) {
+                    long points = chunkSize(count, i);
+                    timestamps[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, points * 8).asLongBuffer();
+                    offset += points * 8;
+                }
+            }
+            FloatBuffer[] values = new FloatBuffer[chunks(count)];
+            for (int i = 0; i < values.length; i++) {
+                long points = chunkSize(count, i);
+                values[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, points * 4).asFloatBuffer();
+                offset += points * 4;
+            }
+            File rollupFile = rollupFile(file);
+            Rollup rollup = null;
+            if (rollupFile.lastModified() >= file.lastModified()) {
+                try {
+                    rollup = Rollup.load(rollupFile, (int) count);
+                } catch (IOException e) {
+                    // rebuilt below
+                }
+            }
+            // the mappings stay valid after the channel is closed
+            MappedSeries series = new MappedSeries((int) count, values, timestamps, rollup);
+            if (rollup == null && saveRollup) {
+                series.summary.save(rollupFile);
+            }
+            return series;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static int chunks(long count) {
+        return (int) ((count + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    private static long chunkSize(long count, int chunk) {
+        return Math.min(count - ((long) chunk << CHUNK_SHIFT), 1 << CHUNK_SHIFT);
+    }
+
+    /**
+     * Writes a series file.
+     *
+     * @param timestamps ascending, same length as values, may be null
+     */
+    public static void write(File file, long[] timestamps, float[] values) throws IOException {
+        if (timestamps != null && timestamps.length != values.length) {
+            throw new IOException("timestamps not valid");
+        }
+        long size = HEADER_SIZE + (long) values.length * (timestamps != null ? 12 : 4);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(size);
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC).putShort(VERSION).putShort(timestamps != null ? FLAG_TIMESTAMPS : (short) 0).putLong(values.length);
+            long offset = HEADER_SIZE;
+            if (timestamps != null) {
+                for (int i = 0; i < chunks(values.length); i++) {
+                    int points = (int) chunkSize(values.length, i);
+                    channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) points * 8).asLongBuffer()
+                            .put(timestamps, i << CHUNK_SHIFT, points);
+                    offset += (long) points * 8;
+                }
+            }
+            for (int i = 0; i < chunks(values.length); i++) {
+                int points = (int) chunkSize(values.length, i);
+                channel.map(FileChannel.MapMode.READ_WRITE, offset, (long) points * 4).asFloatBuffer()
+                        .put(values, i << CHUNK_SHIFT, points);
+                offset += (long) points * 4;
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return the file the rollup of the series file is kept in, next to it
+     */
+    public static File rollupFile(File file) {
+        return new File(file.getPath() + ".rollup");
+    }
+
+    /**
+     * The range queries of this series, answered from the rollup.
+     */
+    public RangeQuery getSummary() {
+        return summary;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public int getMaxSize() {
+        return 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        return false;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public void setMaxSize(int maxSize) {
+        throw new UnsupportedOperationException("mapped series are read only");
+    }
+
+    /**
+     * The data never changes, so the series is its own copy.
+     */
+    @Override
+    public Series copy() {
+        return this;
+    }
+
+    @Override
+    public int capacity() {
+        return count;
+    }
+
+    @Override
+    public int slotOf(int index) {
+        return index;
+    }
+
+    @Override
+    public float getValue(int index) {
+        return values[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    @Override
+    public boolean hasTimestamps() {
+        return timestamps != null;
+    }
+
+    @Override
+    public long getTimestamp(int index) {
+        return timestamps[index >>> CHUNK_SHIFT].get(index & CHUNK_MASK);
+    }
+
+    @Override
+    public double getX(int index) {
+        return timestamps == null ? index : getTimestamp(index);
+    }
+
+    @Override
+    public int lowerBound(double x) {
+        if (timestamps == null) {
+            return (int) Math.max(0, Math.min(Math.ceil(x), count));
+        }
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTimestamp(mid) < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void add(long timestamp, float value, String bottomLabel, String leftLabel) {
+        throw new UnsupportedOperationException("mapped series are read only");
+    }
+
+    @Override
+    public void add(float value, String bottomLabel, String leftLabel) {
+        throw new UnsupportedOperationException("mapped series are read only");
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("mapped series are read only");
+    }
+
+    private void selectLabels(int index) {
+        if (labelIndex != index) {
+            labelIndex = index;
+            bottomLabel = null;
+            leftLabel = null;
+        }
+    }
+
+    @Override
+    public String getBottomLabel(int index) {
+        return index == labelIndex && bottomLabel != null ? bottomLabel : "";
+    }
+
+    @Override
+    public void setBottomLabel(int index, String label) {
+        selectLabels(index);
+        bottomLabel = label;
+    }
+
+    @Override
+    public String getLeftLabel(int index, LabelFormatter formatter) {
+        return index == labelIndex && leftLabel != null ? leftLabel : formatter.format(getValue(index));
+    }
+
+    @Override
+    public void setLeftLabel(int index, String label) {
+        selectLabels(index);
+        leftLabel = label;
+    }
+}
@@ -0,0 +1,18 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Receives the outline built by {@link Polylines}, so the same code fills an
+ * android.graphics.Path on the device and a plain buffer anywhere else.
+ */
+public interface PathSink {
+
+    void reset();
+
+    void moveTo(float x, float y);
+
+    void lineTo(float x, float y);
+
+    void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3);
+
+    void close();
+}
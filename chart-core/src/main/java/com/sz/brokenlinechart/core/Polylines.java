@@ -0,0 +1,78 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Builds the outlines of the chart from projected points.
+ */
+public final class Polylines {
+
+    private Polylines() {
+    }
+
+    /**
+     * The line through the count points starting at from.
+     */
+    public static void line(PathSink path, float[] xs, float[] ys, int from, int count) {
+        path.reset();
+        for (int i = from; i < from + count; i++) {
+            if (i == from) {
+                path.moveTo(xs[i], ys[i]);
+            } else {
+                path.lineTo(xs[i], ys[i]);
+            }
+        }
+    }
+
+    /**
+     * The closed area between the line and baseline, starting at startX on the baseline.
+     * Stays empty for less than two points.
+     */
+    public static void area(PathSink path, float[] xs, float[] ys, int from, int count,
+                            float startX, float baseline) {
+        path.reset();
+        if (count <= 1) {
+            return;
+        }
+        path.moveTo(startX, baseline);
+        for (int i = from; i < from + count; i++) {
+            path.lineTo(xs[i], ys[i]);
+        }
+        path.lineTo(xs[from + count - 1], baseline);
+        path.close();
+    }
+
+    /**
+     * The smooth curve through the first count points, controls as computed by
+     * {@link Smoothing#controls}.
+     */
+    public static void curve(PathSink path, float[] xs, float[] ys, float[] controls, int count) {
+        path.reset();
+        if (count == 0) {
+            return;
+        }
+        path.moveTo(xs[0], ys[0]);
+        curveSegments(path, xs, ys, controls, count);
+    }
+
+    /**
+     * The closed area between the smooth curve and baseline, see {@link #area}.
+     */
+    public static void curveArea(PathSink path, float[] xs, float[] ys, float[] controls, int count,
+                                 float startX, float baseline) {
+        path.reset();
+        if (count <= 1) {
+            return;
+        }
+        path.moveTo(startX, baseline);
+        path.lineTo(xs[0], ys[0]);
+        curveSegments(path, xs, ys, controls, count);
+        path.lineTo(xs[count - 1], baseline);
+        path.close();
+    }
+
+    private static void curveSegments(PathSink path, float[] xs, float[] ys, float[] controls, int count) {
+        for (int i = 1; i < count; i++) {
+            int o = (i - 1) * 4;
+            path.cubicTo(controls[o], controls[o + 1], controls[o + 2], controls[o + 3], xs[i], ys[i]);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Maps x values and data values to pixels of the plot.
+ *
+ * x grows to the right from the viewport start, values grow upwards from the
+ * bottom of the plot.
+ */
+public class Projection {
+
+    // pixel position of the left edge and of the top of the plot
+    private float left;
+    private float top;
+    private float plotHeight;
+    private double viewportStart;
+    // pixels per x unit
+    private float scaleX;
+    private float minValue;
+    // pixels per value unit
+    private float scaleY;
+
+    public void setX(float left, double viewportStart, float scaleX) {
+        this.left = left;
+        this.viewportStart = viewportStart;
+        this.scaleX = scaleX;
+    }
+
+    public void setY(float top, float plotHeight, float minValue, float scaleY) {
+        this.top = top;
+        this.plotHeight = plotHeight;
+        this.minValue = minValue;
+        this.scaleY = scaleY;
+    }
+
+    public float x(double x) {
+        return left + (float) ((x - viewportStart) * scaleX);
+    }
+
+    public float y(float value) {
+        return plotHeight - (value - minValue) * scaleY + top;
+    }
+
+    /**
+     * Projects count points of series starting at index from into outX/outY.
+     */
+    public void project(Series series, int from, int count, float[] outX, float[] outY) {
+        for (int i = 0; i < count; i++) {
+            outX[i] = x(series.getX(from + i));
+            outY[i] = y(series.getValue(from + i));
+        }
+    }
+
+    /**
+     * Size of the output of {@link #projectColumns} for a plot pixelWidth wide, including
+     * the points beyond both edges.
+     */
+    public static int columnsCapacity(int pixelWidth) {
+        return 4 * (pixelWidth + 3);
+    }
+
+    /**
+     * Projects count points of series starting at index from, keeping only the first, the
+     * lowest, the highest and the last point of every pixel column. The line through them
+     * covers the same pixels as the line through all points, while each value is read once
+     * and the output stays within {@link #columnsCapacity(int)}.
+     *
+     * @return the number of points written to outX/outY
+     */
+    public int projectColumns(Series series, int from, int count, float[] outX, float[] outY) {
+        int n = 0;
+        int i = 0;
+        float x = count > 0 ? x(series.getX(from)) : 0;
+        while (i < count) {
+            int column = (int) Math.floor(x);
+            int first = i;
+            int minIndex = i;
+            int maxIndex = i;
+            float min = series.getValue(from + i);
+            float max = min;
+            float firstX = x;
+            float minX = x;
+            float maxX = x;
+            float lastX = x;
+            int j = i + 1;
+            for (; j < count; j++) {
+                x = x(series.getX(from + j));
+                if ((int) Math.floor(x) != column) {
+                    break;
+                }
+                float value = series.getValue(from + j);
+                if (value < min) {
+                    min = value;
+                    minIndex = j;
+                    minX = x;
+                } else if (value > max) {
+                    max = value;
+                    maxIndex = j;
+                    maxX = x;
+                }
+                lastX = x;
+            }
+            int last = j - 1;
+            // in index order, so the line doesn't run backwards within the column
+            outX[n] = firstX;
+            outY[n++] = y(series.getValue(from + first));
+            int low = Math.min(minIndex, maxIndex);
+            int high = Math.max(minIndex, maxIndex);
+            if (low != first) {
+                outX[n] = low == minIndex ? minX : maxX;
+                outY[n++] = y(low == minIndex ? min : max);
+            }
+            if (high != low && high != first) {
+                outX[n] = high == minIndex ? minX : maxX;
+                outY[n++] = y(high == minIndex ? min : max);
+            }
+            if (last != high && last != first) {
+                outX[n] = lastX;
+                outY[n++] = y(series.getValue(from + last));
+            }
+            i = j;
+        }
+        return n;
+    }
+
+    /**
+     * Like {@link #projectColumns(Series, int, int, float[], float[])}, but the lowest and the
+     * highest value of each column are queried from summary, so only the first and the last
+     * point of a column are read. The cost depends on the number of pixel columns instead of
+     * the number of points. Where within the column the extremes are is not known, they are
+     * placed between its first and last point.
+     *
+     * @param summary range queries over series, null to read every point
+     */
+    public int projectColumns(Series series, RangeQuery summary, int from, int count, float[] outX, float[] outY) {
+        if (summary == null) {
+            return projectColumns(series, from, count, outX, outY);
+        }
+        int n = 0;
+        int end = from + count;
+        int i = from;
+        while (i < end) {
+            float firstX = x(series.getX(i));
+            int column = (int) Math.floor(firstX);
+            // the first point of the next column, stepping over rounding at the boundary
+            int next = Math.max(i + 1, Math.min(series.lowerBound(xOf(column + 1)), end));
+            while (next < end && (int) Math.floor(x(series.getX(next))) == column) {
+                next++;
+            }
+            int last = next - 1;
+            float first = series.getValue(i);
+            outX[n] = firstX;
+            outY[n++] = y(first);
+            if (last > i) {
+                float lastValue = series.getValue(last);
+                float lastX = x(series.getX(last));
+                if (last > i + 1) {
+                    float min = summary.min(series, i, last);
+                    float max = summary.max(series, i, last);
+                    float middleX = (firstX + lastX) / 2;
+                    // the order only matters for the joins, the extremes share one column
+                    boolean falling = lastValue < first;
+                    outX[n] = middleX;
+                    outY[n++] = y(falling ? max : min);
+                    outX[n] = middleX;
+                    outY[n++] = y(falling ? min : max);
+                }
+                outX[n] = lastX;
+                outY[n++] = y(lastValue);
+            }
+            i = next;
+        }
+        return n;
+    }
+
+    /**
+     * @return the x value at the pixel position, the inverse of {@link #x(double)}
+     */
+    public double xOf(float pixel) {
+        return viewportStart + (pixel - left) / (double) scaleX;
+    }
+}
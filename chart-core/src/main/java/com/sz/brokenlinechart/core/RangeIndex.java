@@ -0,0 +1,205 @@
+package com.sz.brokenlinechart.core;
+
+import java.util.Arrays;
+
+/**
+ * Segment tree over a fixed number of slots, answering min, max, sum and count
+ * for any slot range in O(log n) and updating a single slot in O(log n).
+ *
+ * Empty slots don't contribute to any aggregate. Built for a {@link Series} there is one
+ * slot per slot of the series storage, so appending to a ring buffer is one update.
+ */
+public class RangeIndex implements RangeQuery {
+
+    private final int capacity;
+    // number of leaves, a power of two
+    private final int leaves;
+    // node i has the children 2i and 2i + 1, the leaves start at index leaves
+    private final float[] mins;
+    private final float[] maxs;
+    private final double[] sums;
+    private final int[] counts;
+
+    public RangeIndex(int capacity) {
+        this.capacity = capacity;
+        int n = 1;
+        while (n < capacity) {
+            n <<= 1;
+        }
+        leaves = n;
+        mins = new float[2 * n];
+        maxs = new float[2 * n];
+        sums = new double[2 * n];
+        counts = new int[2 * n];
+        Arrays.fill(mins, Float.POSITIVE_INFINITY);
+        Arrays.fill(maxs, Float.NEGATIVE_INFINITY);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Fills the slots with the values of a series laid out like its storage, O(n).
+     */
+    public void build(Series series) {
+        for (int i = 0, size = series.size(); i < size; i++) {
+            fill(series.slotOf(i), series.getValue(i));
+        }
+        pullAll();
+    }
+
+    /**
+     * Sets a leaf without updating the nodes above it, a pass over all values that fills
+     * every leaf calls {@link #pullAll()} once at the end.
+     */
+    void fill(int slot, float value) {
+        int leaf = leaves + slot;
+        mins[leaf] = value;
+        maxs[leaf] = value;
+        sums[leaf] = value;
+        counts[leaf] = 1;
+    }
+
+    void pullAll() {
+        for (int node = leaves - 1; node >= 1; node--) {
+            pull(node);
+        }
+    }
+
+    public void set(int slot, float value) {
+        int node = leaves + slot;
+        mins[node] = value;
+        maxs[node] = value;
+        sums[node] = value;
+        counts[node] = 1;
+        for (node >>= 1; node >= 1; node >>= 1) {
+            pull(node);
+        }
+    }
+
+    public void clear(int slot) {
+        int node = leaves + slot;
+        mins[node] = Float.POSITIVE_INFINITY;
+        maxs[node] = Float.NEGATIVE_INFINITY;
+        sums[node] = 0;
+        counts[node] = 0;
+        for (node >>= 1; node >= 1; node >>= 1) {
+            pull(node);
+        }
+    }
+
+    /**
+     * @return the minimum of the slots [from, to], both inclusive, +infinity if they are empty
+     */
+    public float min(int from, int to) {
+        float result = Float.POSITIVE_INFINITY;
+        for (int l = from + leaves, r = to + leaves + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = Math.min(result, mins[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = Math.min(result, mins[--r]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the maximum of the slots [from, to], both inclusive, -infinity if they are empty
+     */
+    public float max(int from, int to) {
+        float result = Float.NEGATIVE_INFINITY;
+        for (int l = from + leaves, r = to + leaves + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result = Math.max(result, maxs[l++]);
+            }
+            if ((r & 1) == 1) {
+                result = Math.max(result, maxs[--r]);
+            }
+        }
+        return result;
+    }
+
+    public double sum(int from, int to) {
+        double result = 0;
+        for (int l = from + leaves, r = to + leaves + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result += sums[l++];
+            }
+            if ((r & 1) == 1) {
+                result += sums[--r];
+            }
+        }
+        return result;
+    }
+
+    public int count(int from, int to) {
+        int result = 0;
+        for (int l = from + leaves, r = to + leaves + 1; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                result += counts[l++];
+            }
+            if ((r & 1) == 1) {
+                result += counts[--r];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Minimum of the values [from, to] of a series this index was built for, both inclusive.
+     */
+    @Override
+    public float min(Series series, int from, int to) {
+        int a = series.slotOf(from);
+        int b = series.slotOf(to);
+        if (a <= b) {
+            return min(a, b);
+        }
+        // the range wraps around the end of a ring buffer
+        return Math.min(min(a, capacity - 1), min(0, b));
+    }
+
+    /**
+     * Maximum of the values [from, to] of a series this index was built for, both inclusive.
+     */
+    @Override
+    public float max(Series series, int from, int to) {
+        int a = series.slotOf(from);
+        int b = series.slotOf(to);
+        if (a <= b) {
+            return max(a, b);
+        }
+        return Math.max(max(a, capacity - 1), max(0, b));
+    }
+
+    /**
+     * Average of the values [from, to] of a series this index was built for, both inclusive,
+     * NaN if there are none.
+     */
+    @Override
+    public float average(Series series, int from, int to) {
+        int a = series.slotOf(from);
+        int b = series.slotOf(to);
+        double sum;
+        int count;
+        if (a <= b) {
+            sum = sum(a, b);
+            count = count(a, b);
+        } else {
+            sum = sum(a, capacity - 1) + sum(0, b);
+            count = count(a, capacity - 1) + count(0, b);
+        }
+        return count == 0 ? Float.NaN : (float) (sum / count);
+    }
+
+    private void pull(int node) {
+        int left = node << 1;
+        int right = left + 1;
+        mins[node] = Math.min(mins[left], mins[right]);
+        maxs[node] = Math.max(maxs[left], maxs[right]);
+        sums[node] = sums[left] + sums[right];
+        counts[node] = counts[left] + counts[right];
+    }
+}
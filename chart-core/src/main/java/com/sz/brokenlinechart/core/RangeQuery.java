@@ -0,0 +1,16 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Aggregates over an index range of the series it was built for, both ends inclusive.
+ */
+public interface RangeQuery {
+
+    float min(Series series, int from, int to);
+
+    float max(Series series, int from, int to);
+
+    /**
+     * @return NaN if there are no values
+     */
+    float average(Series series, int from, int to);
+}
@@ -0,0 +1,75 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * The drawing primitives {@link ChartPainter} emits, implemented on top of
+ * android.graphics.Canvas on the device and by any 2D backend elsewhere.
+ *
+ * Colors are ARGB, all coordinates and sizes in pixels.
+ */
+public interface Renderer {
+
+    int ALIGN_LEFT = 0;
+    int ALIGN_CENTER = 1;
+    int ALIGN_RIGHT = 2;
+
+    /**
+     * Limits the following drawing to the rectangle until {@link #restore()}.
+     */
+    void clipRect(float left, float top, float right, float bottom);
+
+    void restore();
+
+    /**
+     * Moves the following drawing by dx, dy until {@link #restore()}.
+     */
+    void translate(float dx, float dy);
+
+    /**
+     * @param dash length of the dashes and the gaps, 0 for a solid line
+     */
+    void drawLine(float startX, float startY, float stopX, float stopY, int color, float width, float dash);
+
+    /**
+     * The line through the count points starting at from.
+     */
+    void drawPolyline(float[] xs, float[] ys, int from, int count, int color, float width);
+
+    /**
+     * Fills the area between the count points starting at from and baseline, starting at
+     * startX, with a vertical gradient from topColor at gradientTop to bottomColor at baseline.
+     */
+    void fillArea(float[] xs, float[] ys, int from, int count, float startX, float baseline,
+                  float gradientTop, int topColor, int bottomColor);
+
+    /**
+     * The smooth curve through the first count points, see {@link Smoothing#controls} for
+     * the layout of controls.
+     */
+    void drawCurve(float[] xs, float[] ys, float[] controls, int count, int color, float width);
+
+    /**
+     * Like {@link #fillArea}, bounded by the smooth curve through the points.
+     */
+    void fillCurveArea(float[] xs, float[] ys, float[] controls, int count, float startX, float baseline,
+                       float gradientTop, int topColor, int bottomColor);
+
+    void fillCircle(float centerX, float centerY, float radius, int color);
+
+    void fillRoundRect(float left, float top, float right, float bottom, float radius, int color);
+
+    /**
+     * @param y     the baseline
+     * @param align one of the ALIGN constants, relative to x
+     */
+    void drawText(String text, float x, float y, float size, int color, int align);
+
+    /**
+     * Writes width and height of the bounds of text into out[0] and out[1].
+     */
+    void measureText(String text, float size, float[] out);
+
+    /**
+     * @return the offset from the vertical center of a line of text to its baseline
+     */
+    float centerToBaseline(float size);
+}
@@ -0,0 +1,207 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Statistics of a series that are drawn next to it: the moving average and standard
+ * deviation over the last window points, and the points inside a {@link ThresholdBand}.
+ *
+ * All of it is computed in the one pass over the values that also fills the leaves of
+ * the {@link RangeIndex} of the series, see {@link #build(Series, RangeIndex)}, and an
+ * appended value is one O(1) update. Like the range index the averages are kept per slot
+ * of the series storage, so appending to a ring buffer overwrites the slot of the dropped
+ * value.
+ */
+public class RollingStats {
+
+    private final int capacity;
+    private final int window;
+    private final ThresholdBand[] bands;
+    // per slot, NaN without a window
+    private final float[] means;
+    private final float[] deviations;
+    // the last window values and their sums
+    private final float[] recent;
+    private int recentCount;
+    private int recentHead;
+    private double sum;
+    private double sumOfSquares;
+    // points inside a band in index order, as positions counted from the first point the
+    // series ever had, valid from anomalyStart
+    private long[] anomalies = new long[16];
+    private byte[] anomalyBands = new byte[16];
+    private int anomalyStart;
+    private int anomalyEnd;
+    private long appended;
+    // points dropped from the front of the series, position - dropped is the index
+    private long dropped;
+
+    /**
+     * @param window points of the moving average, 0 for none
+     * @param bands  at most 127, a point belongs to the first band containing it
+     */
+    public RollingStats(int capacity, int window, ThresholdBand[] bands) {
+        if (window < 0 || bands.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("stats not valid");
+        }
+        this.capacity = capacity;
+        this.window = window;
+        this.bands = bands.clone();
+        means = window > 0 ? new float[capacity] : null;
+        deviations = window > 0 ? new float[capacity] : null;
+        recent = new float[Math.max(window, 1)];
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Computes the statistics of series, laid out like its storage, O(n). With an index
+     * its leaves are filled in the same pass and its inner nodes afterwards.
+     *
+     * @param index built for the storage of series, may be null
+     */
+    public void build(Series series, RangeIndex index) {
+        recentCount = 0;
+        recentHead = 0;
+        sum = 0;
+        sumOfSquares = 0;
+        anomalyStart = 0;
+        anomalyEnd = 0;
+        appended = 0;
+        dropped = 0;
+        for (int i = 0, size = series.size(); i < size; i++) {
+            int slot = series.slotOf(i);
+            float value = series.getValue(i);
+            if (index != null) {
+                index.fill(slot, value);
+            }
+            add(slot, value);
+        }
+        if (index != null) {
+            index.pullAll();
+        }
+    }
+
+    /**
+     * Adds the last value of series.
+     *
+     * @param evicted the series dropped its first value to make room for it
+     */
+    public void append(Series series, boolean evicted) {
+        if (evicted) {
+            dropped++;
+        }
+        int index = series.size() - 1;
+        add(series.slotOf(index), series.getValue(index));
+    }
+
+    private void add(int slot, float value) {
+        if (window > 0) {
+            if (recentCount == window) {
+                float old = recent[recentHead];
+                sum -= old;
+                sumOfSquares -= (double) old * old;
+            } else {
+                recentCount++;
+            }
+            recent[recentHead] = value;
+            recentHead = recentHead + 1 == window ? 0 : recentHead + 1;
+            sum += value;
+            sumOfSquares += (double) value * value;
+            double mean = sum / recentCount;
+            // the difference of the running sums may drift slightly below 0
+            double variance = Math.max(sumOfSquares / recentCount - mean * mean, 0);
+            means[slot] = (float) mean;
+            deviations[slot] = (float) Math.sqrt(variance);
+        }
+        for (int b = 0; b < bands.length; b++) {
+            if (bands[b].contains(value)) {
+                addAnomaly(appended, b);
+                break;
+            }
+        }
+        appended++;
+    }
+
+    private void addAnomaly(long position, int band) {
+        if (anomalyEnd == anomalies.length) {
+            trim();
+            int live = anomalyEnd - anomalyStart;
+            if (live > anomalies.length / 2) {
+                long[] grown = new long[anomalies.length * 2];
+                byte[] grownBands = new byte[grown.length];
+                System.arraycopy(anomalies, anomalyStart, grown, 0, live);
+                System.arraycopy(anomalyBands, anomalyStart, grownBands, 0, live);
+                anomalies = grown;
+                anomalyBands = grownBands;
+            } else {
+                System.arraycopy(anomalies, anomalyStart, anomalies, 0, live);
+                System.arraycopy(anomalyBands, anomalyStart, anomalyBands, 0, live);
+            }
+            anomalyStart = 0;
+            anomalyEnd = live;
+        }
+        anomalies[anomalyEnd] = position;
+        anomalyBands[anomalyEnd++] = (byte) band;
+    }
+
+    // forgets the anomalies of dropped points
+    private void trim() {
+        while (anomalyStart < anomalyEnd && anomalies[anomalyStart] < dropped) {
+            anomalyStart++;
+        }
+    }
+
+    /**
+     * @return the moving average ending at index, NaN without a window
+     */
+    public float mean(Series series, int index) {
+        return window > 0 ? means[series.slotOf(index)] : Float.NaN;
+    }
+
+    /**
+     * @return the standard deviation over the window ending at index, NaN without a window
+     */
+    public float deviation(Series series, int index) {
+        return window > 0 ? deviations[series.slotOf(index)] : Float.NaN;
+    }
+
+    /**
+     * @return the position of the first point inside a band at or after index, to be
+     * passed to {@link #anomalyIndex(int)} up to {@link #anomalyEnd()}
+     */
+    public int firstAnomaly(int index) {
+        trim();
+        long target = index + dropped;
+        int low = anomalyStart;
+        int high = anomalyEnd;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (anomalies[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int anomalyEnd() {
+        return anomalyEnd;
+    }
+
+    /**
+     * @return the index in the series of the point at position
+     */
+    public int anomalyIndex(int position) {
+        return (int) (anomalies[position] - dropped);
+    }
+
+    public ThresholdBand anomalyBand(int position) {
+        return bands[anomalyBands[position]];
+    }
+}
@@ -0,0 +1,284 @@
+package com.sz.brokenlinechart.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Min/max/sum pyramid over an append only series: level k holds one bucket per 2^k
+ * points, from {@link #getFirstLevel()} up to a single bucket.
+ *
+ * A range query takes the coarsest buckets that fit into the range and reads the
+ * raw values only at the unaligned ends, so its cost depends on the number of levels
+ * instead of the length of the range. Appending updates the last bucket of every
+ * level, O(levels).
+ *
+ * The pyramid can be saved next to its data and loaded instead of being rebuilt.
+ *
+ * It covers up to Integer.MAX_VALUE points, so the top level may be 31: bucket sizes and
+ * masks are computed in long, 1 << 31 doesn't fit an int.
+ */
+public class Rollup implements RangeQuery {
+
+    private static final int MAGIC = 0x424C5255;
+    private static final int VERSION = 1;
+
+    private final int firstLevel;
+    private int count;
+    // levels[k - firstLevel], the last bucket of a level may be partial
+    private float[][] mins = new float[0][];
+    private float[][] maxs = new float[0][];
+    private double[][] sums = new double[0][];
+
+    /**
+     * @param firstLevel log2 of the finest bucket, 1 for buckets of two points. Higher
+     *                   levels need less memory, about 16 / 2^(firstLevel - 1) bytes per
+     *                   point, and read more raw values per query.
+     */
+    public Rollup(int firstLevel) {
+        if (firstLevel < 1 || firstLevel > 30) {
+            throw new IllegalArgumentException("firstLevel not valid");
+        }
+        this.firstLevel = firstLevel;
+    }
+
+    public static Rollup build(Series series, int firstLevel) {
+        Rollup rollup = new Rollup(firstLevel);
+        for (int i = 0, size = series.size(); i < size; i++) {
+            rollup.append(series.getValue(i));
+        }
+        return rollup;
+    }
+
+    public int getFirstLevel() {
+        return firstLevel;
+    }
+
+    /**
+     * @return number of points covered
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @throws IllegalStateException if the rollup already covers Integer.MAX_VALUE points
+     */
+    public void append(float value) {
+        if (count == Integer.MAX_VALUE) {
+            throw new IllegalStateException("rollup is full");
+        }
+        int index = count++;
+        for (int level = firstLevel; ; level++) {
+            int bucket = index >>> level;
+            int l = level - firstLevel;
+            if (l == mins.length) {
+                addLevel();
+            }
+            if (bucket >= mins[l].length) {
+                grow(l, bucket + 1);
+            }
+            if ((index & ((1L << level) - 1)) == 0) {
+                // first value of the bucket
+                mins[l][bucket] = value;
+                maxs[l][bucket] = value;
+                sums[l][bucket] = value;
+            } else {
+                mins[l][bucket] = Math.min(mins[l][bucket], value);
+                maxs[l][bucket] = Math.max(maxs[l][bucket], value);
+                sums[l][bucket] += value;
+            }
+            // the top level is the first one that fits everything into one bucket
+            if (bucket == 0 && count <= 1L << level) {
+                break;
+            }
+        }
+    }
+
+    private void addLevel() {
+        int levels = mins.length + 1;
+        float[][] newMins = new float[levels][];
+        float[][] newMaxs = new float[levels][];
+        double[][] newSums = new double[levels][];
+        System.arraycopy(mins, 0, newMins, 0, mins.length);
+        System.arraycopy(maxs, 0, newMaxs, 0, maxs.length);
+        System.arraycopy(sums, 0, newSums, 0, sums.length);
+        int l = levels - 1;
+        newMins[l] = new float[1];
+        newMaxs[l] = new float[1];
+        newSums[l] = new double[1];
+        if (l > 0) {
+            // a new top level starts with the full first bucket of the old top level, the
+            // value being appended is added by the caller
+            newMins[l][0] = newMins[l - 1][0];
+            newMaxs[l][0] = newMaxs[l - 1][0];
+            newSums[l][0] = newSums[l - 1][0];
+        }
+        mins = newMins;
+        maxs = newMaxs;
+        sums = newSums;
+    }
+
+    private void grow(int l, int buckets) {
+        int capacity = Math.max(buckets, mins[l].length + (mins[l].length >> 1) + 1);
+        float[] newMins = new float[capacity];
+        float[] newMaxs = new float[capacity];
+        double[] newSums = new double[capacity];
+        System.arraycopy(mins[l], 0, newMins, 0, mins[l].length);
+        System.arraycopy(maxs[l], 0, newMaxs, 0, maxs[l].length);
+        System.arraycopy(sums[l], 0, newSums, 0, sums[l].length);
+        mins[l] = newMins;
+        maxs[l] = newMaxs;
+        sums[l] = newSums;
+    }
+
+    /**
+     * @return the coarsest level whose buckets are complete and lie inside [from, to] at
+     * from, or firstLevel - 1 if there is none and the raw value has to be read
+     */
+    private int levelAt(int from, int to) {
+        int level = firstLevel - 1;
+        while (level + 1 - firstLevel < mins.length
+                && (from & ((1L << (level + 1)) - 1)) == 0
+                && from + (1L << (level + 1)) - 1 <= to) {
+            level++;
+        }
+        return level;
+    }
+
+    @Override
+    public float min(Series series, int from, int to) {
+        float min = Float.POSITIVE_INFINITY;
+        int i = from;
+        while (i <= to) {
+            int level = levelAt(i, to);
+            if (level < firstLevel) {
+                min = Math.min(min, series.getValue(i));
+                i++;
+            } else {
+                min = Math.min(min, mins[level - firstLevel][i >>> level]);
+                i += (int) (1L << level);
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public float max(Series series, int from, int to) {
+        float max = Float.NEGATIVE_INFINITY;
+        int i = from;
+        while (i <= to) {
+            int level = levelAt(i, to);
+            if (level < firstLevel) {
+                max = Math.max(max, series.getValue(i));
+                i++;
+            } else {
+                max = Math.max(max, maxs[level - firstLevel][i >>> level]);
+                i += (int) (1L << level);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public float average(Series series, int from, int to) {
+        if (from > to) {
+            return Float.NaN;
+        }
+        double sum = 0;
+        int i = from;
+        while (i <= to) {
+            int level = levelAt(i, to);
+            if (level < firstLevel) {
+                sum += series.getValue(i);
+                i++;
+            } else {
+                sum += sums[level - firstLevel][i >>> level];
+                i += (int) (1L << level);
+            }
+        }
+        return (float) (sum / (to - from + 1));
+    }
+
+    /**
+     * Writes the pyramid, big endian: magic, version, first level, count, number of levels,
+     * then per level the number of buckets followed by mins, maxs and sums.
+     */
+    public void save(File file) throws IOException {
+        long size = 20;
+        for (int l = 0; l < mins.length; l++) {
+            size += 4 + (long) buckets(l) * 16;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(size);
+            ByteBuffer out = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.putInt(MAGIC).putInt(VERSION).putInt(firstLevel).putInt(count).putInt(mins.length);
+            for (int l = 0; l < mins.length; l++) {
+                int buckets = buckets(l);
+                out.putInt(buckets);
+                out.asFloatBuffer().put(mins[l], 0, buckets);
+                out.position(out.position() + buckets * 4);
+                out.asFloatBuffer().put(maxs[l], 0, buckets);
+                out.position(out.position() + buckets * 4);
+                out.asDoubleBuffer().put(sums[l], 0, buckets);
+                out.position(out.position() + buckets * 8);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads a pyramid written by {@link #save(File)}.
+     *
+     * @return null if the file doesn't exist or doesn't cover exactly count points
+     */
+    public static Rollup load(File file, int count) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            ByteBuffer in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            if (in.remaining() < 20 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("rollup file not valid");
+            }
+            int firstLevel = in.getInt();
+            if (in.getInt() != count) {
+                return null;
+            }
+            Rollup rollup = new Rollup(firstLevel);
+            rollup.count = count;
+            int levels = in.getInt();
+            rollup.mins = new float[levels][];
+            rollup.maxs = new float[levels][];
+            rollup.sums = new double[levels][];
+            for (int l = 0; l < levels; l++) {
+                int buckets = in.getInt();
+                if (buckets != rollup.buckets(l) || in.remaining() < buckets * 16L) {
+                    throw new IOException("rollup file not valid");
+                }
+                rollup.mins[l] = new float[buckets];
+                rollup.maxs[l] = new float[buckets];
+                rollup.sums[l] = new double[buckets];
+                in.asFloatBuffer().get(rollup.mins[l]);
+                in.position(in.position() + buckets * 4);
+                in.asFloatBuffer().get(rollup.maxs[l]);
+                in.position(in.position() + buckets * 4);
+                in.asDoubleBuffer().get(rollup.sums[l]);
+                in.position(in.position() + buckets * 8);
+            }
+            return rollup;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private int buckets(int l) {
+        int level = l + firstLevel;
+        return (int) ((count + (1L << level) - 1) >>> level);
+    }
+}
@@ -0,0 +1,372 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * A primitive backed data series, the data store of the line chart.
+ *
+ * Values are kept in a plain float[], labels are only attached when they are
+ * actually given or asked for, so a series of tens of thousands of points
+ * costs a few bytes per sample instead of one object per sample.
+ *
+ * With a max size the series works as a ring buffer, adding to a full series
+ * drops the oldest value.
+ *
+ * Points are evenly spaced by default. A series created with timestamps keeps an
+ * ascending long[] of x values next to the values instead, see {@link #getX(int)}.
+ */
+public class Series {
+
+    private float[] values;
+    // null for evenly spaced points
+    private long[] timestamps;
+    // physical index of the first value, only non zero once a bounded series wrapped
+    private int head;
+    private int size;
+    // 0 means unbounded
+    private int maxSize;
+    // may be null, labels are attached lazily and indexed like values
+    private String[] bottomLabels;
+    private String[] leftLabels;
+    // bumped by every change of the values, see getVersion
+    private int version;
+    // the columns belong to someone else, see SeriesLoader.Listener
+    private boolean readOnly;
+
+    public Series() {
+        this(16);
+    }
+
+    public Series(int capacity) {
+        values = new float[Math.max(capacity, 1)];
+    }
+
+    public Series(float[] values, String[] bottomLabels) {
+        this.values = values;
+        this.size = values.length;
+        this.bottomLabels = bottomLabels;
+    }
+
+    /**
+     * @param timestamps ascending x values, same length as values
+     */
+    public Series(long[] timestamps, float[] values, String[] bottomLabels) {
+        this(values, bottomLabels);
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * Wraps the first size entries of the columns, the rest is left to whoever fills them,
+     * see {@link SeriesLoader}. Such a series must not be added to.
+     *
+     * @param timestamps ascending x values, null for evenly spaced points
+     */
+    public Series(long[] timestamps, float[] values, int size) {
+        this(timestamps, values, size, false);
+    }
+
+    /**
+     * @param readOnly true while the columns are still being filled, add, clear and
+     *                 setMaxSize throw an UnsupportedOperationException
+     */
+    Series(long[] timestamps, float[] values, int size, boolean readOnly) {
+        this.values = values;
+        this.timestamps = timestamps;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Creates an empty series with timestamps.
+     */
+    public static Series withTimestamps(int capacity) {
+        Series series = new Series(capacity);
+        series.timestamps = new long[series.values.length];
+        return series;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Changes with every add, clear and setMaxSize, so geometry computed from the series
+     * can be cached until its values change. Labels don't count.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public boolean isFull() {
+        return maxSize > 0 && size == maxSize;
+    }
+
+    /**
+     * @return true if the values can't be changed, add, clear and setMaxSize throw an
+     * UnsupportedOperationException, e.g. for a {@link MappedSeries} or the points a
+     * {@link SeriesLoader} has loaded so far
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("series is read only");
+        }
+    }
+
+    /**
+     * Bounds the series to the last maxSize values, 0 removes the bound.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize < 0");
+        }
+        checkWritable();
+        int keep = maxSize == 0 ? size : Math.min(size, maxSize);
+        int capacity = maxSize == 0 ? Math.max(values.length, 1) : maxSize;
+        float[] newValues = new float[capacity];
+        long[] newTimestamps = timestamps == null ? null : new long[capacity];
+        String[] newBottomLabels = bottomLabels == null ? null : new String[capacity];
+        String[] newLeftLabels = leftLabels == null ? null : new String[capacity];
+        for (int i = 0; i < keep; i++) {
+            int from = physical(size - keep + i);
+            newValues[i] = values[from];
+            if (newTimestamps != null) {
+                newTimestamps[i] = timestamps[from];
+            }
+            if (newBottomLabels != null && from < bottomLabels.length) {
+                newBottomLabels[i] = bottomLabels[from];
+            }
+            if (newLeftLabels != null && from < leftLabels.length) {
+                newLeftLabels[i] = leftLabels[from];
+            }
+        }
+        values = newValues;
+        timestamps = newTimestamps;
+        bottomLabels = newBottomLabels;
+        leftLabels = newLeftLabels;
+        head = 0;
+        size = keep;
+        this.maxSize = maxSize;
+        version++;
+    }
+
+    /**
+     * Returns an independent copy, laid out from index 0.
+     */
+    public Series copy() {
+        Series copy = timestamps == null ? new Series(Math.max(size, 1)) : withTimestamps(Math.max(size, 1));
+        copy.maxSize = maxSize;
+        copy.size = size;
+        for (int i = 0; i < size; i++) {
+            int p = physical(i);
+            copy.values[i] = values[p];
+            if (timestamps != null) {
+                copy.timestamps[i] = timestamps[p];
+            }
+            if (bottomLabels != null && p < bottomLabels.length && bottomLabels[p] != null) {
+                copy.bottomLabels = copy.attach(copy.bottomLabels, i);
+                copy.bottomLabels[i] = bottomLabels[p];
+            }
+            if (leftLabels != null && p < leftLabels.length && leftLabels[p] != null) {
+                copy.leftLabels = copy.attach(copy.leftLabels, i);
+                copy.leftLabels[i] = leftLabels[p];
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Number of slots in the backing storage, grows while an unbounded series grows.
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * Returns the storage slot of a value. It stays the same until the value is dropped
+     * or the storage grows, which lets an index over the slots be updated in place.
+     */
+    public int slotOf(int index) {
+        return physical(index);
+    }
+
+    public float getValue(int index) {
+        return values[physical(index)];
+    }
+
+    public boolean hasTimestamps() {
+        return timestamps != null;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[physical(index)];
+    }
+
+    /**
+     * @return the position of a point on the x axis, its timestamp or its index
+     */
+    public double getX(int index) {
+        return timestamps == null ? index : timestamps[physical(index)];
+    }
+
+    /**
+     * Binary search over the x positions.
+     *
+     * @return the first index whose x is not less than x, size() if there is none
+     */
+    public int lowerBound(double x) {
+        if (timestamps == null) {
+            return (int) Math.max(0, Math.min(Math.ceil(x), size));
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[physical(mid)] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the index whose x is closest to x, -1 for an empty series
+     */
+    public int nearest(double x) {
+        int size = size();
+        if (size == 0) {
+            return -1;
+        }
+        int index = lowerBound(x);
+        if (index == size) {
+            return size - 1;
+        }
+        if (index > 0 && x - getX(index - 1) <= getX(index) - x) {
+            return index - 1;
+        }
+        return index;
+    }
+
+    public void add(long timestamp, float value, String bottomLabel, String leftLabel) {
+        add(value, bottomLabel, leftLabel);
+        timestamps[physical(size - 1)] = timestamp;
+    }
+
+    public void add(float value, String bottomLabel, String leftLabel) {
+        checkWritable();
+        version++;
+        int index;
+        if (isFull()) {
+            index = head;
+            head = head + 1 == values.length ? 0 : head + 1;
+            if (bottomLabels != null) {
+                bottomLabels[index] = null;
+            }
+            if (leftLabels != null) {
+                leftLabels[index] = null;
+            }
+        } else {
+            ensureCapacity(size + 1);
+            index = physical(size);
+            size++;
+        }
+        values[index] = value;
+        if (bottomLabel != null) {
+            bottomLabels = attach(bottomLabels, index);
+            bottomLabels[index] = bottomLabel;
+        }
+        if (leftLabel != null) {
+            leftLabels = attach(leftLabels, index);
+            leftLabels[index] = leftLabel;
+        }
+    }
+
+    public void clear() {
+        checkWritable();
+        version++;
+        head = 0;
+        size = 0;
+        bottomLabels = null;
+        leftLabels = null;
+    }
+
+    public String getBottomLabel(int index) {
+        int p = physical(index);
+        if (bottomLabels == null || p >= bottomLabels.length || bottomLabels[p] == null) {
+            return "";
+        }
+        return bottomLabels[p];
+    }
+
+    public void setBottomLabel(int index, String label) {
+        int p = physical(index);
+        bottomLabels = attach(bottomLabels, p);
+        bottomLabels[p] = label;
+    }
+
+    /**
+     * Returns the label shown on the left tip, the one set for the point or else its value
+     * formatted with formatter. Nothing is cached here, the series may be shown by charts with
+     * different formatters, see {@link LabelCache}.
+     */
+    public String getLeftLabel(int index, LabelFormatter formatter) {
+        int p = physical(index);
+        if (leftLabels == null || p >= leftLabels.length || leftLabels[p] == null) {
+            return formatter.format(values[p]);
+        }
+        return leftLabels[p];
+    }
+
+    public void setLeftLabel(int index, String label) {
+        int p = physical(index);
+        leftLabels = attach(leftLabels, p);
+        leftLabels[p] = label;
+    }
+
+    private int physical(int index) {
+        int p = head + index;
+        return p >= values.length ? p - values.length : p;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= values.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, values.length + (values.length >> 1));
+        if (maxSize > 0) {
+            newCapacity = Math.min(newCapacity, maxSize);
+        }
+        // head is always 0 here, a bounded series only wraps once it reached maxSize
+        float[] newValues = new float[newCapacity];
+        System.arraycopy(values, 0, newValues, 0, size);
+        values = newValues;
+        if (timestamps != null) {
+            long[] newTimestamps = new long[newCapacity];
+            System.arraycopy(timestamps, 0, newTimestamps, 0, size);
+            timestamps = newTimestamps;
+        }
+    }
+
+    private String[] attach(String[] labels, int index) {
+        if (labels == null) {
+            return new String[Math.max(values.length, index + 1)];
+        }
+        if (index >= labels.length) {
+            String[] newLabels = new String[Math.max(values.length, index + 1)];
+            System.arraycopy(labels, 0, newLabels, 0, labels.length);
+            return newLabels;
+        }
+        return labels;
+    }
+}
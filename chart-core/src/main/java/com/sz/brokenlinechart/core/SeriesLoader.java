@@ -0,0 +1,397 @@
+package com.sz.brokenlinechart.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Streams large exports straight into the primitive columns of a {@link Series}, CSV text
+ * or little endian binary records. The input is read through one reused direct ByteBuffer
+ * and parsed in place, there is no String, boxed value or object per row.
+ *
+ * CSV has one point per line, "timestamp,value" or only "value" for evenly spaced points,
+ * as decided by the first line with data. Columns are separated by ',', ';', tabs or
+ * spaces, further columns are ignored. A first line that doesn't start with a number is
+ * a header and skipped, so are empty lines. Timestamps are integers, e.g. milliseconds,
+ * values decimal numbers with an optional exponent.
+ *
+ * Binary input is a sequence of {@link #BINARY_RECORD_SIZE} byte records without a header:
+ *
+ *      long  timestamp, ascending
+ *      float value
+ *
+ * A {@link Listener} is handed the points loaded so far while loading, so a chart can show
+ * them before the whole file is read.
+ */
+public class SeriesLoader {
+
+    public static final int FORMAT_CSV = 0;
+    public static final int FORMAT_BINARY = 1;
+    public static final int BINARY_RECORD_SIZE = 12;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long DEFAULT_PROGRESS_BYTES = 1 << 22;
+    // larger mantissas are not exact in a double, they take the slow path
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Called on the loading thread.
+     */
+    public interface Listener {
+        /**
+         * Called every progressBytes of input and once when the input is complete.
+         *
+         * @param loaded     the points loaded so far. The columns are shared with the loader,
+         *                   which only writes beyond loaded.size(), so it may be handed to
+         *                   another thread and shown. It is read only, see
+         *                   {@link Series#isReadOnly()}, the complete series is not
+         * @param totalBytes size of the input, -1 if not known
+         */
+        void onProgress(Series loaded, long bytesRead, long totalBytes);
+    }
+
+    private final int format;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private Listener listener;
+    private long progressBytes = DEFAULT_PROGRESS_BYTES;
+    private volatile boolean cancelled;
+
+    // the columns of the current load, new arrays for every load
+    private long[] timestamps;
+    private float[] values;
+    private int count;
+    // CSV: 0 until the first line with data, then 1 or 2
+    private int columns;
+    private long line;
+
+    public SeriesLoader(int format) {
+        if (format != FORMAT_CSV && format != FORMAT_BINARY) {
+            throw new IllegalArgumentException("format not valid");
+        }
+        this.format = format;
+    }
+
+    /**
+     * @param progressBytes input read between two progress calls
+     */
+    public void setListener(Listener listener, long progressBytes) {
+        if (progressBytes <= 0) {
+            throw new IllegalArgumentException("progressBytes not valid");
+        }
+        this.listener = listener;
+        this.progressBytes = progressBytes;
+    }
+
+    /**
+     * Stops a running load from another thread, it throws an InterruptedIOException.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public Series load(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return load(channel, channel.size());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads channel to its end. Not thread safe, one load at a time.
+     *
+     * @param totalBytes size of the input if known, to size the columns up front, -1 otherwise
+     */
+    public Series load(ReadableByteChannel channel, long totalBytes) throws IOException {
+        // a guess for CSV, short lines of timestamp and value are 16 to 32 bytes
+        long estimate = totalBytes <= 0 ? 1024
+                : format == FORMAT_BINARY ? totalBytes / BINARY_RECORD_SIZE : totalBytes / 24;
+        int capacity = (int) Math.max(16, Math.min(estimate, Integer.MAX_VALUE - 8));
+        values = new float[capacity];
+        timestamps = format == FORMAT_BINARY ? new long[capacity] : null;
+        count = 0;
+        columns = 0;
+        line = 1;
+        cancelled = false;
+        buffer.clear();
+        long read = 0;
+        long nextProgress = progressBytes;
+        while (true) {
+            if (cancelled) {
+                throw new InterruptedIOException("load cancelled");
+            }
+            int n = channel.read(buffer);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+            buffer.flip();
+            if (format == FORMAT_BINARY) {
+                parseBinary();
+            } else {
+                parseCsv(false);
+            }
+            if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                // a full buffer without a complete line
+                throw new IOException("csv line " + line + " not valid");
+            }
+            buffer.compact();
+            if (listener != null && read >= nextProgress) {
+                listener.onProgress(new Series(timestamps, values, count, true), read, totalBytes);
+                nextProgress = read + progressBytes;
+            }
+        }
+        buffer.flip();
+        if (format == FORMAT_CSV) {
+            parseCsv(true);
+        } else if (buffer.hasRemaining()) {
+            throw new IOException("binary file not valid");
+        }
+        Series series = series();
+        if (listener != null) {
+            listener.onProgress(series, read, totalBytes);
+        }
+        return series;
+    }
+
+    private Series series() {
+        return new Series(timestamps, values, count);
+    }
+
+    private void parseBinary() throws IOException {
+        ByteBuffer b = buffer;
+        while (b.remaining() >= BINARY_RECORD_SIZE) {
+            long timestamp = b.getLong();
+            add(timestamp, b.getFloat());
+        }
+    }
+
+    private void add(long timestamp, float value) throws IOException {
+        if (count == values.length) {
+            grow();
+        }
+        if (timestamps != null) {
+            if (count > 0 && timestamp < timestamps[count - 1]) {
+                throw new IOException("timestamps not ascending");
+            }
+            timestamps[count] = timestamp;
+        }
+        values[count++] = value;
+    }
+
+    // new arrays, a series handed to the listener keeps the old ones
+    private void grow() throws IOException {
+        if (count == Integer.MAX_VALUE - 8) {
+            throw new IOException("too many points");
+        }
+        int capacity = (int) Math.min(count + (long) (count >> 1) + 16, Integer.MAX_VALUE - 8);
+        float[] newValues = new float[capacity];
+        System.arraycopy(values, 0, newValues, 0, count);
+        values = newValues;
+        if (timestamps != null) {
+            long[] newTimestamps = new long[capacity];
+            System.arraycopy(timestamps, 0, newTimestamps, 0, count);
+            timestamps = newTimestamps;
+        }
+    }
+
+    /**
+     * Parses the complete lines between position and limit, a partial last line stays in
+     * the buffer unless end.
+     */
+    private void parseCsv(boolean end) throws IOException {
+        ByteBuffer b = buffer;
+        int limit = b.limit();
+        int start = b.position();
+        while (start < limit) {
+            int eol = start;
+            while (eol < limit && b.get(eol) != '\n') {
+                eol++;
+            }
+            if (eol == limit && !end) {
+                break;
+            }
+            parseLine(start, eol);
+            line++;
+            start = eol + 1;
+        }
+        b.position(Math.min(start, limit));
+    }
+
+    private void parseLine(int from, int to) throws IOException {
+        int first = skipSeparators(from, to);
+        if (first == to) {
+            return;
+        }
+        if (columns == 0 && count == 0 && !isNumberStart(buffer.get(first))) {
+            if (line > 1) {
+                throw new IOException("csv line " + line + " not valid");
+            }
+            // a header
+            return;
+        }
+        int second = skipSeparators(fieldEnd(first, to), to);
+        if (columns == 0) {
+            columns = second == to ? 1 : 2;
+            if (columns == 2) {
+                timestamps = new long[values.length];
+            }
+        }
+        if (columns == 1) {
+            add(0, (float) number(first, fieldEnd(first, to)));
+        } else if (second < to) {
+            long timestamp = integer(first, fieldEnd(first, to));
+            add(timestamp, (float) number(second, fieldEnd(second, to)));
+        } else {
+            throw new IOException("csv line " + line + " not valid");
+        }
+    }
+
+    private int skipSeparators(int from, int to) {
+        ByteBuffer b = buffer;
+        while (from < to) {
+            byte c = b.get(from);
+            if (c != ',' && c != ';' && c != '\t' && c != ' ' && c != '\r' && c != '"') {
+                break;
+            }
+            from++;
+        }
+        return from;
+    }
+
+    private int fieldEnd(int from, int to) {
+        ByteBuffer b = buffer;
+        while (from < to) {
+            byte c = b.get(from);
+            if (c == ',' || c == ';' || c == '\t' || c == ' ' || c == '\r' || c == '"') {
+                break;
+            }
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isNumberStart(byte c) {
+        return c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.';
+    }
+
+    private long integer(int from, int to) throws IOException {
+        ByteBuffer b = buffer;
+        int i = from;
+        boolean negative = b.get(i) == '-';
+        if (negative || b.get(i) == '+') {
+            i++;
+        }
+        if (i == to) {
+            throw new IOException("csv line " + line + " not valid");
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = b.get(i) - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw new IOException("csv line " + line + " not valid");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Decimal numbers with up to 15 or so significant digits and a small exponent, the usual
+     * export, are converted exactly from a long mantissa and a power of ten. Anything else
+     * goes through Double.parseDouble.
+     */
+    private double number(int from, int to) throws IOException {
+        ByteBuffer b = buffer;
+        int i = from;
+        boolean negative = b.get(i) == '-';
+        if (negative || b.get(i) == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean exact = true;
+        for (; i < to; i++) {
+            int digit = b.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            digits = true;
+            if (mantissa < MAX_EXACT_MANTISSA) {
+                mantissa = mantissa * 10 + digit;
+            } else {
+                exact = false;
+            }
+        }
+        if (i < to && b.get(i) == '.') {
+            for (i++; i < to; i++) {
+                int digit = b.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                digits = true;
+                if (mantissa < MAX_EXACT_MANTISSA) {
+                    mantissa = mantissa * 10 + digit;
+                    exponent--;
+                } else if (digit != 0) {
+                    exact = false;
+                }
+            }
+        }
+        if (i < to && (b.get(i) == 'e' || b.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = i < to && b.get(i) == '-';
+            if (i < to && (negativeExponent || b.get(i) == '+')) {
+                i++;
+            }
+            int e = 0;
+            int start = i;
+            for (; i < to; i++) {
+                int digit = b.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                e = Math.min(e * 10 + digit, 1000);
+            }
+            if (i == start) {
+                return slowNumber(from, to);
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (!digits || i != to || !exact || mantissa > MAX_EXACT_MANTISSA
+                || exponent < -22 || exponent > 22) {
+            // NaN, Infinity, long mantissas, large exponents and garbage
+            return slowNumber(from, to);
+        }
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private double slowNumber(int from, int to) throws IOException {
+        char[] chars = new char[to - from];
+        for (int i = from; i < to; i++) {
+            chars[i - from] = (char) (buffer.get(i) & 0xff);
+        }
+        try {
+            return Double.parseDouble(new String(chars));
+        } catch (NumberFormatException e) {
+            throw new IOException("csv line " + line + " not valid");
+        }
+    }
+}
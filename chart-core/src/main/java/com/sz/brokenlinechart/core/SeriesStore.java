@@ -0,0 +1,143 @@
+package com.sz.brokenlinechart.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Series shared by many charts, e.g. the rows of a dashboard list, by id and reference
+ * counted, with one {@link GeometryCache} for all of them.
+ *
+ * A chart acquires the series it shows and releases it when it shows something else. A
+ * series nobody references stays in the store, with its geometry, until more than
+ * maxUnreferenced others are unreferenced too, so scrolling back to a row finds both.
+ */
+public class SeriesStore {
+
+    /**
+     * Creates a series the store doesn't have yet.
+     */
+    public interface Loader {
+        Series load(String id) throws Exception;
+    }
+
+    private static final class Entry {
+        final Series series;
+        int references;
+
+        Entry(Series series) {
+            this.series = series;
+        }
+    }
+
+    private final int maxUnreferenced;
+    private final GeometryCache geometryCache;
+    // least recently used first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int unreferenced;
+
+    /**
+     * @param geometryBudget bytes of projected geometry to keep, see {@link GeometryCache}
+     */
+    public SeriesStore(int maxUnreferenced, long geometryBudget) {
+        if (maxUnreferenced < 0) {
+            throw new IllegalArgumentException("maxUnreferenced not valid");
+        }
+        this.maxUnreferenced = maxUnreferenced;
+        this.geometryCache = new GeometryCache(geometryBudget);
+    }
+
+    public GeometryCache getGeometryCache() {
+        return geometryCache;
+    }
+
+    /**
+     * Adds a series, or replaces the one with the id. A replaced series keeps its references,
+     * the charts showing it have to be bound again to show the new one.
+     */
+    public synchronized void put(String id, Series series) {
+        if (id == null || series == null) {
+            throw new IllegalArgumentException("data is null");
+        }
+        Entry old = entries.get(id);
+        Entry entry = new Entry(series);
+        if (old != null) {
+            entry.references = old.references;
+            geometryCache.remove(id);
+        } else {
+            unreferenced++;
+        }
+        entries.put(id, entry);
+        trim();
+    }
+
+    /**
+     * @return the series with the id, or null if the store doesn't have it. Must be
+     * released again.
+     */
+    public synchronized Series acquire(String id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.references++ == 0) {
+            unreferenced--;
+        }
+        return entry.series;
+    }
+
+    /**
+     * Like {@link #acquire(String)}, loading the series if the store doesn't have it. The
+     * loader runs on the calling thread while the store is locked.
+     */
+    public synchronized Series acquire(String id, Loader loader) throws Exception {
+        Series series = acquire(id);
+        if (series != null) {
+            return series;
+        }
+        series = loader.load(id);
+        if (series == null) {
+            throw new Exception("data is null");
+        }
+        Entry entry = new Entry(series);
+        entry.references = 1;
+        entries.put(id, entry);
+        return series;
+    }
+
+    public synchronized void release(String id) {
+        Entry entry = entries.get(id);
+        if (entry == null || entry.references == 0) {
+            throw new IllegalStateException("series " + id + " not acquired");
+        }
+        if (--entry.references == 0) {
+            unreferenced++;
+            trim();
+        }
+    }
+
+    /**
+     * @return number of charts that acquired the series with the id
+     */
+    public synchronized int getReferenceCount(String id) {
+        Entry entry = entries.get(id);
+        return entry == null ? 0 : entry.references;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // drops the least recently used unreferenced series with their geometry
+    private void trim() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (unreferenced > maxUnreferenced && it.hasNext()) {
+            Map.Entry<String, Entry> entry = it.next();
+            if (entry.getValue().references == 0) {
+                it.remove();
+                unreferenced--;
+                geometryCache.remove(entry.getKey());
+            }
+        }
+    }
+}
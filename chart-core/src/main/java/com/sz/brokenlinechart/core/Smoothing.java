@@ -0,0 +1,83 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Control points of a smooth curve through projected points, one cubic Bezier segment
+ * between each pair of neighbours.
+ *
+ * The tangent at a point only depends on the point and its two neighbours, so when points
+ * are appended only the last segments have to be computed again, see the fromSegment
+ * argument of {@link #controls}.
+ */
+public final class Smoothing {
+
+    // straight lines
+    public static final int NONE = 0;
+    // monotone cubic: never overshoots the points, a flat point stays flat
+    public static final int MONOTONE = 1;
+    // Catmull-Rom: rounder, but may overshoot around peaks
+    public static final int CATMULL_ROM = 2;
+
+    private Smoothing() {
+    }
+
+    /**
+     * @return the size of the output of {@link #controls} for count points
+     */
+    public static int capacity(int count) {
+        return 4 * Math.max(count - 1, 0);
+    }
+
+    /**
+     * Computes the control points of the segments fromSegment to count - 2 into out, four
+     * floats per segment: x and y of the first and of the second control point. The
+     * segments before fromSegment are left as they are.
+     *
+     * @param xs ascending
+     */
+    public static void controls(int mode, float[] xs, float[] ys, int count, int fromSegment, float[] out) {
+        for (int k = Math.max(fromSegment, 0); k < count - 1; k++) {
+            int o = k * 4;
+            if (mode == CATMULL_ROM) {
+                int previous = Math.max(k - 1, 0);
+                int next = Math.min(k + 2, count - 1);
+                out[o] = xs[k] + (xs[k + 1] - xs[previous]) / 6;
+                out[o + 1] = ys[k] + (ys[k + 1] - ys[previous]) / 6;
+                out[o + 2] = xs[k + 1] - (xs[next] - xs[k]) / 6;
+                out[o + 3] = ys[k + 1] - (ys[next] - ys[k]) / 6;
+            } else {
+                float third = (xs[k + 1] - xs[k]) / 3;
+                out[o] = xs[k] + third;
+                out[o + 1] = ys[k] + monotoneTangent(xs, ys, count, k) * third;
+                out[o + 2] = xs[k + 1] - third;
+                out[o + 3] = ys[k + 1] - monotoneTangent(xs, ys, count, k + 1) * third;
+            }
+        }
+    }
+
+    private static float slope(float[] xs, float[] ys, int k) {
+        float dx = xs[k + 1] - xs[k];
+        return dx > 0 ? (ys[k + 1] - ys[k]) / dx : Float.NaN;
+    }
+
+    /**
+     * Fritsch-Butland: the weighted harmonic mean of the slopes on both sides, 0 at a local
+     * extreme. Vertical segments, e.g. the extremes of a decimated column, get tangent 0.
+     */
+    private static float monotoneTangent(float[] xs, float[] ys, int count, int k) {
+        float before = k > 0 ? slope(xs, ys, k - 1) : Float.NaN;
+        float after = k < count - 1 ? slope(xs, ys, k) : Float.NaN;
+        if (k == 0) {
+            return after == after ? after : 0;
+        }
+        if (k == count - 1) {
+            return before == before ? before : 0;
+        }
+        if (!(before * after > 0)) {
+            // an extreme, a flat side or a vertical neighbour
+            return 0;
+        }
+        float h0 = xs[k] - xs[k - 1];
+        float h1 = xs[k + 1] - xs[k];
+        return 3 * (h0 + h1) / ((2 * h1 + h0) / before + (h1 + 2 * h0) / after);
+    }
+}
@@ -0,0 +1,43 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * A horizontal band of values, e.g. what is beyond an SLO limit. The band is filled across
+ * the plot and every point inside it gets a marker in its color.
+ *
+ * Open bands use infinity, e.g. new ThresholdBand(500, Float.POSITIVE_INFINITY, color) for
+ * everything above 500.
+ */
+public final class ThresholdBand {
+
+    public final float low;
+    public final float high;
+    // ARGB, the band is filled with it and the markers drawn opaque
+    public final int color;
+
+    public ThresholdBand(float low, float high, int color) {
+        if (!(low <= high)) {
+            throw new IllegalArgumentException("band not valid");
+        }
+        this.low = low;
+        this.high = high;
+        this.color = color;
+    }
+
+    public boolean contains(float value) {
+        return value >= low && value <= high;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ThresholdBand)) {
+            return false;
+        }
+        ThresholdBand b = (ThresholdBand) o;
+        return low == b.low && high == b.high && color == b.color;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Float.floatToIntBits(low) + Float.floatToIntBits(high)) + color;
+    }
+}
@@ -0,0 +1,360 @@
+package com.sz.brokenlinechart.core;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Picks the ticks of an axis, as many as fit its length in pixels: "nice" steps of 1, 2 or
+ * 5 times a power of ten for values, whole seconds, minutes, hours, days, weeks, months or
+ * years for timestamps.
+ *
+ * Tick sets are memoized by the range and the number of ticks that fit, so a redraw or
+ * going back to a range reuses its ticks and labels. The labels are memoized per tick as
+ * well: a pan changes the range on every frame, but the ticks it picks stay the same until
+ * the axis moved by a step.
+ *
+ * Both caches are direct mapped like {@link LabelCache} and only keep immutable entries, so
+ * value ticks may be picked on the layout worker. Time ticks go through a Calendar and date
+ * formats, they must be picked on one thread.
+ */
+public class TickEngine {
+
+    private static final int CACHE_SIZE = 64;
+    // floats widened to double are off by a few ulps, a range a hair beyond a tick doesn't
+    // take another step
+    private static final double TOLERANCE = 1e-6;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    private static final long SECOND = 1000L;
+    private static final long MINUTE = 60 * SECOND;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    // the average Gregorian month, the step of calendar ticks
+    private static final long MONTH = 2629746000L;
+    // steps up to 12 hours, aligned to the local time of day
+    private static final long[] TIME_STEPS = {
+            SECOND, 2 * SECOND, 5 * SECOND, 10 * SECOND, 15 * SECOND, 30 * SECOND,
+            MINUTE, 2 * MINUTE, 5 * MINUTE, 10 * MINUTE, 15 * MINUTE, 30 * MINUTE,
+            HOUR, 2 * HOUR, 3 * HOUR, 6 * HOUR, 12 * HOUR,
+    };
+    private static final int[] DAY_STEPS = {1, 2, 7};
+    private static final int[] MONTH_STEPS = {1, 2, 3, 6, 12, 24, 60, 120};
+
+    private static final int UNIT_SECOND = 0;
+    private static final int UNIT_MINUTE = 1;
+    private static final int UNIT_DAY = 2;
+    private static final int UNIT_MONTH = 3;
+    private static final int UNIT_YEAR = 4;
+    private static final String[] UNIT_PATTERNS = {"HH:mm:ss", "HH:mm", "MM/dd", "yyyy/MM", "yyyy"};
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final Entry[] mValueTicks = new Entry[CACHE_SIZE];
+    private final Entry[] mTimeTicks = new Entry[CACHE_SIZE];
+    private final TimeLabel[] mTimeLabels = new TimeLabel[4 * CACHE_SIZE];
+    // labels with the decimals of the step, by decimals
+    private final LabelCache[] mStepLabels = new LabelCache[16];
+    private final DateFormat[] mUnitFormats = new DateFormat[UNIT_PATTERNS.length];
+    private Calendar mCalendar;
+
+    private static final class Entry {
+        final double min;
+        final double max;
+        final int count;
+        final Object format;
+        final Ticks ticks;
+
+        Entry(double min, double max, int count, Object format, Ticks ticks) {
+            this.min = min;
+            this.max = max;
+            this.count = count;
+            this.format = format;
+            this.ticks = ticks;
+        }
+
+        boolean matches(double min, double max, int count, Object format) {
+            return this.min == min && this.max == max && this.count == count && this.format == format;
+        }
+    }
+
+    private static final class TimeLabel {
+        final long time;
+        final DateFormat format;
+        final String label;
+
+        TimeLabel(long time, DateFormat format, String label) {
+            this.time = time;
+            this.format = format;
+            this.label = label;
+        }
+    }
+
+    /**
+     * Ticks of a value axis. The first and the last tick enclose min and max, they are the
+     * range to show. An empty range is widened around its value. Flat ranges and ranges
+     * across 0 get at least two intervals, even if maxIntervals or the length allow one.
+     *
+     * @param length       of the axis in pixels
+     * @param spacing      least pixels between two ticks
+     * @param maxIntervals most intervals between the first and the last tick
+     * @param formatter    formats the labels, null for the decimals of the step
+     * @return at least two ticks
+     */
+    public Ticks values(double min, double max, float length, float spacing, int maxIntervals, LabelFormatter formatter) {
+        int intervals = Math.max(1, Math.min(maxIntervals, (int) (length / spacing)));
+        int slot = slot(min, max, intervals);
+        Entry entry = mValueTicks[slot];
+        if (entry != null && entry.matches(min, max, intervals, formatter)) {
+            return entry.ticks;
+        }
+        Ticks ticks = pickValues(min, max, intervals, formatter);
+        mValueTicks[slot] = new Entry(min, max, intervals, formatter, ticks);
+        return ticks;
+    }
+
+    private Ticks pickValues(double min, double max, int intervals, LabelFormatter formatter) {
+        if (Double.isNaN(min) || Double.isNaN(max) || Double.isInfinite(min) || Double.isInfinite(max)) {
+            min = 0;
+            max = 1;
+        }
+        if (!(max > min)) {
+            // a flat range is shown around its value, with a tick below and above it
+            double half = min == 0 ? 1 : Math.abs(min) / 10;
+            min -= half;
+            max += half;
+            intervals = Math.max(intervals, 2);
+        }
+        if (min < 0 && max > 0) {
+            // 0 is a multiple of every step, a single interval can't span it however large
+            intervals = Math.max(intervals, 2);
+        }
+        // the step is mantissa * 10^exponent, the smallest nice one above range / intervals
+        // that still fits once the ends are rounded out to whole steps
+        // ticks are drawn and labeled as floats, closer ones would collapse
+        double ulp = Math.ulp((float) Math.max(Math.abs(min), Math.abs(max)));
+        double raw = Math.max((max - min) / intervals, 4 * ulp);
+        int exponent = (int) Math.floor(Math.log10(raw));
+        double f = raw / scale(1, exponent);
+        int mantissa = f <= 1 ? 1 : f <= 2 ? 2 : f <= 5 ? 5 : 10;
+        if (mantissa == 10) {
+            mantissa = 1;
+            exponent++;
+        }
+        long first;
+        long last;
+        while (true) {
+            double step = scale(mantissa, exponent);
+            first = (long) Math.floor(min / step + TOLERANCE);
+            last = (long) Math.ceil(max / step - TOLERANCE);
+            if (last - first <= intervals) {
+                break;
+            }
+            if (mantissa == 5) {
+                mantissa = 1;
+                exponent++;
+            } else {
+                mantissa = mantissa == 1 ? 2 : 5;
+            }
+        }
+        if (last == first) {
+            last++;
+        }
+        if (formatter == null) {
+            formatter = stepLabels(Math.max(0, -exponent));
+        }
+        int count = (int) (last - first + 1);
+        double[] values = new double[count];
+        String[] labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            // the multiple of the step scaled once, 3 * 0.1 would not be 0.3
+            values[i] = scale((first + i) * mantissa, exponent);
+            labels[i] = formatter.format((float) values[i]);
+        }
+        return new Ticks(values, labels, scale(mantissa, exponent));
+    }
+
+    private LabelFormatter stepLabels(int decimals) {
+        decimals = Math.min(decimals, mStepLabels.length - 1);
+        LabelCache labels = mStepLabels[decimals];
+        if (labels == null) {
+            labels = new LabelCache(DecimalLabelFormatter.forPattern("%." + decimals + "f"), LabelCache.DEFAULT_SIZE);
+            mStepLabels[decimals] = labels;
+        }
+        return labels;
+    }
+
+    private static double scale(long units, int exponent) {
+        if (exponent >= 0) {
+            return units * (exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[exponent] : Math.pow(10, exponent));
+        }
+        return units / (-exponent < POWERS_OF_TEN.length ? POWERS_OF_TEN[-exponent] : Math.pow(10, -exponent));
+    }
+
+    /**
+     * Ticks of a time axis at whole local times between start and stop, in milliseconds.
+     * Unlike value ticks they don't change the range and may be empty.
+     *
+     * @param length  of the axis in pixels
+     * @param spacing least pixels between two ticks, the width of a label and a gap
+     * @param format  formats the labels, null for a pattern that fits the step like
+     *                "HH:mm" for minutes or "MM/dd" for days
+     */
+    public Ticks times(double start, double stop, float length, float spacing, DateFormat format) {
+        int maxTicks = Math.max(1, (int) (length / spacing));
+        int slot = slot(start, stop, maxTicks);
+        Entry entry = mTimeTicks[slot];
+        if (entry != null && entry.matches(start, stop, maxTicks, format)) {
+            return entry.ticks;
+        }
+        Ticks ticks = pickTimes(start, stop, maxTicks, format);
+        mTimeTicks[slot] = new Entry(start, stop, maxTicks, format, ticks);
+        return ticks;
+    }
+
+    private Ticks pickTimes(double start, double stop, int maxTicks, DateFormat format) {
+        double span = Math.max(stop - start, 0);
+        Calendar calendar = calendar();
+        long from = (long) Math.ceil(start);
+        long to = (long) Math.floor(stop);
+        long[] times;
+        long step;
+        int unit;
+        int i = 0;
+        while (i < TIME_STEPS.length - 1 && span / TIME_STEPS[i] > maxTicks) {
+            i++;
+        }
+        if (span / TIME_STEPS[i] <= maxTicks) {
+            step = TIME_STEPS[i];
+            unit = step < MINUTE ? UNIT_SECOND : UNIT_MINUTE;
+            // multiples of the step in local time, so hours start at :00 and 3 hours at midnight
+            long offset = calendar.getTimeZone().getOffset(from);
+            long first = -floorDiv(-(from + offset), step) * step - offset;
+            int count = first > to ? 0 : (int) ((to - first) / step + 1);
+            times = new long[count];
+            for (int k = 0; k < count; k++) {
+                times[k] = first + k * step;
+            }
+        } else if (span / (DAY_STEPS[DAY_STEPS.length - 1] * DAY) <= maxTicks) {
+            int days = DAY_STEPS[0];
+            for (int d : DAY_STEPS) {
+                days = d;
+                if (span / (d * DAY) <= maxTicks) {
+                    break;
+                }
+            }
+            step = days * DAY;
+            unit = UNIT_DAY;
+            times = calendarTimes(calendar, from, to, Calendar.DAY_OF_MONTH, days, maxTicks);
+        } else {
+            int months = MONTH_STEPS[0];
+            for (int m : MONTH_STEPS) {
+                months = m;
+                if (span / (m * MONTH) <= maxTicks) {
+                    break;
+                }
+            }
+            while (span / (months * MONTH) > maxTicks) {
+                months *= 2;
+            }
+            step = months * MONTH;
+            unit = months % 12 == 0 ? UNIT_YEAR : UNIT_MONTH;
+            times = calendarTimes(calendar, from, to, Calendar.MONTH, months, maxTicks);
+        }
+        if (format == null) {
+            format = unitFormat(unit);
+        }
+        double[] values = new double[times.length];
+        String[] labels = new String[times.length];
+        for (int k = 0; k < times.length; k++) {
+            values[k] = times[k];
+            labels[k] = timeLabel(times[k], format);
+        }
+        return new Ticks(values, labels, step);
+    }
+
+    /**
+     * Local midnights (DAY_OF_MONTH) or first days of months (MONTH) in [from, to] whose
+     * number is a multiple of n, so the ticks stay put while the range moves. Weeks start
+     * on the first day of the week of the locale.
+     */
+    private static long[] calendarTimes(Calendar calendar, long from, long to, int field, int n, int maxTicks) {
+        long[] times = new long[maxTicks + 1];
+        int count = 0;
+        calendar.setTimeInMillis(from);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (field == Calendar.MONTH) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        while (calendar.getTimeInMillis() <= to && count < times.length) {
+            long time = calendar.getTimeInMillis();
+            if (time >= from && aligned(calendar, field, n)) {
+                times[count++] = time;
+            }
+            // single steps until the first aligned tick, then whole steps
+            calendar.add(field, count == 0 ? 1 : n);
+        }
+        return count == times.length ? times : Arrays.copyOf(times, count);
+    }
+
+    private static boolean aligned(Calendar calendar, int field, int n) {
+        if (field == Calendar.MONTH) {
+            return (calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH)) % n == 0;
+        }
+        if (n == 7) {
+            return calendar.get(Calendar.DAY_OF_WEEK) == calendar.getFirstDayOfWeek();
+        }
+        // days since the epoch in local time
+        long local = calendar.getTimeInMillis() + calendar.getTimeZone().getOffset(calendar.getTimeInMillis());
+        return floorDiv(local, DAY) % n == 0;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return x % y < 0 ? q - 1 : q;
+    }
+
+    private String timeLabel(long time, DateFormat format) {
+        int slot = (int) ((time ^ (time >>> 32)) * 0x9E3779B9L >>> 16) & (mTimeLabels.length - 1);
+        TimeLabel entry = mTimeLabels[slot];
+        if (entry != null && entry.time == time && entry.format == format) {
+            return entry.label;
+        }
+        String label = format.format(new Date(time));
+        mTimeLabels[slot] = new TimeLabel(time, format, label);
+        return label;
+    }
+
+    private DateFormat unitFormat(int unit) {
+        DateFormat format = mUnitFormats[unit];
+        if (format == null) {
+            format = new SimpleDateFormat(UNIT_PATTERNS[unit], Locale.getDefault());
+            mUnitFormats[unit] = format;
+        }
+        return format;
+    }
+
+    private Calendar calendar() {
+        if (mCalendar == null) {
+            mCalendar = Calendar.getInstance();
+        }
+        return mCalendar;
+    }
+
+    private static int slot(double min, double max, int count) {
+        long bits = Double.doubleToLongBits(min) * 31 + Double.doubleToLongBits(max);
+        int hash = (int) (bits ^ (bits >>> 32)) * 31 + count;
+        return (hash ^ (hash >>> 16)) * 0x9E3779B9 >>> 16 & (CACHE_SIZE - 1);
+    }
+}
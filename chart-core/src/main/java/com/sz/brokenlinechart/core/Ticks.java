@@ -0,0 +1,51 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * The ticks of one axis, ascending values with their labels. Immutable, so a tick set can
+ * be kept by {@link TickEngine} and shared by every snapshot laid out for the same range.
+ */
+public final class Ticks {
+
+    private final double[] values;
+    private final String[] labels;
+    private final double step;
+
+    Ticks(double[] values, String[] labels, double step) {
+        this.values = values;
+        this.labels = labels;
+        this.step = step;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public String getLabel(int index) {
+        return labels[index];
+    }
+
+    /**
+     * @return the distance between two ticks, an average for calendar months and years
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /**
+     * @return the first tick, the bottom of the range for value ticks
+     */
+    public double getMin() {
+        return values[0];
+    }
+
+    /**
+     * @return the last tick, the top of the range for value ticks
+     */
+    public double getMax() {
+        return values[values.length - 1];
+    }
+}
@@ -0,0 +1,194 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Animates the drawn lines of a {@link ChartSnapshot} from the shape shown before a layout
+ * pass to the new one.
+ *
+ * When it starts, the old line of every series is sampled once at the x positions of the
+ * new line, so each frame is only a lerp of the y coordinates between two float arrays of
+ * the same length: no projection, no range query and no allocation once the buffers have
+ * grown to the size of the lines. The x coordinates are the new ones from the first frame.
+ */
+final class Transition {
+
+    private long mDuration;
+    // frame time of the first frame, 0 until it was drawn
+    private long mStart;
+    private boolean mRunning;
+    private Track[] mTracks = new Track[0];
+    private int mTrackCount;
+
+    /**
+     * One line: the shape before the layout pass, the target and the current frame.
+     */
+    static final class Track {
+        // the line shown before the layout pass
+        float[] oldX = new float[0];
+        float[] oldY = new float[0];
+        int oldCount;
+        // y of the old line at the new x positions
+        float[] fromY = new float[0];
+        // the new line, owned by the snapshot
+        float[] toX;
+        float[] toY;
+        // the current frame
+        float[] y = new float[0];
+        int count;
+    }
+
+    void setDuration(long nanos) {
+        mDuration = nanos;
+    }
+
+    long getDuration() {
+        return mDuration;
+    }
+
+    boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * @return the current frame of the main series (track 0) and the additional series
+     */
+    Track getTrack(int index) {
+        return mTracks[index];
+    }
+
+    /**
+     * Keeps what g shows right now, before a layout pass replaces it. While running that is
+     * the current frame, so a new target continues from where the line is.
+     */
+    void capture(ChartSnapshot g) {
+        int tracks = g.lines.length + 1;
+        grow(tracks);
+        for (int i = 0; i < mTracks.length; i++) {
+            Track track = mTracks[i];
+            if (i >= tracks) {
+                track.oldCount = 0;
+                continue;
+            }
+            float[] xs = i == 0 ? g.drawX : g.lines[i - 1].drawX;
+            float[] ys = i == 0 ? g.drawY : g.lines[i - 1].drawY;
+            int count = i == 0 ? g.drawCount : g.lines[i - 1].drawCount;
+            // appends may have slid the main series, see ChartSnapshot.drawShift
+            int from = i == 0 ? g.drawFrom : 0;
+            float shift = i == 0 ? g.drawShift : 0;
+            if (mRunning && i < mTrackCount) {
+                // the current frame, x is the previous target
+                xs = track.toX;
+                ys = track.y;
+                count = track.count;
+                from = 0;
+                shift = 0;
+            }
+            if (track.oldX.length < count) {
+                track.oldX = new float[count];
+                track.oldY = new float[count];
+            }
+            for (int j = 0; j < count; j++) {
+                track.oldX[j] = xs[from + j] + shift;
+            }
+            System.arraycopy(ys, from, track.oldY, 0, count);
+            track.oldCount = count;
+        }
+        mRunning = false;
+    }
+
+    // new tracks have no old line, they start from the baseline
+    private void grow(int tracks) {
+        if (mTracks.length < tracks) {
+            Track[] grown = new Track[tracks];
+            System.arraycopy(mTracks, 0, grown, 0, mTracks.length);
+            for (int i = mTracks.length; i < tracks; i++) {
+                grown[i] = new Track();
+            }
+            mTracks = grown;
+        }
+    }
+
+    /**
+     * Starts animating from the captured lines to the ones of g. g may have more series
+     * than the captured snapshot, the added ones rise from the baseline.
+     *
+     * @param baseline where series without an old line start from
+     */
+    void start(ChartSnapshot g, float baseline) {
+        mTrackCount = g.lines.length + 1;
+        grow(mTrackCount);
+        for (int i = 0; i < mTrackCount; i++) {
+            Track track = mTracks[i];
+            track.toX = i == 0 ? g.drawX : g.lines[i - 1].drawX;
+            track.toY = i == 0 ? g.drawY : g.lines[i - 1].drawY;
+            track.count = i == 0 ? g.drawCount : g.lines[i - 1].drawCount;
+            if (track.fromY.length < track.count) {
+                track.fromY = new float[track.count];
+                track.y = new float[track.count];
+            }
+            sample(track, baseline);
+            System.arraycopy(track.fromY, 0, track.y, 0, track.count);
+        }
+        mStart = 0;
+        mRunning = mDuration > 0;
+    }
+
+    // fromY[i] = the old line at toX[i], both are ascending in x so one walk covers it
+    private static void sample(Track track, float baseline) {
+        int n = track.oldCount;
+        float[] oldX = track.oldX;
+        float[] oldY = track.oldY;
+        int j = 0;
+        for (int i = 0; i < track.count; i++) {
+            float x = track.toX[i];
+            if (n == 0) {
+                track.fromY[i] = baseline;
+            } else if (x <= oldX[0]) {
+                track.fromY[i] = oldY[0];
+            } else if (x >= oldX[n - 1]) {
+                track.fromY[i] = oldY[n - 1];
+            } else {
+                while (oldX[j + 1] < x) {
+                    j++;
+                }
+                float dx = oldX[j + 1] - oldX[j];
+                float f = dx > 0 ? (x - oldX[j]) / dx : 1;
+                track.fromY[i] = oldY[j] + (oldY[j + 1] - oldY[j]) * f;
+            }
+        }
+    }
+
+    /**
+     * Computes the frame at frameTimeNanos.
+     *
+     * @return false once the last frame has been computed
+     */
+    boolean step(long frameTimeNanos) {
+        if (!mRunning) {
+            return false;
+        }
+        if (mStart == 0) {
+            mStart = frameTimeNanos;
+        }
+        float t = Math.min(1f, (frameTimeNanos - mStart) / (float) mDuration);
+        // ease out, fast at the start and settling at the end
+        float u = 1 - t;
+        float e = 1 - u * u * u;
+        for (int i = 0; i < mTrackCount; i++) {
+            Track track = mTracks[i];
+            float[] from = track.fromY;
+            float[] to = track.toY;
+            float[] y = track.y;
+            for (int k = 0, count = track.count; k < count; k++) {
+                y[k] = from[k] + (to[k] - from[k]) * e;
+            }
+        }
+        if (t >= 1) {
+            mRunning = false;
+        }
+        return mRunning;
+    }
+
+    void cancel() {
+        mRunning = false;
+    }
+}
@@ -0,0 +1,94 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Writes projected points into flat vertex buffers, for renderers that submit lines and
+ * triangles directly instead of building a path that is tessellated on every draw.
+ *
+ * Both methods work on a window of the points, so a long line is submitted in batches
+ * through buffers of a fixed size, see {@link #BATCH}.
+ */
+public final class Vertices {
+
+    // segments per batch, the buffers stay a few tens of KB
+    public static final int BATCH = 2048;
+
+    private Vertices() {
+    }
+
+    /**
+     * @return the size of the segment buffer for {@link #segments} batches
+     */
+    public static int segmentsCapacity() {
+        return 4 * BATCH;
+    }
+
+    /**
+     * @return the number of vertices of the strip buffers for {@link #strip} batches, two
+     * floats each in the vertex buffer and one color each in the color buffer
+     */
+    public static int stripCapacity() {
+        return 2 * (BATCH + 1);
+    }
+
+    /**
+     * Writes the segments between points from and from + count - 1 into out, four floats
+     * per segment: x and y of its start and of its end, as Canvas.drawLines takes them.
+     * count is at most {@link #BATCH} + 1, consecutive batches share their boundary point.
+     *
+     * @return the number of floats written
+     */
+    public static int segments(float[] xs, float[] ys, int from, int count, float[] out) {
+        int n = 0;
+        for (int i = from + 1, end = from + count; i < end; i++) {
+            out[n++] = xs[i - 1];
+            out[n++] = ys[i - 1];
+            out[n++] = xs[i];
+            out[n++] = ys[i];
+        }
+        return n;
+    }
+
+    /**
+     * Writes the area between points from to from + count - 1 and baseline as a triangle
+     * strip: each point followed by its foot on the baseline. The colors are the vertical
+     * gradient from topColor at gradientTop to bottomColor at baseline evaluated at each
+     * vertex, interpolating them across a triangle gives the same gradient as it is linear
+     * in y. Like {@link #segments}, consecutive batches share their boundary point.
+     *
+     * @return the number of vertices written
+     */
+    public static int strip(float[] xs, float[] ys, int from, int count, float baseline,
+                            float gradientTop, int topColor, int bottomColor, float[] vertices, int[] colors) {
+        float height = baseline - gradientTop;
+        int n = 0;
+        for (int i = from, end = from + count; i < end; i++) {
+            float y = ys[i];
+            vertices[2 * n] = xs[i];
+            vertices[2 * n + 1] = y;
+            colors[n++] = height > 0 ? lerp(topColor, bottomColor, (y - gradientTop) / height) : topColor;
+            vertices[2 * n] = xs[i];
+            vertices[2 * n + 1] = baseline;
+            colors[n++] = bottomColor;
+        }
+        return n;
+    }
+
+    /**
+     * @return the ARGB color at f between from (0) and to (1), clamped like the gradient
+     */
+    static int lerp(int from, int to, float f) {
+        if (f <= 0) {
+            return from;
+        }
+        if (f >= 1) {
+            return to;
+        }
+        int color = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int a = (from >>> shift) & 0xff;
+            int b = (to >>> shift) & 0xff;
+            color |= ((int) (a + (b - a) * f + 0.5f) & 0xff) << shift;
+        }
+        return color;
+    }
+}
@@ -0,0 +1,281 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChartEngineTest {
+
+    private static final int LABELS = 10;
+
+    private ChartEngine mEngine;
+    // settings of mEngine, the reference layouts get the same
+    private int mRollingWindow;
+    private int mSmoothing = Smoothing.NONE;
+    private Downsampler mDownsampler;
+
+    @Before
+    public void setUp() throws Exception {
+        mEngine = newEngine();
+    }
+
+    private ChartEngine newEngine() throws Exception {
+        ChartEngine engine = new ChartEngine(new ChartStyle(1, 1));
+        engine.setSize(800, 600);
+        String[] labels = new String[LABELS];
+        for (int i = 0; i < LABELS; i++) {
+            labels[i] = String.valueOf(i);
+        }
+        engine.setXAxisBasisLabels(labels);
+        if (mRollingWindow > 0) {
+            engine.setRollingStats(mRollingWindow, 2);
+        }
+        engine.setSmoothing(mSmoothing);
+        engine.setDownsampler(mDownsampler);
+        return engine;
+    }
+
+    /**
+     * What a snapshot shows, the points as drawn without their x positions and the value range.
+     */
+    private static String shown(ChartSnapshot g) {
+        return Arrays.toString(Arrays.copyOfRange(g.drawY, g.drawFrom, g.drawFrom + g.drawCount))
+                + Arrays.toString(Arrays.copyOf(g.markerX, g.markerCount))
+                + " " + g.minData + ".." + g.maxData + " " + g.firstIndex + ".." + g.lastIndex;
+    }
+
+    // where the points are drawn, appends may have slid them through the buffer
+    private static float[] shownX(ChartSnapshot g) {
+        float[] xs = new float[g.drawCount];
+        for (int i = 0; i < g.drawCount; i++) {
+            xs[i] = g.drawX[g.drawFrom + i] + g.drawShift;
+        }
+        return xs;
+    }
+
+    private static String shownStats(ChartSnapshot g) {
+        return Arrays.toString(Arrays.copyOf(g.statsX, g.statsCount))
+                + Arrays.toString(Arrays.copyOf(g.meanY, g.statsCount));
+    }
+
+    /**
+     * Appends value and checks that the incremental update shows what a full layout pass
+     * of the same data shows.
+     */
+    private void appendAndCompare(float value) throws Exception {
+        mEngine.append(value, null);
+        ChartSnapshot appended = mEngine.getSnapshot();
+        ChartEngine reference = newEngine();
+        reference.setSeries(mEngine.getSeries(), false);
+        ChartSnapshot full = reference.getSnapshot();
+        assertEquals(shown(full), shown(appended));
+        assertArrayEquals(shownX(full), shownX(appended), 1e-3f);
+        if (mRollingWindow > 0) {
+            // the averages still cover dropped values, only the same engine knows them
+            String stats = shownStats(appended);
+            mEngine.computeLayout();
+            assertEquals(shownStats(mEngine.getSnapshot()), stats);
+        }
+    }
+
+    @Test
+    public void appendsUpToTheViewportEdge() throws Exception {
+        mEngine.setSeries(new Series());
+        for (int i = 0; i < LABELS + 5; i++) {
+            appendAndCompare(10 + i % 3);
+        }
+        // the 11th point is beyond the last label and the right edge of the plot
+        ChartSnapshot g = mEngine.getSnapshot();
+        assertEquals(LABELS, g.drawCount);
+        assertEquals(800 - mEngine.getStyle().horizontalSpaceRight, g.drawX[g.drawCount - 1], 1e-3f);
+    }
+
+    @Test
+    public void appendsToAFullRingBuffer() throws Exception {
+        mRollingWindow = 3;
+        mEngine = newEngine();
+        mEngine.setSeries(new Series());
+        for (int capacity = LABELS - 1; capacity <= LABELS + 1; capacity++) {
+            mEngine.setCapacity(capacity);
+            for (int i = 0; i < 3 * LABELS; i++) {
+                appendAndCompare(10 + i % 4);
+            }
+            assertEquals(Math.min(capacity, LABELS), mEngine.getSnapshot().drawCount);
+        }
+    }
+
+    @Test
+    public void slidesThroughThePointBuffer() throws Exception {
+        mEngine.setSeries(new Series());
+        mEngine.setCapacity(LABELS);
+        for (int i = 0; i < LABELS; i++) {
+            appendAndCompare(10 + i % 3);
+        }
+        for (int i = 0; i < 3 * LABELS; i++) {
+            appendAndCompare(10 + i % 3);
+            ChartSnapshot g = mEngine.getSnapshot();
+            // the first one moves the window into a buffer of twice its size, compacted every
+            // LABELS + 1 appends
+            assertEquals(i % (LABELS + 1), g.drawFrom);
+            assertEquals(2 * LABELS, g.pointsX.length);
+            if (i >= 1) {
+                assertEquals(0, g.allocations);
+            }
+        }
+    }
+
+    @Test
+    public void slidesAcrossRangeChanges() throws Exception {
+        mEngine.setSeries(new Series());
+        mEngine.setCapacity(LABELS);
+        for (int i = 0; i < LABELS + 3; i++) {
+            appendAndCompare(10);
+        }
+        // a new maximum widens the range, then drops out of the window again
+        appendAndCompare(50);
+        for (int i = 0; i < LABELS + 3; i++) {
+            appendAndCompare(10 + i % 2);
+        }
+        // the minimum drops out while the window slides
+        appendAndCompare(-20);
+        for (int i = 0; i < 2 * LABELS; i++) {
+            appendAndCompare(i < LABELS ? 5 : 12);
+        }
+    }
+
+    @Test
+    public void slidesSmoothedAndDownsampledLines() throws Exception {
+        mSmoothing = Smoothing.MONOTONE;
+        mEngine = newEngine();
+        mEngine.setSeries(new Series());
+        mEngine.setCapacity(LABELS);
+        for (int i = 0; i < 3 * LABELS; i++) {
+            appendAndCompare(10 + i % 4);
+        }
+        mSmoothing = Smoothing.NONE;
+        mDownsampler = new M4Downsampler();
+        mEngine = newEngine();
+        mEngine.setSeries(new Series());
+        mEngine.setCapacity(LABELS);
+        for (int i = 0; i < 3 * LABELS; i++) {
+            appendAndCompare(10 + i % 4);
+            assertEquals(0, mEngine.getSnapshot().drawFrom);
+        }
+    }
+
+    @Test
+    public void tipLabelsFollowTheFormatter() throws Exception {
+        Series series = new Series(new float[]{1.5f}, null);
+        mEngine.setSeries(series);
+        assertEquals("1.50", series.getLeftLabel(0, mEngine.getTipLabels()));
+        mEngine.setLabelFormatter(new DecimalLabelFormatter(1));
+        assertEquals("1.5", series.getLeftLabel(0, mEngine.getTipLabels()));
+    }
+
+    @Test
+    public void swapDropsStaleLayouts() throws Exception {
+        final CountDownLatch gate = new CountDownLatch(1);
+        final boolean[] blocking = new boolean[1];
+        // holds the worker inside a pass until the gate opens
+        mEngine.setDownsampler(new Downsampler() {
+            private final Downsampler m4 = new M4Downsampler();
+
+            @Override
+            public int capacity(int count, int pixelWidth) {
+                return m4.capacity(count, pixelWidth);
+            }
+
+            @Override
+            public int downsample(float[] xs, float[] ys, int count, int pixelWidth, float[] outX, float[] outY) {
+                if (blocking[0]) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return m4.downsample(xs, ys, count, pixelWidth, outX, outY);
+            }
+        });
+        final Semaphore ready = new Semaphore(0);
+        mEngine.setCallback(new ChartEngine.Callback() {
+            @Override
+            public void onLayoutReady() {
+                ready.release();
+            }
+        });
+        Series series = new Series();
+        for (int i = 0; i < LABELS; i++) {
+            series.add(i, null, null);
+        }
+        mEngine.setSeries(series);
+        ChartSnapshot shown = mEngine.getSnapshot();
+        float left = mEngine.getStyle().horizontalSpaceLeft;
+        mEngine.setAsyncLayout(true);
+        assertTrue(ready.tryAcquire(5, TimeUnit.SECONDS));
+        try {
+            blocking[0] = true;
+            mEngine.computeLayout();
+            // the style changes while the newer pass runs, it keeps what it started with
+            mEngine.getStyle().horizontalSpaceLeft = 0;
+            // the finished pass is older than the data now
+            assertFalse(mEngine.swapPending());
+            assertSame(shown, mEngine.getSnapshot());
+        } finally {
+            gate.countDown();
+        }
+        assertTrue(ready.tryAcquire(5, TimeUnit.SECONDS));
+        assertTrue(mEngine.swapPending());
+        ChartSnapshot g = mEngine.getSnapshot();
+        assertEquals(left, g.spaceLeft, 0);
+        assertEquals(left, g.drawX[0], 1e-3f);
+        assertFalse(mEngine.swapPending());
+    }
+
+    @Test
+    public void appendsTimestamps() throws Exception {
+        Series series = Series.withTimestamps(16);
+        for (int i = 0; i < 5; i++) {
+            series.add(1000L * i, i, null, null);
+        }
+        mEngine.setSeries(series);
+        mEngine.append(5000, 7, null);
+        assertEquals(0, mEngine.getViewportStart(), 0);
+        assertEquals(5000, mEngine.getViewportSize(), 0);
+        assertEquals(5000, series.getTimestamp(5));
+        // the same time twice is fine, going back is not
+        mEngine.append(5000, 8, null);
+        try {
+            mEngine.append(4999, 9, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            mEngine.append(9, null);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(7, series.size());
+
+        mEngine.setSeries(new Series());
+        try {
+            mEngine.append(1000, 1, null);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DecimalLabelFormatterTest {
+
+    @Test
+    public void formatsLikeStringFormat() {
+        Random random = new Random(17);
+        for (int decimals = 0; decimals <= 6; decimals++) {
+            DecimalLabelFormatter formatter = new DecimalLabelFormatter(decimals);
+            String pattern = "%." + decimals + "f";
+            for (int i = 0; i < 2000; i++) {
+                float value = (float) ((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12)));
+                assertEquals(String.format(pattern, value), formatter.format(value));
+            }
+        }
+    }
+
+    @Test
+    public void roundsTiesAndEdgesLikeStringFormat() {
+        float[] values = {0f, -0f, 0.5f, 1.5f, 2.5f, -2.5f, 0.125f, 0.375f, -0.001f, 0.004999f,
+                0.005f, 9.995f, 99.995f, 1e15f, -3e16f, 1e30f, Float.MAX_VALUE, Float.MIN_VALUE,
+                Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (int decimals = 0; decimals <= 6; decimals++) {
+            DecimalLabelFormatter formatter = new DecimalLabelFormatter(decimals);
+            for (float value : values) {
+                assertEquals(value + " with " + decimals,
+                        String.format("%." + decimals + "f", value), formatter.format(value));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooManyDecimals() {
+        new DecimalLabelFormatter(7);
+    }
+
+    @Test
+    public void forPatternPicksTheFastPath() {
+        assertEquals(new DecimalLabelFormatter(2), DecimalLabelFormatter.forPattern("%.2f"));
+        assertEquals(new DecimalLabelFormatter(2).hashCode(),
+                DecimalLabelFormatter.forPattern("%.2f").hashCode());
+        assertNotEquals(new DecimalLabelFormatter(2), new DecimalLabelFormatter(3));
+
+        LabelFormatter other = DecimalLabelFormatter.forPattern("%8.3e");
+        assertFalse(other instanceof DecimalLabelFormatter);
+        assertEquals(String.format("%8.3e", 1234.5f), other.format(1234.5f));
+        assertFalse(DecimalLabelFormatter.forPattern("%.9f") instanceof DecimalLabelFormatter);
+    }
+
+    @Test
+    public void cacheReturnsTheSameLabel() {
+        final int[] calls = new int[1];
+        LabelCache cache = new LabelCache(new LabelFormatter() {
+            @Override
+            public String format(float value) {
+                calls[0]++;
+                return String.valueOf(value);
+            }
+        }, 10);
+        String label = cache.format(12.5f);
+        assertSame(label, cache.format(12.5f));
+        assertEquals(1, calls[0]);
+
+        // every value is formatted right, whatever slot it lands in
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(String.valueOf(i * 0.25f), cache.format(i * 0.25f));
+        }
+        assertTrue(calls[0] <= 1001);
+
+        cache.clear();
+        int before = calls[0];
+        cache.format(12.5f);
+        assertEquals(before + 1, calls[0]);
+    }
+}
@@ -0,0 +1,96 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DownsamplerTest {
+
+    private static final int COUNT = 100000;
+    private static final int WIDTH = 500;
+
+    private final float[] xs = new float[COUNT];
+    private final float[] ys = new float[COUNT];
+
+    public DownsamplerTest() {
+        Random random = new Random(4);
+        float y = 0;
+        for (int i = 0; i < COUNT; i++) {
+            xs[i] = i * (float) WIDTH / COUNT;
+            y += random.nextGaussian();
+            ys[i] = y;
+        }
+        // a single spike must survive
+        ys[COUNT / 3] = 10000;
+    }
+
+    @Test
+    public void m4KeepsTheExtremesOfEveryColumn() {
+        Downsampler m4 = new M4Downsampler();
+        float[] outX = new float[m4.capacity(COUNT, WIDTH)];
+        float[] outY = new float[outX.length];
+        int n = m4.downsample(xs, ys, COUNT, WIDTH, outX, outY);
+        assertTrue(n <= 4 * WIDTH);
+        assertAscending(outX, n);
+        for (int column = 0; column < WIDTH; column++) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < COUNT; i++) {
+                if ((int) Math.floor(xs[i]) == column) {
+                    min = Math.min(min, ys[i]);
+                    max = Math.max(max, ys[i]);
+                }
+            }
+            float outMin = Float.POSITIVE_INFINITY;
+            float outMax = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if ((int) Math.floor(outX[i]) == column) {
+                    outMin = Math.min(outMin, outY[i]);
+                    outMax = Math.max(outMax, outY[i]);
+                }
+            }
+            assertEquals(min, outMin, 0);
+            assertEquals(max, outMax, 0);
+        }
+        assertEquals(xs[0], outX[0], 0);
+        assertEquals(ys[COUNT - 1], outY[n - 1], 0);
+    }
+
+    @Test
+    public void lttbKeepsTheEndsAndTheSpike() {
+        Downsampler lttb = new LttbDownsampler();
+        float[] outX = new float[lttb.capacity(COUNT, WIDTH)];
+        float[] outY = new float[outX.length];
+        int n = lttb.downsample(xs, ys, COUNT, WIDTH, outX, outY);
+        assertEquals(WIDTH, n);
+        assertAscending(outX, n);
+        assertEquals(xs[0], outX[0], 0);
+        assertEquals(ys[0], outY[0], 0);
+        assertEquals(xs[COUNT - 1], outX[n - 1], 0);
+        assertEquals(ys[COUNT - 1], outY[n - 1], 0);
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            max = Math.max(max, outY[i]);
+        }
+        assertEquals(10000, max, 0);
+    }
+
+    @Test
+    public void shortInputIsCopied() {
+        Downsampler lttb = new LttbDownsampler();
+        float[] outX = new float[10];
+        float[] outY = new float[10];
+        assertEquals(10, lttb.downsample(xs, ys, 10, WIDTH, outX, outY));
+        assertEquals(ys[9], outY[9], 0);
+        assertEquals(0, new M4Downsampler().downsample(xs, ys, 0, WIDTH, outX, outY));
+    }
+
+    private static void assertAscending(float[] xs, int count) {
+        for (int i = 1; i < count; i++) {
+            assertTrue(xs[i] >= xs[i - 1]);
+        }
+    }
+}
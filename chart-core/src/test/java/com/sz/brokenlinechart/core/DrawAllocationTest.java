@@ -0,0 +1,91 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Drawing a laid out chart and moving the crosshair must not allocate, they run in every
+ * frame. Measured with the allocation counter of the current thread.
+ */
+public class DrawAllocationTest {
+
+    private static final int FRAMES = 1000;
+
+    private com.sun.management.ThreadMXBean mThreads;
+    private ChartEngine mEngine;
+    private ChartPainter mPainter;
+    private NullRenderer mRenderer;
+
+    @Before
+    public void setUp() throws Exception {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        mThreads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(mThreads.isThreadAllocatedMemorySupported());
+        mThreads.setThreadAllocatedMemoryEnabled(true);
+
+        mEngine = new ChartEngine(new ChartStyle(1, 1));
+        mEngine.setSize(1200, 700);
+        Series series = new Series();
+        for (int i = 0; i < 5000; i++) {
+            series.add((float) (100 + 30 * Math.sin(i / 50.0)), null, null);
+        }
+        mEngine.setSeries(series);
+        mEngine.setViewport(0, series.size());
+        mEngine.addSeries(series.copy(), 0xFFFF9500);
+        mPainter = new ChartPainter(mEngine);
+        mRenderer = new NullRenderer();
+    }
+
+    @Test
+    public void paintStaticDoesNotAllocate() {
+        for (int i = 0; i < FRAMES; i++) {
+            mPainter.paintStatic(mRenderer);
+        }
+        long bytes = allocated(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < FRAMES; i++) {
+                    mPainter.paintStatic(mRenderer);
+                }
+            }
+        });
+        assertTrue(mRenderer.polylines > 0);
+        assertEquals(0, bytes);
+    }
+
+    @Test
+    public void crosshairDoesNotAllocate() {
+        final float[] xs = {300, 600, 900};
+        // the first touch of a point formats and keeps its label
+        for (int i = 0; i < FRAMES; i++) {
+            mEngine.touch(xs[i % xs.length], 300);
+            mPainter.paintCrosshair(mRenderer);
+        }
+        long bytes = allocated(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < FRAMES; i++) {
+                    mEngine.touch(xs[i % xs.length], 300);
+                    mPainter.paintCrosshair(mRenderer);
+                }
+            }
+        });
+        assertEquals(0, bytes);
+    }
+
+    private long allocated(Runnable frames) {
+        long thread = Thread.currentThread().getId();
+        // what reading the counter costs itself
+        long before = mThreads.getThreadAllocatedBytes(thread);
+        long overhead = mThreads.getThreadAllocatedBytes(thread) - before;
+        before = mThreads.getThreadAllocatedBytes(thread);
+        frames.run();
+        return mThreads.getThreadAllocatedBytes(thread) - before - overhead;
+    }
+}
@@ -0,0 +1,143 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class GeometryCacheTest {
+
+    private final Series series = new Series();
+    private final ChartStyle style = new ChartStyle(1, 1);
+
+    private GeometryCache.Key key(String id, float width) {
+        return new GeometryCache.Key(id, series, width, 100, 0, 10, style,
+                new Object[] {new DecimalLabelFormatter(2), null});
+    }
+
+    @Test
+    public void keysCompareSettingsByValue() {
+        assertEquals(key("a", 10), key("a", 10));
+        assertEquals(key("a", 10).hashCode(), key("a", 10).hashCode());
+        assertNotEquals(key("a", 10), key("b", 10));
+        assertNotEquals(key("a", 10), key("a", 11));
+        assertNotEquals(key("a", 10), new GeometryCache.Key("a", new Series(), 10, 100, 0, 10, style,
+                new Object[] {new DecimalLabelFormatter(2), null}));
+        assertNotEquals(key("a", 10), new GeometryCache.Key("a", series, 10, 100, 0, 10, style,
+                new Object[] {new DecimalLabelFormatter(3), null}));
+
+        GeometryCache.Key before = key("a", 10);
+        series.add(1, null, null);
+        assertNotEquals(before, key("a", 10));
+
+        GeometryCache.Key styled = key("a", 10);
+        style.levels++;
+        assertNotEquals(styled, key("a", 10));
+
+        // the spacing decides how many ticks the layout picks
+        styled = key("a", 10);
+        style.levelSpacing *= 2;
+        assertNotEquals(styled, key("a", 10));
+        styled = key("a", 10);
+        style.timeTickSpacing *= 2;
+        assertNotEquals(styled, key("a", 10));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondTheBudget() {
+        long size = new ChartSnapshot(0, 0).byteSize();
+        GeometryCache cache = new GeometryCache(3 * size);
+        ChartSnapshot[] snapshots = new ChartSnapshot[4];
+        for (int i = 0; i < 3; i++) {
+            snapshots[i] = new ChartSnapshot(0, 0);
+            cache.put(key("a", i), snapshots[i]);
+        }
+        assertEquals(3, cache.size());
+        assertEquals(3 * size, cache.getBytes());
+        // 0 is used again, 1 is the eldest now
+        assertSame(snapshots[0], cache.get(key("a", 0)));
+        snapshots[3] = new ChartSnapshot(0, 0);
+        cache.put(key("a", 3), snapshots[3]);
+        assertEquals(3, cache.size());
+        assertNull(cache.get(key("a", 1)));
+        assertSame(snapshots[0], cache.get(key("a", 0)));
+        assertSame(snapshots[3], cache.get(key("a", 3)));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // replacing an entry doesn't count it twice
+        cache.put(key("a", 3), new ChartSnapshot(0, 0));
+        assertEquals(3 * size, cache.getBytes());
+
+        cache.remove("a");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+
+        GeometryCache small = new GeometryCache(size - 1);
+        small.put(key("a", 0), new ChartSnapshot(0, 0));
+        assertEquals(0, small.size());
+    }
+
+    @Test
+    public void enginesShareLayouts() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            series.add((float) Math.cos(i / 40.0), null, null);
+        }
+        GeometryCache cache = new GeometryCache(1 << 20);
+        ChartEngine first = new ChartEngine(new ChartStyle(1, 1));
+        first.setGeometryCache(cache, "a");
+        first.setSize(400, 300);
+        first.setSeries(series);
+        ChartEngine second = new ChartEngine(new ChartStyle(1, 1));
+        second.setGeometryCache(cache, "a");
+        second.setSize(400, 300);
+        int misses = cache.getMissCount();
+        second.setSeries(series);
+        assertEquals(misses, cache.getMissCount());
+        assertSame(first.getSnapshot(), second.getSnapshot());
+
+        second.setSize(401, 300);
+        assertNotSame(first.getSnapshot(), second.getSnapshot());
+    }
+
+    @Test
+    public void largeSeriesStayWithinTheBudget() throws Exception {
+        Series large = new Series(1 << 20);
+        for (int i = 0; i < 1 << 20; i++) {
+            large.add((float) Math.sin(i / 1000.0), null, null);
+        }
+        long budget = 256 * 1024;
+        GeometryCache cache = new GeometryCache(budget);
+        ChartEngine engine = new ChartEngine(new ChartStyle(1, 1));
+        engine.setGeometryCache(cache, "large");
+        engine.setRollingStats(20, 2);
+        engine.setSize(400, 300);
+        engine.setSeries(large);
+        engine.setViewport(0, large.size() - 1);
+        assertTrue(cache.getBytes() <= budget);
+        // the range index and the statistics are as large as the series, the snapshot
+        // must not keep them
+        ChartSnapshot g = engine.getSnapshot();
+        assertTrue(g.decimated);
+        assertTrue(g.statsCount > 0);
+        assertNull(g.summary);
+        assertNull(g.stats);
+
+        // shown from the cache, laid out again after a change
+        ChartEngine second = new ChartEngine(new ChartStyle(1, 1));
+        second.setGeometryCache(cache, "large");
+        second.setRollingStats(20, 2);
+        second.setSize(400, 300);
+        second.setSeries(large);
+        second.setViewport(0, large.size() - 1);
+        assertSame(g, second.getSnapshot());
+        second.append(2, null);
+        assertNotSame(g, second.getSnapshot());
+        assertEquals(2, second.getSnapshot().maxData, 1);
+        assertTrue(cache.getBytes() <= budget);
+    }
+}
@@ -0,0 +1,66 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void percentilesWithinASixteenth() {
+        Random random = new Random(18);
+        Histogram histogram = new Histogram();
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 30);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {0, 1, 25, 50, 90, 99, 99.9, 100}) {
+            long exact = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + exact + " " + value, value >= exact && value <= exact + exact / 16);
+        }
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[0], histogram.getMin());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        assertEquals(values[values.length - 1], histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 32; i++) {
+            histogram.record(i);
+        }
+        assertEquals(15, histogram.getValueAtPercentile(50));
+        assertEquals(15.5, histogram.getMean(), 0);
+        histogram.record(-5);
+        assertEquals(0, histogram.getMin());
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void addAndReset() {
+        Histogram a = new Histogram();
+        Histogram b = new Histogram();
+        assertEquals(0, a.getValueAtPercentile(50));
+        assertEquals(0, a.getMin());
+        a.record(100);
+        b.record(3);
+        b.record(5000);
+        a.add(b);
+        assertEquals(3, a.getCount());
+        assertEquals(3, a.getMin());
+        assertEquals(5000, a.getMax());
+        a.reset();
+        assertEquals(0, a.getCount());
+        assertEquals(0, a.getMax());
+        assertEquals(0, a.getMean(), 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class HitTestTest {
+
+    private static Series series(int size, float value) {
+        Series series = new Series();
+        for (int i = 0; i < size; i++) {
+            series.add(value, null, null);
+        }
+        return series;
+    }
+
+    @Test
+    public void picksTheNearestPointInside() {
+        Series series = series(10, 1);
+        assertEquals(3, HitTest.pick(series, 3.4, 0, 9));
+        assertEquals(4, HitTest.pick(series, 3.6, 0, 9));
+        // the nearest point is outside, its neighbour towards the inside is picked
+        assertEquals(1, HitTest.pick(series, 0.2, 0.5, 9));
+        assertEquals(8, HitTest.pick(series, 8.9, 0, 8.5));
+        assertEquals(9, HitTest.pick(series, 20, 0, 9));
+        assertEquals(-1, HitTest.pick(new Series(), 1, 0, 9));
+    }
+
+    @Test
+    public void picksAcrossSeries() throws Exception {
+        ChartEngine engine = new ChartEngine(new ChartStyle(1, 1));
+        engine.setSize(800, 600);
+        engine.setXAxisBasisLabels(new String[]{"0", "1", "2", "3", "4", "5", "6", "7", "8", "9"});
+        engine.setSeries(series(10, 1));
+        // shorter, its last point is at index 4
+        engine.addSeries(series(5, 9), 0xFF0000FF);
+        ChartSnapshot g = engine.getSnapshot();
+
+        engine.touch(g.projection.x(3), g.projection.y(8.5f));
+        assertEquals(1, engine.moveSeries);
+        assertEquals(3, engine.moveIndex);
+        assertEquals(g.projection.y(9), engine.moveY, 1e-3f);
+
+        engine.touch(g.projection.x(3), g.projection.y(1.5f));
+        assertEquals(0, engine.moveSeries);
+        assertEquals(3, engine.moveIndex);
+
+        // halfway between both lines, but the added series ends before the touch
+        engine.touch(g.projection.x(8), g.projection.y(5));
+        assertEquals(0, engine.moveSeries);
+        assertEquals(8, engine.moveIndex);
+        assertEquals(g.projection.x(8), engine.moveX, 1e-3f);
+
+        engine.hideCrosshair();
+        assertEquals(-1, engine.moveIndex);
+    }
+}
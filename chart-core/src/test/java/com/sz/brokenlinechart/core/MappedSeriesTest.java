@@ -0,0 +1,109 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedSeriesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsWhatWasWritten() throws IOException {
+        int count = 5000;
+        long[] timestamps = new long[count];
+        float[] values = new float[count];
+        Random random = new Random(6);
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = 1000L * i + (i > 0 ? random.nextInt(500) : 0);
+            values[i] = (float) random.nextGaussian();
+        }
+        File file = folder.newFile("series.bin");
+        MappedSeries.write(file, timestamps, values);
+        MappedSeries series = MappedSeries.open(file);
+        assertEquals(count, series.size());
+        assertTrue(series.hasTimestamps());
+        assertTrue(series.isReadOnly());
+        for (int i = 0; i < count; i++) {
+            assertEquals(timestamps[i], series.getTimestamp(i));
+            assertEquals(values[i], series.getValue(i), 0);
+        }
+        assertEquals(101, series.lowerBound(timestamps[100] + 1));
+        RangeQuery summary = series.getSummary();
+        for (int from = 0; from < count; from += 371) {
+            int to = Math.min(count - 1, from + 1234);
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = from; i <= to; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            assertEquals(min, summary.min(series, from, to), 0);
+            assertEquals(max, summary.max(series, from, to), 0);
+        }
+    }
+
+    @Test
+    public void reusesASavedRollup() throws IOException {
+        float[] values = new float[3000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 17;
+        }
+        File file = folder.newFile("values.bin");
+        MappedSeries.write(file, null, values);
+        MappedSeries.open(file, true);
+        File rollup = MappedSeries.rollupFile(file);
+        assertTrue(rollup.exists());
+        assertTrue(file.setLastModified(rollup.lastModified() - 1000));
+        MappedSeries series = MappedSeries.open(file);
+        assertFalse(series.hasTimestamps());
+        assertEquals(16, series.getSummary().max(series, 0, values.length - 1), 0);
+        assertEquals(0, series.getSummary().min(series, 10, 600), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsOtherFiles() throws IOException {
+        File file = folder.newFile("other.bin");
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.writeLong(42);
+        raf.writeLong(42);
+        raf.close();
+        MappedSeries.open(file);
+    }
+
+    @Test
+    public void engineRejectsChangesOfReadOnlyData() throws Exception {
+        File file = folder.newFile("chart.bin");
+        MappedSeries.write(file, null, new float[]{1, 2, 3});
+        ChartEngine engine = new ChartEngine(new ChartStyle(1, 1));
+        engine.setSize(800, 600);
+        engine.setSeries(MappedSeries.open(file));
+        try {
+            engine.append(4, null);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            engine.setCapacity(2);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(3, engine.getSeries().size());
+        engine.setSeries(new Series());
+        engine.append(4, null);
+        assertEquals(1, engine.getSeries().size());
+    }
+}
@@ -0,0 +1,70 @@
+package com.sz.brokenlinechart.core;
+
+/**
+ * Swallows every call, counts the lines and polylines so tests can tell something was drawn.
+ */
+class NullRenderer implements Renderer {
+
+    int lines;
+    int polylines;
+
+    @Override
+    public void clipRect(float left, float top, float right, float bottom) {
+    }
+
+    @Override
+    public void restore() {
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int color, float width, float dash) {
+        lines++;
+    }
+
+    @Override
+    public void drawPolyline(float[] xs, float[] ys, int from, int count, int color, float width) {
+        polylines++;
+    }
+
+    @Override
+    public void fillArea(float[] xs, float[] ys, int from, int count, float startX, float baseline,
+                         float gradientTop, int topColor, int bottomColor) {
+    }
+
+    @Override
+    public void drawCurve(float[] xs, float[] ys, float[] controls, int count, int color, float width) {
+        polylines++;
+    }
+
+    @Override
+    public void fillCurveArea(float[] xs, float[] ys, float[] controls, int count, float startX, float baseline,
+                              float gradientTop, int topColor, int bottomColor) {
+    }
+
+    @Override
+    public void fillCircle(float centerX, float centerY, float radius, int color) {
+    }
+
+    @Override
+    public void fillRoundRect(float left, float top, float right, float bottom, float radius, int color) {
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float size, int color, int align) {
+    }
+
+    @Override
+    public void measureText(String text, float size, float[] out) {
+        out[0] = text.length() * size / 2;
+        out[1] = size;
+    }
+
+    @Override
+    public float centerToBaseline(float size) {
+        return size / 3;
+    }
+}
@@ -0,0 +1,75 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ProjectionTest {
+
+    @Test
+    public void mapsValuesIntoThePlot() {
+        Projection projection = new Projection();
+        projection.setX(10, 100, 2);
+        projection.setY(5, 200, 50, 4);
+        assertEquals(10, projection.x(100), 0);
+        assertEquals(30, projection.x(110), 0);
+        assertEquals(110, projection.xOf(30), 1e-9);
+        // min at the bottom of the plot, min + height / scale at the top
+        assertEquals(205, projection.y(50), 0);
+        assertEquals(5, projection.y(100), 0);
+    }
+
+    @Test
+    public void summaryColumnsHaveTheExtremesOfTheScan() {
+        Series series = new Series();
+        Random random = new Random(5);
+        // 64 points per column, a power of two keeps the column boundaries exact
+        for (int i = 0; i < 300 * 64; i++) {
+            series.add((float) random.nextGaussian(), null, null);
+        }
+        RangeIndex index = new RangeIndex(series.capacity());
+        index.build(series);
+        Projection projection = new Projection();
+        projection.setX(0, 0, 1f / 64);
+        projection.setY(0, 100, -5, 10);
+        int capacity = Projection.columnsCapacity(300);
+        float[] scanX = new float[capacity];
+        float[] scanY = new float[capacity];
+        float[] summaryX = new float[capacity];
+        float[] summaryY = new float[capacity];
+        int scan = projection.projectColumns(series, 0, series.size(), scanX, scanY);
+        int summary = projection.projectColumns(series, index, 0, series.size(), summaryX, summaryY);
+        assertTrue(scan <= capacity && summary <= capacity);
+        for (int column = 0; column < 300; column++) {
+            assertEquals(extreme(scanX, scanY, scan, column, true), extreme(summaryX, summaryY, summary, column, true), 0);
+            assertEquals(extreme(scanX, scanY, scan, column, false), extreme(summaryX, summaryY, summary, column, false), 0);
+        }
+    }
+
+    private static float extreme(float[] xs, float[] ys, int count, int column, boolean min) {
+        float result = min ? Float.POSITIVE_INFINITY : Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            if ((int) Math.floor(xs[i]) == column) {
+                result = min ? Math.min(result, ys[i]) : Math.max(result, ys[i]);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void pickFindsTheNearestVisiblePoint() {
+        Series series = Series.withTimestamps(4);
+        series.add(0, 1, null, null);
+        series.add(10, 2, null, null);
+        series.add(20, 3, null, null);
+        series.add(100, 4, null, null);
+        assertEquals(1, HitTest.pick(series, 12, 0, 100));
+        assertEquals(2, HitTest.pick(series, 50, 0, 100));
+        // the nearest point is left of the viewport, its neighbour is picked
+        assertEquals(1, HitTest.pick(series, -5, 5, 100));
+        assertEquals(-1, HitTest.pick(Series.withTimestamps(1), 0, 0, 1));
+    }
+}
@@ -0,0 +1,110 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RangeIndexTest {
+
+    @Test
+    public void matchesLinearScan() {
+        Random random = new Random(1);
+        int capacity = 1000;
+        float[] values = new float[capacity];
+        boolean[] present = new boolean[capacity];
+        RangeIndex index = new RangeIndex(capacity);
+        for (int i = 0; i < capacity; i++) {
+            values[i] = (float) random.nextGaussian() * 100;
+            present[i] = true;
+            index.set(i, values[i]);
+        }
+        for (int round = 0; round < 2000; round++) {
+            if (round % 10 == 0) {
+                int slot = random.nextInt(capacity);
+                if (random.nextBoolean()) {
+                    values[slot] = (float) random.nextGaussian() * 100;
+                    present[slot] = true;
+                    index.set(slot, values[slot]);
+                } else {
+                    present[slot] = false;
+                    index.clear(slot);
+                }
+            }
+            int a = random.nextInt(capacity);
+            int b = random.nextInt(capacity);
+            int from = Math.min(a, b);
+            int to = Math.max(a, b);
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            double sum = 0;
+            int count = 0;
+            for (int i = from; i <= to; i++) {
+                if (present[i]) {
+                    min = Math.min(min, values[i]);
+                    max = Math.max(max, values[i]);
+                    sum += values[i];
+                    count++;
+                }
+            }
+            assertEquals(min, index.min(from, to), 0);
+            assertEquals(max, index.max(from, to), 0);
+            assertEquals(sum, index.sum(from, to), 1e-6);
+            assertEquals(count, index.count(from, to));
+        }
+    }
+
+    @Test
+    public void followsAWrappedRingBuffer() {
+        Series series = new Series();
+        series.setMaxSize(100);
+        RangeIndex index = new RangeIndex(series.capacity());
+        Random random = new Random(2);
+        for (int i = 0; i < 250; i++) {
+            float value = random.nextFloat() * 50;
+            int slot = series.isFull() ? series.slotOf(0) : series.size();
+            series.add(value, null, null);
+            index.set(slot, value);
+        }
+        assertTrue(series.slotOf(0) > 0);
+        for (int from = 0; from < series.size(); from += 7) {
+            for (int to = from; to < series.size(); to += 11) {
+                float min = Float.POSITIVE_INFINITY;
+                float max = Float.NEGATIVE_INFINITY;
+                double sum = 0;
+                for (int i = from; i <= to; i++) {
+                    min = Math.min(min, series.getValue(i));
+                    max = Math.max(max, series.getValue(i));
+                    sum += series.getValue(i);
+                }
+                assertEquals(min, index.min(series, from, to), 0);
+                assertEquals(max, index.max(series, from, to), 0);
+                assertEquals(sum / (to - from + 1), index.average(series, from, to), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void buildEqualsSingleUpdates() {
+        Series series = new Series();
+        Random random = new Random(3);
+        for (int i = 0; i < 777; i++) {
+            series.add(random.nextFloat(), null, null);
+        }
+        RangeIndex built = new RangeIndex(series.capacity());
+        built.build(series);
+        RangeIndex updated = new RangeIndex(series.capacity());
+        for (int i = 0; i < series.size(); i++) {
+            updated.set(series.slotOf(i), series.getValue(i));
+        }
+        for (int from = 0; from < series.size(); from += 13) {
+            int to = Math.min(series.size() - 1, from + 200);
+            assertEquals(updated.min(from, to), built.min(from, to), 0);
+            assertEquals(updated.max(from, to), built.max(from, to), 0);
+            assertEquals(updated.sum(from, to), built.sum(from, to), 1e-9);
+        }
+        assertEquals(Float.NaN, new RangeIndex(4).average(new Series(4), 0, 0), 0);
+    }
+}
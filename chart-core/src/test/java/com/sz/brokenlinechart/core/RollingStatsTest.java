@@ -0,0 +1,119 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RollingStatsTest {
+
+    private static final int WINDOW = 20;
+    private static final ThresholdBand HIGH = new ThresholdBand(90, Float.POSITIVE_INFINITY, 0x80FF0000);
+    private static final ThresholdBand LOW = new ThresholdBand(Float.NEGATIVE_INFINITY, 5, 0x800000FF);
+    private static final ThresholdBand[] BANDS = {HIGH, LOW, new ThresholdBand(0, 100, 0)};
+
+    // every value the series ever had, the window reaches back past dropped ones
+    private final List<Float> history = new ArrayList<Float>();
+
+    private void check(Series series, RollingStats stats, long dropped) {
+        for (int i = 0; i < series.size(); i++) {
+            int end = (int) (dropped + i);
+            int start = Math.max(0, end - WINDOW + 1);
+            double sum = 0;
+            for (int k = start; k <= end; k++) {
+                sum += history.get(k);
+            }
+            double mean = sum / (end - start + 1);
+            double squares = 0;
+            for (int k = start; k <= end; k++) {
+                squares += (history.get(k) - mean) * (history.get(k) - mean);
+            }
+            assertEquals(mean, stats.mean(series, i), 1e-3);
+            assertEquals(Math.sqrt(squares / (end - start + 1)), stats.deviation(series, i), 1e-2);
+        }
+        int position = stats.firstAnomaly(0);
+        for (int i = 0; i < series.size(); i++) {
+            float value = series.getValue(i);
+            ThresholdBand band = HIGH.contains(value) ? HIGH : LOW.contains(value) ? LOW : BANDS[2];
+            assertTrue(position < stats.anomalyEnd());
+            assertEquals(i, stats.anomalyIndex(position));
+            assertEquals(band, stats.anomalyBand(position));
+            position++;
+        }
+        assertEquals(stats.anomalyEnd(), position);
+    }
+
+    @Test
+    public void appendMatchesBruteForce() {
+        Random random = new Random(23);
+        Series series = new Series();
+        series.setMaxSize(300);
+        RollingStats stats = new RollingStats(series.capacity(), WINDOW, BANDS);
+        long dropped = 0;
+        for (int i = 0; i < 1000; i++) {
+            float value = random.nextFloat() * 100;
+            boolean evicted = series.isFull();
+            series.add(value, null, null);
+            history.add(value);
+            stats.append(series, evicted);
+            if (evicted) {
+                dropped++;
+            }
+        }
+        check(series, stats, dropped);
+
+        // a build over the same storage only knows the points that are left
+        history.subList(0, (int) dropped).clear();
+        RollingStats built = new RollingStats(series.capacity(), WINDOW, BANDS);
+        RangeIndex index = new RangeIndex(series.capacity());
+        built.build(series, index);
+        check(series, built, 0);
+        RangeIndex expected = new RangeIndex(series.capacity());
+        expected.build(series);
+        assertEquals(expected.max(series, 0, series.size() - 1), index.max(series, 0, series.size() - 1), 0);
+        assertEquals(expected.min(series, 10, 200), index.min(series, 10, 200), 0);
+    }
+
+    @Test
+    public void anomaliesFromAnIndex() {
+        Series series = new Series();
+        float[] values = {50, 95, 50, 3, 50, 50, 99};
+        for (float value : values) {
+            series.add(value, null, null);
+        }
+        RollingStats stats = new RollingStats(series.capacity(), 0, new ThresholdBand[] {HIGH, LOW});
+        stats.build(series, null);
+        assertEquals(Float.NaN, stats.mean(series, 0), 0);
+        int position = stats.firstAnomaly(2);
+        assertEquals(3, stats.anomalyIndex(position));
+        assertEquals(LOW, stats.anomalyBand(position));
+        assertEquals(6, stats.anomalyIndex(position + 1));
+        assertEquals(position + 2, stats.anomalyEnd());
+        assertEquals(stats.anomalyEnd(), stats.firstAnomaly(7));
+    }
+
+    @Test
+    public void bands() {
+        ThresholdBand band = new ThresholdBand(1, 2, 0xFF00FF00);
+        assertTrue(band.contains(1));
+        assertTrue(band.contains(2));
+        assertFalse(band.contains(2.0001f));
+        assertFalse(band.contains(Float.NaN));
+        assertEquals(band, new ThresholdBand(1, 2, 0xFF00FF00));
+        assertEquals(band.hashCode(), new ThresholdBand(1, 2, 0xFF00FF00).hashCode());
+        assertNotEquals(band, new ThresholdBand(1, 2, 0xFF0000FF));
+        try {
+            new ThresholdBand(2, 1, 0);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
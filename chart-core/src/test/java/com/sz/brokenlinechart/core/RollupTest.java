@@ -0,0 +1,141 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RollupTest {
+
+    private static final int HALF = 1 << 30;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matchesLinearScan() {
+        Series series = new Series();
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+            series.add((float) random.nextGaussian(), null, null);
+        }
+        Rollup rollup = Rollup.build(series, 2);
+        assertEquals(series.size(), rollup.size());
+        for (int round = 0; round < 500; round++) {
+            int a = random.nextInt(series.size());
+            int b = random.nextInt(series.size());
+            int from = Math.min(a, b);
+            int to = Math.max(a, b);
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            double sum = 0;
+            for (int i = from; i <= to; i++) {
+                min = Math.min(min, series.getValue(i));
+                max = Math.max(max, series.getValue(i));
+                sum += series.getValue(i);
+            }
+            assertEquals(min, rollup.min(series, from, to), 0);
+            assertEquals(max, rollup.max(series, from, to), 0);
+            assertEquals(sum / (to - from + 1), rollup.average(series, from, to), 1e-5);
+        }
+        assertEquals(Float.NaN, rollup.average(series, 5, 4), 0);
+    }
+
+    @Test
+    public void savedRollupAnswersTheSame() throws IOException {
+        Series series = new Series();
+        for (int i = 0; i < 3333; i++) {
+            series.add((float) Math.sin(i / 30.0) * i, null, null);
+        }
+        Rollup rollup = Rollup.build(series, 3);
+        File file = folder.newFile("rollup");
+        rollup.save(file);
+        Rollup loaded = Rollup.load(file, series.size());
+        for (int from = 0; from < series.size(); from += 97) {
+            int to = Math.min(series.size() - 1, from * 2 + 5);
+            assertEquals(rollup.min(series, from, to), loaded.min(series, from, to), 0);
+            assertEquals(rollup.max(series, from, to), loaded.max(series, from, to), 0);
+        }
+        assertNull(Rollup.load(file, series.size() + 1));
+        assertNull(Rollup.load(new File(file.getPath() + ".missing"), 1));
+    }
+
+    @Test
+    public void coversMoreThanTwoToThe30Points() throws IOException {
+        // a rollup of Integer.MAX_VALUE - 1 points from level 30, the top level is 31
+        Series series = new HugeSeries(Integer.MAX_VALUE - 1);
+        File file = folder.newFile("huge");
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        out.writeInt(0x424C5255);
+        out.writeInt(1);
+        out.writeInt(30);
+        out.writeInt(series.size());
+        out.writeInt(2);
+        // level 30: [0, 2^30) and the partial [2^30, 2^31 - 1)
+        out.writeInt(2);
+        out.writeFloat(0);
+        out.writeFloat(0);
+        out.writeFloat(1);
+        out.writeFloat(HugeSeries.PEAK);
+        out.writeDouble(0);
+        out.writeDouble(0);
+        // level 31: everything
+        out.writeInt(1);
+        out.writeFloat(0);
+        out.writeFloat(HugeSeries.PEAK);
+        out.writeDouble(0);
+        out.close();
+        Rollup rollup = Rollup.load(file, series.size());
+
+        // the first bucket of level 30 and raw values, not the bucket of level 31
+        assertEquals(1, rollup.max(series, 0, HALF + 10), 0);
+        assertEquals(HugeSeries.PEAK, rollup.max(series, HALF - 5, HALF + 150), 0);
+
+        rollup.append(HugeSeries.PEAK + 1);
+        assertEquals(Integer.MAX_VALUE, rollup.size());
+        assertEquals(1, rollup.max(series, 0, HALF - 1), 0);
+        try {
+            rollup.append(0);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * 0 and 1 alternating, with a peak a little after 2^30, computed instead of stored.
+     */
+    private static final class HugeSeries extends Series {
+
+        static final float PEAK = 7;
+
+        private final int size;
+
+        HugeSeries(int size) {
+            super(1);
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public float getValue(int index) {
+            if (index >= HALF + 100 && index < HALF + 200) {
+                return PEAK;
+            }
+            return index & 1;
+        }
+    }
+}
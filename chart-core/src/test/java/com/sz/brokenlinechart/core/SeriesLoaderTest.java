@@ -0,0 +1,203 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SeriesLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File csv(String text) throws IOException {
+        File file = folder.newFile();
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        out.write(text);
+        out.close();
+        return file;
+    }
+
+    private File binary(long[] timestamps, float[] values) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(values.length * SeriesLoader.BINARY_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < values.length; i++) {
+            b.putLong(timestamps[i]).putFloat(values[i]);
+        }
+        File file = folder.newFile();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(b.array());
+        out.close();
+        return file;
+    }
+
+    @Test
+    public void csvRoundTrip() throws IOException {
+        Random random = new Random(22);
+        int count = 50000;
+        long[] timestamps = new long[count];
+        float[] values = new float[count];
+        StringBuilder text = new StringBuilder("time,value,note\n");
+        long t = 1600000000000L;
+        for (int i = 0; i < count; i++) {
+            t += random.nextInt(1000);
+            timestamps[i] = t;
+            values[i] = (float) ((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(9) - 3));
+            text.append(t).append(i % 3 == 0 ? ";" : ",").append(values[i]);
+            text.append(i % 5 == 0 ? ",extra\r\n" : "\n");
+            if (i % 1000 == 0) {
+                text.append('\n');
+            }
+        }
+        Series series = new SeriesLoader(SeriesLoader.FORMAT_CSV).load(csv(text.toString()));
+        assertEquals(count, series.size());
+        assertTrue(series.hasTimestamps());
+        for (int i = 0; i < count; i++) {
+            assertEquals(timestamps[i], series.getTimestamp(i));
+            assertEquals(values[i], series.getValue(i), Math.ulp(values[i]));
+        }
+    }
+
+    @Test
+    public void csvSingleColumnAndNumberForms() throws IOException {
+        Series series = new SeriesLoader(SeriesLoader.FORMAT_CSV)
+                .load(csv("1\n-2.5\n+3e2\n4.25E-1\n.5\n-0\n1234567890123456789"));
+        assertFalse(series.hasTimestamps());
+        float[] expected = {1, -2.5f, 300, 0.425f, 0.5f, -0f, 1234567890123456789f};
+        assertEquals(expected.length, series.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], series.getValue(i), 0);
+        }
+    }
+
+    @Test
+    public void csvErrors() {
+        String[] invalid = {"1,2\n3,x\n", "5,1\n4,2\n", "1,2\n3\n"};
+        for (String text : invalid) {
+            try {
+                new SeriesLoader(SeriesLoader.FORMAT_CSV).load(csv(text));
+                fail(text);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        int count = 20000;
+        long[] timestamps = new long[count];
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = 1000L * i;
+            values[i] = (float) Math.sin(i / 100.0);
+        }
+        Series series = new SeriesLoader(SeriesLoader.FORMAT_BINARY).load(binary(timestamps, values));
+        assertEquals(count, series.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(timestamps[i], series.getTimestamp(i));
+            assertEquals(values[i], series.getValue(i), 0);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void binaryTruncated() throws IOException {
+        File file = binary(new long[] {1, 2}, new float[] {1, 2});
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 1);
+        raf.close();
+        new SeriesLoader(SeriesLoader.FORMAT_BINARY).load(file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownFormat() {
+        new SeriesLoader(2);
+    }
+
+    @Test
+    public void listenerSeesGrowingPrefixes() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            text.append(String.format(Locale.ROOT, "%d\n", i));
+        }
+        File file = csv(text.toString());
+        final List<Series> partials = new ArrayList<Series>();
+        SeriesLoader loader = new SeriesLoader(SeriesLoader.FORMAT_CSV);
+        loader.setListener(new SeriesLoader.Listener() {
+            @Override
+            public void onProgress(Series loaded, long bytesRead, long totalBytes) {
+                partials.add(loaded);
+            }
+        }, 100000);
+        Series series = loader.load(file);
+        assertTrue(partials.size() > 3);
+        assertSame(series, partials.get(partials.size() - 1));
+        int previous = 0;
+        for (Series partial : partials) {
+            assertTrue(partial.size() >= previous);
+            previous = partial.size();
+            // the columns of a partial are not written below its size after it was handed out
+            for (int i = 0; i < partial.size(); i++) {
+                assertEquals(i, partial.getValue(i), 0);
+            }
+        }
+        // adding to a partial would write into the columns the loader still fills
+        Series partial = partials.get(0);
+        assertTrue(partial.isReadOnly());
+        try {
+            partial.add(1, null, null);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        ChartEngine engine = new ChartEngine(new ChartStyle(1, 1));
+        engine.setSeries(partial, false);
+        try {
+            engine.append(1, null);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertFalse(series.isReadOnly());
+        series.add(1, null, null);
+    }
+
+    @Test
+    public void cancelStopsTheLoad() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            text.append(i).append('\n');
+        }
+        final SeriesLoader loader = new SeriesLoader(SeriesLoader.FORMAT_CSV);
+        loader.setListener(new SeriesLoader.Listener() {
+            @Override
+            public void onProgress(Series loaded, long bytesRead, long totalBytes) {
+                loader.cancel();
+            }
+        }, 1000);
+        try {
+            loader.load(csv(text.toString()));
+            fail();
+        } catch (InterruptedIOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class SeriesStoreTest {
+
+    private final SeriesStore store = new SeriesStore(2, 1 << 20);
+
+    @Test
+    public void countsReferences() {
+        Series a = new Series();
+        store.put("a", a);
+        assertSame(a, store.acquire("a"));
+        assertSame(a, store.acquire("a"));
+        assertEquals(2, store.getReferenceCount("a"));
+        store.release("a");
+        store.release("a");
+        assertEquals(0, store.getReferenceCount("a"));
+        assertEquals(1, store.size());
+        assertNull(store.acquire("b"));
+    }
+
+    @Test
+    public void keepsOnlySomeUnreferenced() {
+        Series kept = new Series();
+        store.put("kept", kept);
+        store.acquire("kept");
+        store.put("a", new Series());
+        store.put("b", new Series());
+        store.put("c", new Series());
+        // a was the least recently used unreferenced series
+        assertEquals(3, store.size());
+        assertNull(store.acquire("a"));
+        assertSame(kept, store.acquire("kept"));
+
+        store.acquire("b");
+        store.put("d", new Series());
+        store.put("e", new Series());
+        // b is referenced, c went first
+        assertNull(store.acquire("c"));
+        assertEquals(2, store.getReferenceCount("kept"));
+    }
+
+    @Test
+    public void replacingKeepsReferences() {
+        store.put("a", new Series());
+        store.acquire("a");
+        Series replacement = new Series();
+        store.put("a", replacement);
+        assertEquals(1, store.getReferenceCount("a"));
+        assertSame(replacement, store.acquire("a"));
+    }
+
+    @Test
+    public void loadsMissingSeries() throws Exception {
+        final Series loaded = new Series();
+        SeriesStore.Loader loader = new SeriesStore.Loader() {
+            @Override
+            public Series load(String id) {
+                return loaded;
+            }
+        };
+        assertSame(loaded, store.acquire("a", loader));
+        assertSame(loaded, store.acquire("a", loader));
+        assertEquals(2, store.getReferenceCount("a"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseWithoutAcquire() {
+        store.put("a", new Series());
+        store.release("a");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseUnknown() {
+        store.release("a");
+    }
+}
@@ -0,0 +1,101 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+public class SeriesTest {
+
+    @Test
+    public void boundedSeriesDropsTheOldestValue() {
+        Series series = new Series(4);
+        series.setMaxSize(3);
+        for (int i = 0; i < 5; i++) {
+            series.add(i, "b" + i, null);
+        }
+        assertEquals(3, series.size());
+        assertEquals(2, series.getValue(0), 0);
+        assertEquals(4, series.getValue(2), 0);
+        assertEquals("b2", series.getBottomLabel(0));
+        assertEquals("b4", series.getBottomLabel(2));
+    }
+
+    @Test
+    public void setMaxSizeKeepsTheLastValues() {
+        Series series = new Series();
+        for (int i = 0; i < 10; i++) {
+            series.add(i, null, null);
+        }
+        series.setMaxSize(4);
+        assertEquals(4, series.size());
+        assertEquals(6, series.getValue(0), 0);
+        series.setMaxSize(0);
+        series.add(10, null, null);
+        assertEquals(5, series.size());
+        assertEquals(10, series.getValue(4), 0);
+    }
+
+    @Test
+    public void searchesTimestamps() {
+        Series series = Series.withTimestamps(4);
+        long[] times = {100, 200, 400, 800};
+        for (long time : times) {
+            series.add(time, time / 100f, null, null);
+        }
+        assertEquals(0, series.lowerBound(50));
+        assertEquals(2, series.lowerBound(201));
+        assertEquals(2, series.lowerBound(400));
+        assertEquals(4, series.lowerBound(900));
+        assertEquals(1, series.nearest(290));
+        assertEquals(2, series.nearest(310));
+        assertEquals(3, series.nearest(5000));
+        assertEquals(-1, Series.withTimestamps(1).nearest(1));
+    }
+
+    @Test
+    public void evenlySpacedPointsAreAtTheirIndex() {
+        Series series = new Series(new float[]{1, 2, 3}, null);
+        assertEquals(2, series.getX(2), 0);
+        assertEquals(1, series.lowerBound(0.5));
+        assertEquals(3, series.lowerBound(10));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        Series series = new Series();
+        series.setMaxSize(2);
+        series.add(1, "a", "x");
+        series.add(2, "b", null);
+        series.add(3, "c", null);
+        Series copy = series.copy();
+        series.add(4, "d", null);
+        assertEquals(2, copy.size());
+        assertEquals(2, copy.getValue(0), 0);
+        assertEquals("c", copy.getBottomLabel(1));
+        assertEquals(2, copy.getMaxSize());
+    }
+
+    @Test
+    public void versionFollowsValues() {
+        Series series = new Series();
+        int version = series.getVersion();
+        series.add(1, null, null);
+        assertNotEquals(version, series.getVersion());
+        version = series.getVersion();
+        series.setBottomLabel(0, "label");
+        assertEquals(version, series.getVersion());
+        series.clear();
+        assertNotEquals(version, series.getVersion());
+    }
+
+    @Test
+    public void leftLabelFollowsTheFormatter() {
+        Series series = new Series(new float[]{1.5f, 2}, null);
+        assertEquals("1.5", series.getLeftLabel(0, new DecimalLabelFormatter(1)));
+        assertEquals("1.500", series.getLeftLabel(0, new DecimalLabelFormatter(3)));
+        // a label set for the point wins
+        series.setLeftLabel(1, "two");
+        assertEquals("two", series.getLeftLabel(1, new DecimalLabelFormatter(1)));
+    }
+}
@@ -0,0 +1,93 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SmoothingTest {
+
+    private static final int COUNT = 200;
+
+    private final float[] xs = new float[COUNT];
+    private final float[] ys = new float[COUNT];
+
+    private void randomPoints(long seed) {
+        Random random = new Random(seed);
+        float x = 0;
+        for (int i = 0; i < COUNT; i++) {
+            // a few vertical steps, like the extremes of a decimated column
+            x += random.nextInt(5) == 0 ? 0 : 1 + random.nextFloat() * 10;
+            xs[i] = x;
+            ys[i] = random.nextInt(4) == 0 && i > 0 ? ys[i - 1] : random.nextFloat() * 100;
+        }
+    }
+
+    private static float bezier(float p0, float p1, float p2, float p3, float t) {
+        float u = 1 - t;
+        return u * u * u * p0 + 3 * u * u * t * p1 + 3 * u * t * t * p2 + t * t * t * p3;
+    }
+
+    @Test
+    public void monotoneNeverOvershoots() {
+        float[] out = new float[Smoothing.capacity(COUNT)];
+        for (long seed = 0; seed < 20; seed++) {
+            randomPoints(seed);
+            Smoothing.controls(Smoothing.MONOTONE, xs, ys, COUNT, 0, out);
+            for (int k = 0; k < COUNT - 1; k++) {
+                int o = k * 4;
+                float low = Math.min(ys[k], ys[k + 1]);
+                float high = Math.max(ys[k], ys[k + 1]);
+                for (int s = 0; s <= 16; s++) {
+                    float t = s / 16f;
+                    float x = bezier(xs[k], out[o], out[o + 2], xs[k + 1], t);
+                    float y = bezier(ys[k], out[o + 1], out[o + 3], ys[k + 1], t);
+                    assertTrue(x >= xs[k] - 1e-3f && x <= xs[k + 1] + 1e-3f);
+                    assertTrue(y >= low - 1e-3f && y <= high + 1e-3f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void flatPointsStayFlat() {
+        float[] x = {0, 1, 2, 3, 4};
+        float[] y = {0, 5, 5, 2, 8};
+        float[] out = new float[Smoothing.capacity(5)];
+        Smoothing.controls(Smoothing.MONOTONE, x, y, 5, 0, out);
+        // the segment between the two 5s is a straight line
+        assertEquals(5, out[5], 0);
+        assertEquals(5, out[7], 0);
+        // the extreme at 2 has a flat tangent on both sides
+        assertEquals(2, out[11], 0);
+        assertEquals(2, out[13], 0);
+    }
+
+    @Test
+    public void catmullRomFollowsTheNeighbours() {
+        float[] x = {0, 1, 2};
+        float[] y = {0, 6, 0};
+        float[] out = new float[Smoothing.capacity(3)];
+        Smoothing.controls(Smoothing.CATMULL_ROM, x, y, 3, 0, out);
+        assertArrayEquals(new float[] {1 / 6f, 1, 1 - 2 / 6f, 6, 1 + 2 / 6f, 6, 2 - 1 / 6f, 1}, out, 1e-6f);
+    }
+
+    @Test
+    public void appendedPointsOnlyRecomputeTheTail() {
+        randomPoints(3);
+        for (int mode = Smoothing.MONOTONE; mode <= Smoothing.CATMULL_ROM; mode++) {
+            float[] full = new float[Smoothing.capacity(COUNT)];
+            Smoothing.controls(mode, xs, ys, COUNT, 0, full);
+            float[] incremental = new float[Smoothing.capacity(COUNT)];
+            Smoothing.controls(mode, xs, ys, COUNT - 10, 0, incremental);
+            // the last segment depends on the next point, it is computed again
+            Smoothing.controls(mode, xs, ys, COUNT, COUNT - 12, incremental);
+            assertArrayEquals(full, incremental, 0);
+        }
+        assertEquals(0, Smoothing.capacity(1));
+        assertEquals(0, Smoothing.capacity(0));
+    }
+}
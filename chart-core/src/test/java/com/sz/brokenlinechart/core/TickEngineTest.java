@@ -0,0 +1,167 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TickEngineTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+
+    private final TickEngine engine = new TickEngine();
+
+    @Test
+    public void valueTicksAreNiceAndEncloseTheRange() {
+        Random random = new Random(25);
+        for (int round = 0; round < 2000; round++) {
+            double scale = Math.pow(10, random.nextInt(12) - 5);
+            double min = (random.nextDouble() - 0.5) * scale;
+            double max = min + random.nextDouble() * scale;
+            int maxIntervals = 1 + random.nextInt(8);
+            float length = 50 + random.nextInt(500);
+            Ticks ticks = engine.values(min, max, length, 32, maxIntervals, null);
+            int intervals = ticks.size() - 1;
+            assertTrue(intervals >= 1);
+            int fit = Math.max(1, Math.min(maxIntervals, (int) (length / 32)));
+            assertTrue(intervals <= (min < 0 && max > 0 ? Math.max(fit, 2) : fit));
+            double step = ticks.getStep();
+            // a range a millionth of a step beyond a tick doesn't take another step
+            assertTrue(ticks.getMin() <= min + step * 1e-6);
+            assertTrue(ticks.getMax() >= max - step * 1e-6);
+
+            int exponent = (int) Math.floor(Math.log10(step) + 1e-9);
+            double mantissa = step / Math.pow(10, exponent);
+            assertTrue(step + "", Math.abs(mantissa - 1) < 1e-9 || Math.abs(mantissa - 2) < 1e-9
+                    || Math.abs(mantissa - 5) < 1e-9);
+            String pattern = "%." + Math.max(0, -exponent) + "f";
+            for (int i = 0; i < ticks.size(); i++) {
+                double units = ticks.getValue(i) / step;
+                assertEquals(Math.rint(units), units, 1e-6);
+                if (i > 0) {
+                    assertEquals(step, ticks.getValue(i) - ticks.getValue(i - 1), step * 1e-9);
+                }
+                assertEquals(String.format(pattern, (float) ticks.getValue(i)), ticks.getLabel(i));
+            }
+        }
+    }
+
+    @Test
+    public void fewestTicksThatFit() {
+        Ticks ticks = engine.values(0.3, 9.7, 400, 32, 5, null);
+        assertEquals(0, ticks.getMin(), 0);
+        assertEquals(10, ticks.getMax(), 0);
+        assertEquals(2, ticks.getStep(), 0);
+        assertEquals("0", ticks.getLabel(0));
+        assertEquals("10", ticks.getLabel(5));
+        // only two ticks fit
+        ticks = engine.values(0.3, 9.7, 64, 32, 5, null);
+        assertEquals(5, ticks.getStep(), 0);
+    }
+
+    @Test
+    public void smallChartsKeepTheRange() {
+        // one interval fits, but 0 is a tick between the ends of any range across it
+        assertRange(-1, 1, engine.values(-1, 1, 40, 32, 5, null));
+        assertRange(-10, 10, engine.values(-3, 7, 40, 32, 5, null));
+        assertRange(-0.5, 0.5, engine.values(-0.5, 0.2, 40, 32, 5, null));
+        assertRange(-1, 1, engine.values(0, 0, 40, 32, 5, null));
+        assertRange(4.5, 5.5, engine.values(5, 5, 40, 32, 1, null));
+        // ranges on one side of 0 still fit in one interval
+        assertRange(0, 10, engine.values(3, 7, 40, 32, 5, null));
+        assertRange(-0.5, 0, engine.values(-0.5, -0.2, 40, 32, 5, null));
+    }
+
+    private static void assertRange(double min, double max, Ticks ticks) {
+        assertEquals(min, ticks.getMin(), 1e-9);
+        assertEquals(max, ticks.getMax(), 1e-9);
+    }
+
+    @Test
+    public void emptyAndInvalidRanges() {
+        Ticks flat = engine.values(5, 5, 400, 32, 5, null);
+        assertTrue(flat.getMin() < 5 && flat.getMax() > 5);
+        Ticks zero = engine.values(0, 0, 400, 32, 5, null);
+        assertTrue(zero.getMin() < 0 && zero.getMax() > 0);
+        Ticks nan = engine.values(Double.NaN, 3, 400, 32, 5, null);
+        assertEquals(0, nan.getMin(), 0);
+        assertEquals(1, nan.getMax(), 0);
+        // ranges below float precision still get distinct labels
+        Ticks tiny = engine.values(1000000, 1000000.01, 400, 32, 5, null);
+        for (int i = 1; i < tiny.size(); i++) {
+            assertTrue(!tiny.getLabel(i).equals(tiny.getLabel(i - 1)));
+        }
+    }
+
+    @Test
+    public void memoizesTickSets() {
+        LabelFormatter formatter = new DecimalLabelFormatter(3);
+        Ticks ticks = engine.values(1.5, 7.25, 300, 32, 5, formatter);
+        assertSame(ticks, engine.values(1.5, 7.25, 300, 32, 5, formatter));
+        assertNotSame(ticks, engine.values(1.5, 7.25, 300, 32, 5, null));
+        assertNotSame(ticks, engine.values(1.5, 7.25, 300, 32, 4, formatter));
+        assertEquals("2.000", ticks.getLabel(1));
+        // a range a little off picks the same ticks and labels
+        Ticks panned = engine.values(1.6, 7.3, 300, 32, 5, formatter);
+        assertNotSame(ticks, panned);
+        assertEquals(ticks.getMin(), panned.getMin(), 0);
+        assertSame(engine.values(1.5, 7.25, 300, 32, 5, null).getLabel(1),
+                engine.values(1.6, 7.3, 300, 32, 5, null).getLabel(1));
+    }
+
+    @Test
+    public void timeTicksAtWholeLocalHours() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2024, Calendar.MARCH, 12, 9, 17, 23);
+        long start = calendar.getTimeInMillis();
+        long stop = start + 10 * HOUR + 5 * 60 * 1000L;
+        Ticks ticks = engine.times(start, stop, 600, 100, null);
+        assertEquals(2 * HOUR, ticks.getStep(), 0);
+        assertEquals(5, ticks.size());
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm", Locale.getDefault());
+        for (int i = 0; i < ticks.size(); i++) {
+            long time = (long) ticks.getValue(i);
+            assertTrue(time >= start && time <= stop);
+            calendar.setTimeInMillis(time);
+            assertEquals(0, calendar.get(Calendar.MINUTE));
+            assertEquals(0, calendar.get(Calendar.HOUR_OF_DAY) % 2);
+            assertEquals(format.format(new Date(time)), ticks.getLabel(i));
+        }
+        assertSame(ticks, engine.times(start, stop, 600, 100, null));
+    }
+
+    @Test
+    public void timeTicksOnCalendarDaysAndYears() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(2023, Calendar.OCTOBER, 3, 15, 0, 0);
+        long start = calendar.getTimeInMillis();
+        Ticks days = engine.times(start, start + 9 * DAY, 500, 100, null);
+        assertEquals(2 * DAY, days.getStep(), 0);
+        SimpleDateFormat dayFormat = new SimpleDateFormat("MM/dd", Locale.getDefault());
+        for (int i = 0; i < days.size(); i++) {
+            calendar.setTimeInMillis((long) days.getValue(i));
+            assertEquals(0, calendar.get(Calendar.HOUR_OF_DAY));
+            assertEquals(dayFormat.format(calendar.getTime()), days.getLabel(i));
+        }
+
+        Ticks years = engine.times(start, start + 3650 * DAY, 500, 100, null);
+        assertTrue(years.size() >= 2 && years.size() <= 5);
+        for (int i = 0; i < years.size(); i++) {
+            calendar.setTimeInMillis((long) years.getValue(i));
+            assertEquals(Calendar.JANUARY, calendar.get(Calendar.MONTH));
+            assertEquals(1, calendar.get(Calendar.DAY_OF_MONTH));
+            assertEquals(String.valueOf(calendar.get(Calendar.YEAR)), years.getLabel(i));
+        }
+
+        assertEquals(0, engine.times(start + 1, start + 2, 500, 100, null).size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransitionTest {
+
+    private static final long MS = 1000000L;
+
+    private ChartEngine mEngine;
+    private ChartPainter mPainter;
+    private NullRenderer mRenderer;
+
+    @Before
+    public void setUp() throws Exception {
+        mEngine = new ChartEngine(new ChartStyle(1, 1));
+        mEngine.setSize(800, 600);
+        mEngine.setSeries(wave(0));
+        mEngine.setTransitionDuration(300);
+        mPainter = new ChartPainter(mEngine);
+        mRenderer = new NullRenderer();
+    }
+
+    private static Series wave(double phase) {
+        Series series = new Series();
+        for (int i = 0; i < 200; i++) {
+            series.add((float) (50 + 20 * Math.sin(i / 10.0 + phase)), null, null);
+        }
+        return series;
+    }
+
+    private void paint(int lines) {
+        mRenderer.polylines = 0;
+        mPainter.paintStatic(mRenderer);
+        assertEquals(lines, mRenderer.polylines);
+    }
+
+    @Test
+    public void addedSeriesRisesFromTheBaseline() throws Exception {
+        mEngine.addSeries(wave(1), 0xFFFF9500);
+        assertTrue(mEngine.isAnimating());
+        mEngine.stepTransition(1 * MS);
+        paint(2);
+
+        ChartSnapshot g = mEngine.getSnapshot();
+        float baseline = g.height - mEngine.getStyle().verticalSpaceBottom;
+        Transition.Track added = mEngine.getTransition().getTrack(1);
+        float[] first = Arrays.copyOf(added.y, added.count);
+        for (float y : first) {
+            assertEquals(baseline, y, 0);
+        }
+
+        mEngine.stepTransition(400 * MS);
+        assertFalse(mEngine.isAnimating());
+        assertArrayEquals(Arrays.copyOf(g.lines[0].drawY, g.lines[0].drawCount),
+                Arrays.copyOf(added.y, added.count), 0);
+    }
+
+    @Test
+    public void seriesAddedAndRemovedMidAnimation() throws Exception {
+        mEngine.addSeries(wave(1), 0xFFFF9500);
+        mEngine.stepTransition(1 * MS);
+        mEngine.stepTransition(100 * MS);
+        paint(2);
+
+        // two more while the first one is still rising
+        mEngine.addSeries(wave(2), 0xFF34C759);
+        mEngine.addSeries(wave(3), 0xFF5856D6);
+        assertTrue(mEngine.isAnimating());
+        mEngine.stepTransition(120 * MS);
+        paint(4);
+        mEngine.stepTransition(200 * MS);
+        paint(4);
+
+        mEngine.clearSeries();
+        assertTrue(mEngine.isAnimating());
+        mEngine.stepTransition(210 * MS);
+        paint(1);
+
+        mEngine.addSeries(wave(4), 0xFFFF9500);
+        mEngine.stepTransition(220 * MS);
+        paint(2);
+        assertFalse(mEngine.stepTransition(520 * MS));
+        assertFalse(mEngine.isAnimating());
+        paint(2);
+    }
+
+    @Test
+    public void partialSeriesDoNotAnimate() throws Exception {
+        mEngine.setSeries(wave(1));
+        assertTrue(mEngine.isAnimating());
+        // a partial result cancels the running transition instead of restarting it
+        mEngine.setSeries(wave(2), false);
+        assertFalse(mEngine.isAnimating());
+        mEngine.setSeries(wave(3), false);
+        assertFalse(mEngine.isAnimating());
+        paint(1);
+        mEngine.setSeries(wave(3));
+        assertTrue(mEngine.isAnimating());
+    }
+}
@@ -0,0 +1,64 @@
+package com.sz.brokenlinechart.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class VerticesTest {
+
+    @Test
+    public void batchesCoverEverySegmentOnce() {
+        int count = 2 * Vertices.BATCH + 100;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = i;
+            ys[i] = i * i % 97;
+        }
+        float[] out = new float[Vertices.segmentsCapacity()];
+        int segments = 0;
+        for (int from = 0; from < count - 1; from += Vertices.BATCH) {
+            int n = Vertices.segments(xs, ys, from, Math.min(Vertices.BATCH + 1, count - from), out);
+            for (int k = 0; k < n; k += 4) {
+                int i = from + k / 4;
+                assertArrayEquals(new float[] {xs[i], ys[i], xs[i + 1], ys[i + 1]},
+                        new float[] {out[k], out[k + 1], out[k + 2], out[k + 3]}, 0);
+            }
+            segments += n / 4;
+        }
+        assertEquals(count - 1, segments);
+        assertEquals(0, Vertices.segments(xs, ys, 5, 1, out));
+    }
+
+    @Test
+    public void stripFollowsTheGradient() {
+        float[] xs = {0, 10, 20};
+        float[] ys = {0, 50, 100};
+        float[] vertices = new float[2 * Vertices.stripCapacity()];
+        int[] colors = new int[Vertices.stripCapacity()];
+        int top = 0xFF000000;
+        int bottom = 0x00FFFFFF;
+        assertEquals(6, Vertices.strip(xs, ys, 0, 3, 100, 0, top, bottom, vertices, colors));
+        assertArrayEquals(new float[] {0, 0, 0, 100, 10, 50, 10, 100, 20, 100, 20, 100},
+                Arrays.copyOf(vertices, 12), 0);
+        assertEquals(top, colors[0]);
+        assertEquals(0x80808080, colors[2]);
+        assertEquals(bottom, colors[4]);
+        assertEquals(bottom, colors[1]);
+
+        // no gradient height, the top color everywhere but the baseline
+        Vertices.strip(xs, ys, 1, 1, 50, 50, top, bottom, vertices, colors);
+        assertEquals(top, colors[0]);
+    }
+
+    @Test
+    public void lerpClampsAndRounds() {
+        assertEquals(0x11223344, Vertices.lerp(0x11223344, 0x55667788, -1));
+        assertEquals(0x55667788, Vertices.lerp(0x11223344, 0x55667788, 2));
+        assertEquals(0x33445566, Vertices.lerp(0x11223344, 0x55667788, 0.5f));
+        assertEquals(0x02000000, Vertices.lerp(0x00000000, 0x03000000, 0.5f));
+    }
+}
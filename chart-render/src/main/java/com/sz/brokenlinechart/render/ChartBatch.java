@@ -0,0 +1,134 @@
+package com.sz.brokenlinechart.render;
+
+import com.sz.brokenlinechart.core.ChartEngine;
+import com.sz.brokenlinechart.core.ChartStyle;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders many charts on a fixed thread pool, e.g. for reports and alert mails.
+ *
+ * Every chart gets its own {@link ChartEngine}, the image and the renderer are reused
+ * per worker thread, so a batch of thousands of charts of one size allocates a handful
+ * of images.
+ */
+public class ChartBatch implements Closeable {
+
+    public static final int FORMAT_PNG = 0;
+    public static final int FORMAT_SVG = 1;
+
+    /**
+     * One chart, called on a worker thread.
+     */
+    public interface Job {
+        /**
+         * Sets the data of engine, its size is already set.
+         */
+        void setup(ChartEngine engine) throws Exception;
+
+        /**
+         * @return where the chart is written to, closed once it is written
+         */
+        OutputStream open() throws Exception;
+    }
+
+    private final ExecutorService mExecutor;
+    private final int mWidth;
+    private final int mHeight;
+    private final int mFormat;
+    private final float mDensity;
+    private final ThreadLocal<HeadlessChart> mCharts = new ThreadLocal<HeadlessChart>() {
+        @Override
+        protected HeadlessChart initialValue() {
+            return new HeadlessChart();
+        }
+    };
+
+    /**
+     * @param threads number of worker threads, e.g. the number of cores
+     * @param density pixels per dp and sp of the charts
+     */
+    public ChartBatch(int threads, int width, int height, int format, float density) throws Exception {
+        if (threads <= 0 || width <= 0 || height <= 0) {
+            throw new Exception("batch size not valid");
+        }
+        if (format != FORMAT_PNG && format != FORMAT_SVG) {
+            throw new Exception("format not valid");
+        }
+        mExecutor = Executors.newFixedThreadPool(threads);
+        mWidth = width;
+        mHeight = height;
+        mFormat = format;
+        mDensity = density;
+    }
+
+    public Future<?> submit(final Job job) {
+        return mExecutor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                render(job);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Renders all jobs and waits for them.
+     *
+     * @throws ExecutionException with the first failure, the other jobs still run
+     */
+    public void renderAll(List<? extends Job> jobs) throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            futures.add(submit(job));
+        }
+        ExecutionException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void render(Job job) throws Exception {
+        ChartEngine engine = new ChartEngine(new ChartStyle(mDensity, mDensity));
+        engine.setSize(mWidth, mHeight);
+        job.setup(engine);
+        HeadlessChart chart = mCharts.get();
+        OutputStream out = job.open();
+        try {
+            if (mFormat == FORMAT_PNG) {
+                chart.writePng(engine, mWidth, mHeight, out);
+            } else {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                chart.writeSvg(engine, mWidth, mHeight, writer);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        mExecutor.shutdown();
+    }
+}
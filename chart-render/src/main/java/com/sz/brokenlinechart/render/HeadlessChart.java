@@ -0,0 +1,105 @@
+package com.sz.brokenlinechart.render;
+
+import com.sz.brokenlinechart.core.ChartEngine;
+import com.sz.brokenlinechart.core.ChartPainter;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Renders a {@link ChartEngine} without an Android runtime, through the same
+ * {@link ChartPainter} the view uses.
+ *
+ * The engine must already have its size and data. An instance keeps its image and
+ * renderer between charts of the same size, so it is cheap to reuse but must not be
+ * shared between threads, see {@link ChartBatch}.
+ */
+public class HeadlessChart {
+
+    private final Java2DRenderer mRenderer = new Java2DRenderer();
+    private BufferedImage mImage;
+    private ImageWriter mPngWriter;
+    // the background, 0 keeps the image transparent
+    private int mBackgroundColor = 0xFFFFFFFF;
+
+    public void setBackgroundColor(int backgroundColor) {
+        this.mBackgroundColor = backgroundColor;
+    }
+
+    /**
+     * Draws the static layer and, if shown, the crosshair of engine into an image that is
+     * reused by the next call, copy it to keep it.
+     */
+    public BufferedImage render(ChartEngine engine, int width, int height) {
+        // without alpha the encoder has a quarter less to compress
+        int type = mBackgroundColor >>> 24 == 0xFF ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        if (mImage == null || mImage.getWidth() != width || mImage.getHeight() != height || mImage.getType() != type) {
+            mImage = new BufferedImage(width, height, type);
+        }
+        int[] pixels = ((DataBufferInt) mImage.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, mBackgroundColor);
+        Graphics2D graphics = mImage.createGraphics();
+        try {
+            mRenderer.setGraphics(graphics);
+            ChartPainter painter = new ChartPainter(engine);
+            painter.paintStatic(mRenderer);
+            painter.paintCrosshair(mRenderer);
+        } finally {
+            mRenderer.setGraphics(null);
+            graphics.dispose();
+        }
+        return mImage;
+    }
+
+    /**
+     * Writes the chart as PNG. Goes through an in-memory image stream, ImageIO.write would
+     * buffer through a temporary file.
+     */
+    public void writePng(ChartEngine engine, int width, int height, OutputStream out) throws IOException {
+        BufferedImage image = render(engine, width, height);
+        if (mPngWriter == null) {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+            if (!writers.hasNext()) {
+                throw new IOException("no png writer");
+            }
+            mPngWriter = writers.next();
+        }
+        ImageOutputStream stream = new MemoryCacheImageOutputStream(out);
+        try {
+            mPngWriter.setOutput(stream);
+            mPngWriter.write(image);
+        } finally {
+            mPngWriter.setOutput(null);
+            stream.close();
+        }
+    }
+
+    public void writeSvg(ChartEngine engine, int width, int height, Writer out) throws IOException {
+        SvgRenderer renderer = new SvgRenderer(out);
+        try {
+            renderer.begin(width, height);
+            if (mBackgroundColor != 0) {
+                renderer.fillRoundRect(0, 0, width, height, 0, mBackgroundColor);
+            }
+            ChartPainter painter = new ChartPainter(engine);
+            painter.paintStatic(renderer);
+            painter.paintCrosshair(renderer);
+            renderer.end();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+}
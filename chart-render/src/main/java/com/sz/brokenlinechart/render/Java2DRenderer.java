@@ -0,0 +1,223 @@
+package com.sz.brokenlinechart.render;
+
+import com.sz.brokenlinechart.core.Renderer;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.util.ArrayDeque;
+
+/**
+ * Draws the chart onto a {@link Graphics2D}, e.g. of a BufferedImage. Shapes, strokes and
+ * fonts are reused between calls, one instance per thread.
+ */
+public class Java2DRenderer implements Renderer {
+
+    private Graphics2D mGraphics;
+    private final Path2D.Float mPath = new Path2D.Float();
+    private final Line2D.Float mLine = new Line2D.Float();
+    private final Ellipse2D.Float mCircle = new Ellipse2D.Float();
+    private final RoundRectangle2D.Float mRoundRect = new RoundRectangle2D.Float();
+    // graphics before each clipRect and translate, restore goes back to the last one
+    private final ArrayDeque<Graphics2D> mSaved = new ArrayDeque<>();
+    // last font and stroke, most calls reuse them
+    private final Font mBaseFont;
+    private Font mFont;
+    private BasicStroke mStroke;
+    private float mStrokeDash;
+
+    public Java2DRenderer() {
+        this(new Font(Font.SANS_SERIF, Font.PLAIN, 12));
+    }
+
+    public Java2DRenderer(Font font) {
+        mBaseFont = font;
+        mFont = font;
+    }
+
+    /**
+     * Starts drawing onto graphics, which is set up for antialiased drawing.
+     */
+    public void setGraphics(Graphics2D graphics) {
+        this.mGraphics = graphics;
+        if (graphics != null) {
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        }
+    }
+
+    @Override
+    public void clipRect(float left, float top, float right, float bottom) {
+        save();
+        mGraphics.clip(new Rectangle2D.Float(left, top, right - left, bottom - top));
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        save();
+        mGraphics.translate(dx, dy);
+    }
+
+    private void save() {
+        mSaved.push(mGraphics);
+        mGraphics = (Graphics2D) mGraphics.create();
+    }
+
+    @Override
+    public void restore() {
+        mGraphics.dispose();
+        mGraphics = mSaved.pop();
+    }
+
+    private void setColor(int color) {
+        mGraphics.setColor(new Color(color, true));
+    }
+
+    private void setStroke(float width, float dash) {
+        if (mStroke == null || mStroke.getLineWidth() != width || mStrokeDash != dash) {
+            mStroke = dash == 0
+                    ? new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER)
+                    : new BasicStroke(width, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10, new float[]{dash, dash}, 0);
+            mStrokeDash = dash;
+        }
+        mGraphics.setStroke(mStroke);
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int color, float width, float dash) {
+        setColor(color);
+        setStroke(width, dash);
+        mLine.setLine(startX, startY, stopX, stopY);
+        mGraphics.draw(mLine);
+    }
+
+    @Override
+    public void drawPolyline(float[] xs, float[] ys, int from, int count, int color, float width) {
+        if (count == 0) {
+            return;
+        }
+        setColor(color);
+        setStroke(width, 0);
+        mPath.reset();
+        mPath.moveTo(xs[from], ys[from]);
+        for (int i = from + 1; i < from + count; i++) {
+            mPath.lineTo(xs[i], ys[i]);
+        }
+        mGraphics.draw(mPath);
+    }
+
+    @Override
+    public void drawCurve(float[] xs, float[] ys, float[] controls, int count, int color, float width) {
+        if (count == 0) {
+            return;
+        }
+        setColor(color);
+        setStroke(width, 0);
+        mPath.reset();
+        mPath.moveTo(xs[0], ys[0]);
+        curveSegments(xs, ys, controls, count);
+        mGraphics.draw(mPath);
+    }
+
+    private void curveSegments(float[] xs, float[] ys, float[] controls, int count) {
+        for (int i = 1; i < count; i++) {
+            int o = (i - 1) * 4;
+            mPath.curveTo(controls[o], controls[o + 1], controls[o + 2], controls[o + 3], xs[i], ys[i]);
+        }
+    }
+
+    @Override
+    public void fillArea(float[] xs, float[] ys, int from, int count, float startX, float baseline,
+                         float gradientTop, int topColor, int bottomColor) {
+        if (count <= 1) {
+            return;
+        }
+        mPath.reset();
+        mPath.moveTo(startX, baseline);
+        for (int i = from; i < from + count; i++) {
+            mPath.lineTo(xs[i], ys[i]);
+        }
+        mPath.lineTo(xs[from + count - 1], baseline);
+        mPath.closePath();
+        fillGradient(startX, baseline, gradientTop, topColor, bottomColor);
+    }
+
+    @Override
+    public void fillCurveArea(float[] xs, float[] ys, float[] controls, int count, float startX, float baseline,
+                              float gradientTop, int topColor, int bottomColor) {
+        if (count <= 1) {
+            return;
+        }
+        mPath.reset();
+        mPath.moveTo(startX, baseline);
+        mPath.lineTo(xs[0], ys[0]);
+        curveSegments(xs, ys, controls, count);
+        mPath.lineTo(xs[count - 1], baseline);
+        mPath.closePath();
+        fillGradient(startX, baseline, gradientTop, topColor, bottomColor);
+    }
+
+    private void fillGradient(float startX, float baseline, float gradientTop, int topColor, int bottomColor) {
+        mGraphics.setPaint(new GradientPaint(startX, gradientTop, new Color(topColor, true),
+                startX, baseline, new Color(bottomColor, true)));
+        mGraphics.fill(mPath);
+    }
+
+    @Override
+    public void fillCircle(float centerX, float centerY, float radius, int color) {
+        setColor(color);
+        mCircle.setFrame(centerX - radius, centerY - radius, radius * 2, radius * 2);
+        mGraphics.fill(mCircle);
+    }
+
+    @Override
+    public void fillRoundRect(float left, float top, float right, float bottom, float radius, int color) {
+        setColor(color);
+        mRoundRect.setRoundRect(left, top, right - left, bottom - top, radius * 2, radius * 2);
+        mGraphics.fill(mRoundRect);
+    }
+
+    private Font font(float size) {
+        if (mFont.getSize2D() != size) {
+            mFont = mBaseFont.deriveFont(size);
+        }
+        return mFont;
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float size, int color, int align) {
+        Font font = font(size);
+        mGraphics.setFont(font);
+        setColor(color);
+        if (align != ALIGN_LEFT) {
+            float width = (float) font.getStringBounds(text, mGraphics.getFontRenderContext()).getWidth();
+            x -= align == ALIGN_RIGHT ? width : width / 2;
+        }
+        mGraphics.drawString(text, x, y);
+    }
+
+    @Override
+    public void measureText(String text, float size, float[] out) {
+        FontRenderContext context = mGraphics.getFontRenderContext();
+        Rectangle2D bounds = font(size).createGlyphVector(context, text).getVisualBounds();
+        out[0] = (float) bounds.getWidth();
+        out[1] = (float) bounds.getHeight();
+    }
+
+    @Override
+    public float centerToBaseline(float size) {
+        FontMetrics metrics = mGraphics.getFontMetrics(font(size));
+        return (metrics.getAscent() - metrics.getDescent()) / 2f;
+    }
+}
@@ -0,0 +1,305 @@
+package com.sz.brokenlinechart.render;
+
+import com.sz.brokenlinechart.core.Renderer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Streams the chart as SVG into a {@link Writer}, element by element, without building a
+ * document in memory. Numbers are written with two decimals.
+ *
+ * There is no font engine behind it, text is measured with the average proportions of a
+ * sans-serif font, close enough to place the tips.
+ */
+public class SvgRenderer implements Renderer {
+
+    private static final float CHAR_WIDTH = 0.55f;
+    private static final float DIGIT_HEIGHT = 0.72f;
+
+    private final Writer mOut;
+    private final StringBuilder mBuffer = new StringBuilder(256);
+    private int mNextId;
+
+    public SvgRenderer(Writer out) {
+        mOut = out;
+    }
+
+    public void begin(int width, int height) {
+        mBuffer.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height)
+                .append("\" viewBox=\"0 0 ").append(width).append(' ').append(height).append("\">\n");
+        flush();
+    }
+
+    public void end() {
+        mBuffer.append("</svg>\n");
+        flush();
+    }
+
+    private void flush() {
+        try {
+            mOut.append(mBuffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        mBuffer.setLength(0);
+    }
+
+    private SvgRenderer number(float value) {
+        long hundredths = Math.round(value * 100.0);
+        if (hundredths < 0) {
+            mBuffer.append('-');
+            hundredths = -hundredths;
+        }
+        mBuffer.append(hundredths / 100);
+        long fraction = hundredths % 100;
+        if (fraction != 0) {
+            mBuffer.append('.');
+            if (fraction < 10) {
+                mBuffer.append('0');
+            }
+            mBuffer.append(fraction % 10 == 0 ? fraction / 10 : fraction);
+        }
+        return this;
+    }
+
+    private SvgRenderer attribute(String name, float value) {
+        mBuffer.append(' ').append(name).append("=\"");
+        number(value);
+        mBuffer.append('"');
+        return this;
+    }
+
+    private SvgRenderer color(String name, int color) {
+        mBuffer.append(' ').append(name).append("=\"#");
+        int rgb = color & 0xFFFFFF;
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            mBuffer.append(Character.forDigit((rgb >> shift) & 0xF, 16));
+        }
+        mBuffer.append('"');
+        int alpha = color >>> 24;
+        if (alpha != 0xFF) {
+            attribute(name + "-opacity", alpha / 255f);
+        }
+        return this;
+    }
+
+    private void escape(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    mBuffer.append("&lt;");
+                    break;
+                case '>':
+                    mBuffer.append("&gt;");
+                    break;
+                case '&':
+                    mBuffer.append("&amp;");
+                    break;
+                default:
+                    mBuffer.append(c);
+            }
+        }
+    }
+
+    @Override
+    public void clipRect(float left, float top, float right, float bottom) {
+        int id = mNextId++;
+        mBuffer.append("<clipPath id=\"c").append(id).append("\"><rect");
+        attribute("x", left).attribute("y", top).attribute("width", right - left).attribute("height", bottom - top);
+        mBuffer.append("/></clipPath>\n<g clip-path=\"url(#c").append(id).append(")\">\n");
+        flush();
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        mBuffer.append("<g transform=\"translate(");
+        number(dx);
+        mBuffer.append(',');
+        number(dy);
+        mBuffer.append(")\">\n");
+        flush();
+    }
+
+    @Override
+    public void restore() {
+        mBuffer.append("</g>\n");
+        flush();
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, int color, float width, float dash) {
+        mBuffer.append("<line");
+        attribute("x1", startX).attribute("y1", startY).attribute("x2", stopX).attribute("y2", stopY);
+        color("stroke", color).attribute("stroke-width", width);
+        if (dash != 0) {
+            mBuffer.append(" stroke-dasharray=\"");
+            number(dash);
+            mBuffer.append('"');
+        }
+        mBuffer.append("/>\n");
+        flush();
+    }
+
+    private void points(float[] xs, float[] ys, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            if (i > from) {
+                mBuffer.append(' ');
+            }
+            number(xs[i]);
+            mBuffer.append(',');
+            number(ys[i]);
+            // keeps the buffer small for long lines
+            if (mBuffer.length() > 8192) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void drawPolyline(float[] xs, float[] ys, int from, int count, int color, float width) {
+        if (count == 0) {
+            return;
+        }
+        mBuffer.append("<polyline fill=\"none\"");
+        color("stroke", color).attribute("stroke-width", width);
+        mBuffer.append(" stroke-linejoin=\"miter\" points=\"");
+        points(xs, ys, from, count);
+        mBuffer.append("\"/>\n");
+        flush();
+    }
+
+    private void point(float x, float y) {
+        number(x);
+        mBuffer.append(',');
+        number(y);
+    }
+
+    // the path data of the segments after the first point
+    private void curveSegments(float[] xs, float[] ys, float[] controls, int count) {
+        for (int i = 1; i < count; i++) {
+            int o = (i - 1) * 4;
+            mBuffer.append(i == 1 ? " C" : " ");
+            point(controls[o], controls[o + 1]);
+            mBuffer.append(' ');
+            point(controls[o + 2], controls[o + 3]);
+            mBuffer.append(' ');
+            point(xs[i], ys[i]);
+            if (mBuffer.length() > 8192) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void drawCurve(float[] xs, float[] ys, float[] controls, int count, int color, float width) {
+        if (count == 0) {
+            return;
+        }
+        mBuffer.append("<path fill=\"none\"");
+        color("stroke", color).attribute("stroke-width", width);
+        mBuffer.append(" d=\"M");
+        point(xs[0], ys[0]);
+        curveSegments(xs, ys, controls, count);
+        mBuffer.append("\"/>\n");
+        flush();
+    }
+
+    // a vertical gradient from topColor at gradientTop to bottomColor at baseline, returns its id
+    private int gradient(float startX, float baseline, float gradientTop, int topColor, int bottomColor) {
+        int id = mNextId++;
+        mBuffer.append("<linearGradient id=\"g").append(id).append("\" gradientUnits=\"userSpaceOnUse\"");
+        attribute("x1", startX).attribute("y1", gradientTop).attribute("x2", startX).attribute("y2", baseline);
+        mBuffer.append("><stop offset=\"0\"");
+        color("stop-color", topColor);
+        mBuffer.append("/><stop offset=\"1\"");
+        color("stop-color", bottomColor);
+        mBuffer.append("/></linearGradient>\n");
+        return id;
+    }
+
+    @Override
+    public void fillCurveArea(float[] xs, float[] ys, float[] controls, int count, float startX, float baseline,
+                              float gradientTop, int topColor, int bottomColor) {
+        if (count <= 1) {
+            return;
+        }
+        int id = gradient(startX, baseline, gradientTop, topColor, bottomColor);
+        mBuffer.append("<path fill=\"url(#g").append(id).append(")\" d=\"M");
+        point(startX, baseline);
+        mBuffer.append(" L");
+        point(xs[0], ys[0]);
+        curveSegments(xs, ys, controls, count);
+        mBuffer.append(" L");
+        point(xs[count - 1], baseline);
+        mBuffer.append(" Z\"/>\n");
+        flush();
+    }
+
+    @Override
+    public void fillArea(float[] xs, float[] ys, int from, int count, float startX, float baseline,
+                         float gradientTop, int topColor, int bottomColor) {
+        if (count <= 1) {
+            return;
+        }
+        int id = gradient(startX, baseline, gradientTop, topColor, bottomColor);
+        mBuffer.append("<polygon fill=\"url(#g").append(id).append(")\" points=\"");
+        number(startX);
+        mBuffer.append(',');
+        number(baseline);
+        mBuffer.append(' ');
+        points(xs, ys, from, count);
+        mBuffer.append(' ');
+        number(xs[from + count - 1]);
+        mBuffer.append(',');
+        number(baseline);
+        mBuffer.append("\"/>\n");
+        flush();
+    }
+
+    @Override
+    public void fillCircle(float centerX, float centerY, float radius, int color) {
+        mBuffer.append("<circle");
+        attribute("cx", centerX).attribute("cy", centerY).attribute("r", radius).color("fill", color);
+        mBuffer.append("/>\n");
+        flush();
+    }
+
+    @Override
+    public void fillRoundRect(float left, float top, float right, float bottom, float radius, int color) {
+        mBuffer.append("<rect");
+        attribute("x", left).attribute("y", top).attribute("width", right - left).attribute("height", bottom - top);
+        attribute("rx", radius).color("fill", color);
+        mBuffer.append("/>\n");
+        flush();
+    }
+
+    @Override
+    public void drawText(String text, float x, float y, float size, int color, int align) {
+        mBuffer.append("<text font-family=\"sans-serif\"");
+        attribute("x", x).attribute("y", y).attribute("font-size", size).color("fill", color);
+        if (align == ALIGN_CENTER) {
+            mBuffer.append(" text-anchor=\"middle\"");
+        } else if (align == ALIGN_RIGHT) {
+            mBuffer.append(" text-anchor=\"end\"");
+        }
+        mBuffer.append('>');
+        escape(text);
+        mBuffer.append("</text>\n");
+        flush();
+    }
+
+    @Override
+    public void measureText(String text, float size, float[] out) {
+        out[0] = text.length() * size * CHAR_WIDTH;
+        out[1] = size * DIGIT_HEIGHT;
+    }
+
+    @Override
+    public float centerToBaseline(float size) {
+        return size * DIGIT_HEIGHT / 2;
+    }
+}
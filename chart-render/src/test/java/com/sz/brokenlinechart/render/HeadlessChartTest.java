@@ -0,0 +1,124 @@
+package com.sz.brokenlinechart.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.sz.brokenlinechart.core.ChartEngine;
+import com.sz.brokenlinechart.core.ChartStyle;
+import com.sz.brokenlinechart.core.Series;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+public class HeadlessChartTest {
+
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 300;
+
+    private static ChartEngine engine() throws Exception {
+        ChartEngine engine = new ChartEngine(new ChartStyle(1, 1));
+        engine.setSize(WIDTH, HEIGHT);
+        engine.setXAxisBasisLabels(new String[]{"a", "b", "c", "d", "e", "f", "g", "h"});
+        Series series = new Series();
+        for (int i = 0; i < 8; i++) {
+            series.add((float) Math.sin(i), null, null);
+        }
+        engine.setSeries(series);
+        return engine;
+    }
+
+    private static Document svg(ChartEngine engine) throws Exception {
+        StringWriter out = new StringWriter();
+        new HeadlessChart().writeSvg(engine, WIDTH, HEIGHT, out);
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(out.toString())));
+    }
+
+    @Test
+    public void writesPng() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new HeadlessChart().writePng(engine(), WIDTH, HEIGHT, out);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(WIDTH, image.getWidth());
+        assertEquals(HEIGHT, image.getHeight());
+        // the background is white, the chart is drawn on top
+        assertEquals(0xFFFFFFFF, image.getRGB(0, 0));
+        assertTrue(countDrawn(image) > WIDTH);
+    }
+
+    @Test
+    public void writesSvg() throws Exception {
+        ChartEngine engine = engine();
+        Document document = svg(engine);
+        assertEquals(String.valueOf(WIDTH), document.getDocumentElement().getAttribute("width"));
+        assertEquals(String.valueOf(HEIGHT), document.getDocumentElement().getAttribute("height"));
+        // the line and its area
+        assertEquals(1, document.getElementsByTagName("polyline").getLength());
+        assertEquals(1, document.getElementsByTagName("polygon").getLength());
+
+        Series added = new Series();
+        for (int i = 0; i < 8; i++) {
+            added.add(i % 2, null, null);
+        }
+        engine.addSeries(added, 0xFF0000FF);
+        assertEquals(2, svg(engine).getElementsByTagName("polyline").getLength());
+    }
+
+    @Test
+    public void slidLinesAreMovedBack() throws Exception {
+        ChartEngine engine = engine();
+        engine.setCapacity(8);
+        for (int i = 0; i < 3; i++) {
+            engine.append((float) Math.sin(8 + i), null);
+        }
+        // the appends slide the points through their buffer, the line is translated back
+        Document document = svg(engine);
+        assertEquals(1, document.getElementsByTagName("polyline").getLength());
+        Element group = (Element) document.getElementsByTagName("polyline").item(0).getParentNode();
+        String transform = group.getAttribute("transform");
+        assertTrue(transform.startsWith("translate(-"));
+
+        BufferedImage slid = copy(new HeadlessChart().render(engine, WIDTH, HEIGHT));
+        engine.computeLayout();
+        BufferedImage laidOut = new HeadlessChart().render(engine, WIDTH, HEIGHT);
+        int different = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (slid.getRGB(x, y) != laidOut.getRGB(x, y)) {
+                    different++;
+                }
+            }
+        }
+        // at most antialiasing differences along the line
+        assertTrue(different < WIDTH);
+    }
+
+    private static BufferedImage copy(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+        copy.setData(image.getData());
+        return copy;
+    }
+
+    private static int countDrawn(BufferedImage image) {
+        int drawn = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                if (image.getRGB(x, y) != 0xFFFFFFFF) {
+                    drawn++;
+                }
+            }
+        }
+        return drawn;
+    }
+}